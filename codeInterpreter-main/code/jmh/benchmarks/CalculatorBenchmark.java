@@ -0,0 +1,79 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ast.Variable;
+import lexer.Lexer;
+import lexer.Token;
+import lexer.TokenType;
+import parser.Calculator;
+import parser.Condition;
+import parser.LogicalCalculator;
+
+/**
+ * Calculator and LogicalCalculator operations per second for expressions of growing size
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalculatorBenchmark {
+    @Param({ "2", "8", "32", "128" })
+    public int size;
+
+    private String arithmetic;
+    private List<Token> arithmeticTokens;
+    private List<Token> logicalTokens;
+    private Condition condition;
+
+    @Setup
+    public void setup() {
+        arithmetic = Sources.arithmetic(size);
+        arithmeticTokens = tokens(arithmetic);
+        logicalTokens = tokens(Sources.logical(size));
+        condition = LogicalCalculator.compile(logicalTokens, new Variable[logicalTokens.size()]);
+    }
+
+    @Benchmark
+    public double getResultString() throws Exception {
+        return Calculator.getResult(arithmetic);
+    }
+
+    @Benchmark
+    public double getResultTokens() throws Exception {
+        return Calculator.getResult(arithmeticTokens);
+    }
+
+    @Benchmark
+    public boolean logicalEvaluate() {
+        return new LogicalCalculator().evaluate(logicalTokens);
+    }
+
+    @Benchmark
+    public boolean logicalCompiled() {
+        return condition.test(null);
+    }
+
+    private static List<Token> tokens(String expression) {
+        List<Token> tokens = new ArrayList<>(Lexer.Tokenize(new Lexer(expression)));
+        // no EOF, and no NEWLINE closing the line
+        tokens.removeIf(token -> token.getType() == TokenType.EOF || token.getType() == TokenType.NEWLINE);
+        return tokens;
+    }
+}
@@ -0,0 +1,65 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import lexer.Lexer;
+import lexer.Token;
+import lexer.TokenStream;
+import lexer.TokenType;
+
+/**
+ * Lexer throughput. One operation is one character of source, and the time unit is the microsecond, so the score
+ * reads as MB/s for ASCII sources.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+    static final int SOURCE_LENGTH = 1 << 20;
+
+    private String source;
+
+    @Setup
+    public void setup() {
+        source = Sources.mixed(SOURCE_LENGTH);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SOURCE_LENGTH)
+    public void getNextToken(Blackhole blackhole) {
+        Lexer lexer = new Lexer(source);
+        Token token;
+        do {
+            token = lexer.getNextToken();
+            blackhole.consume(token);
+        } while (token.getType() != TokenType.EOF);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SOURCE_LENGTH)
+    public Object tokenize() {
+        return Lexer.Tokenize(new Lexer(source));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SOURCE_LENGTH)
+    public Object tokenStream() {
+        return TokenStream.tokenize(new Lexer(source));
+    }
+}
@@ -0,0 +1,65 @@
+package benchmarks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import lexer.Lexer;
+import lexer.ParallelLexer;
+import lexer.TokenStream;
+
+/**
+ * Scaling of the chunked parallel lexer with the number of threads, against the sequential TokenStream.tokenize on
+ * the same 64 MiB source. The score reads as MB/s, as in {@link LexerBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ParallelLexerBenchmark {
+    static final int SOURCE_LENGTH = 1 << 26;
+
+    @Param({ "1", "2", "4", "8" })
+    public int threads;
+
+    private String source;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setup() {
+        source = Sources.mixed(SOURCE_LENGTH);
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SOURCE_LENGTH)
+    public Object parallel() {
+        return new ParallelLexer(pool).tokenize(source);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SOURCE_LENGTH)
+    public Object sequential() {
+        return TokenStream.tokenize(new Lexer(source));
+    }
+}
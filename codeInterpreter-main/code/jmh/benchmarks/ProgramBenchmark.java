@@ -0,0 +1,102 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ast.Program;
+import closure.ClosureCompiler;
+import closure.ClosureProgram;
+import codegen.CompiledProgram;
+import codegen.ProgramCompiler;
+import interpreter.ByteInput;
+import interpreter.Interpreter;
+import interpreter.MemorySink;
+import lexer.Lexer;
+import lexer.TokenStream;
+import lexer.TokenWindow;
+import parser.SyntaxAnalyzer;
+import vm.Bytecode;
+import vm.BytecodeCompiler;
+import vm.VirtualMachine;
+
+/**
+ * End-to-end cost of WHILE-heavy and DISPLAY-heavy programs: parsing alone, and running a parsed program, interpreted
+ * compiled to a JVM class, run by the VirtualMachine or compiled to closures
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProgramBenchmark {
+    @Param({ "while", "display" })
+    public String kind;
+
+    @Param({ "100", "10000" })
+    public int size;
+
+    private String source;
+    private Program program;
+    private CompiledProgram compiled;
+    private Bytecode bytecode;
+    private ClosureProgram closures;
+
+    @Setup
+    public void setup() {
+        source = kind.equals("while") ? Sources.whileHeavy(size) : Sources.displayHeavy(size);
+        program = new SyntaxAnalyzer(TokenStream.tokenize(new Lexer(source))).parse();
+        compiled = ProgramCompiler.compile(program);
+        bytecode = BytecodeCompiler.compile(program);
+        closures = ClosureCompiler.compile(program);
+    }
+
+    @Benchmark
+    public Program parse() {
+        return new SyntaxAnalyzer(TokenStream.tokenize(new Lexer(source))).parse();
+    }
+
+    @Benchmark
+    public Program parseStreaming() {
+        return new SyntaxAnalyzer(new TokenWindow(new Lexer(source))).parse();
+    }
+
+    @Benchmark
+    public String run() {
+        MemorySink out = new MemorySink();
+        new Interpreter(program, ByteInput.of(""), out).run();
+        return out.toString();
+    }
+
+    @Benchmark
+    public String runCompiled() {
+        MemorySink out = new MemorySink();
+        compiled.run(ByteInput.of(""), out);
+        return out.toString();
+    }
+
+    @Benchmark
+    public String runVm() {
+        MemorySink out = new MemorySink();
+        new VirtualMachine(bytecode, ByteInput.of(""), out).run();
+        return out.toString();
+    }
+
+    @Benchmark
+    public String runClosures() {
+        MemorySink out = new MemorySink();
+        closures.run(ByteInput.of(""), out);
+        return out.toString();
+    }
+}
@@ -0,0 +1,63 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import lexer.Lexer;
+import lexer.TokenStream;
+
+/**
+ * Lexer throughput on a memory-mapped, comment and literal heavy source, scanned one character at a time (scalar)
+ * and with the Vector API (vector). The scalar fork runs without the jdk.incubator.vector module, which is the
+ * fallback path. The score reads as MB/s, as in {@link LexerBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ScanBenchmark {
+    static final int SOURCE_LENGTH = 1 << 20;
+
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        file = Files.createTempFile("scan", ".code");
+        Files.writeString(file, Sources.commented(SOURCE_LENGTH));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    @Fork(1)
+    @OperationsPerInvocation(SOURCE_LENGTH)
+    public Object scalar() throws IOException {
+        return TokenStream.tokenize(Lexer.fromFile(file));
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+    @OperationsPerInvocation(SOURCE_LENGTH)
+    public Object vector() throws IOException {
+        return TokenStream.tokenize(Lexer.fromFile(file));
+    }
+}
@@ -0,0 +1,117 @@
+package benchmarks;
+
+/**
+ * Synthetic CODE programs and expressions for the benchmarks
+ */
+final class Sources {
+
+    private Sources() {
+    }
+
+    /**
+     * A program of exactly length characters mixing declarations, arithmetic, conditions, DISPLAY and comments
+     */
+    static String mixed(int length) {
+        StringBuilder body = new StringBuilder();
+        int i = 0;
+        while (body.length() < length) {
+            body.append("# block ").append(i).append('\n')
+                    .append("INT a").append(i).append(", b").append(i).append(" = ").append(i).append('\n')
+                    .append("FLOAT f").append(i).append(" = ").append(i).append(".5 * (b").append(i)
+                    .append(" + 3) - 7 / 2\n")
+                    .append("IF (b").append(i).append(" >= 10 AND f").append(i).append(" <> 2.5)\n")
+                    .append("BEGIN IF\n")
+                    .append("DISPLAY: \"value\" & [#] & b").append(i).append(" & $\n")
+                    .append("END IF\n");
+            i++;
+        }
+        body.setLength(length);
+        return body.toString();
+    }
+
+    /**
+     * A program of exactly length characters that is mostly comments and long DISPLAY literals, as generated
+     * sources are
+     */
+    static String commented(int length) {
+        StringBuilder body = new StringBuilder();
+        int i = 0;
+        while (body.length() < length) {
+            body.append("# ---------------------------------------------------------------------------------\n")
+                    .append("# generated from template section ").append(i)
+                    .append(", keep in sync with the report layout and do not edit by hand\n")
+                    .append("# ---------------------------------------------------------------------------------\n")
+                    .append("    INT n").append(i).append(" = ").append(i).append('\n')
+                    .append("    DISPLAY: \"").append("Total amount carried over to the next page ".repeat(2))
+                    .append("\" & n").append(i).append(" & [").append("-".repeat(40)).append("] & $\n");
+            i++;
+        }
+        body.setLength(length);
+        return body.toString();
+    }
+
+    /**
+     * A program that spends its time in a WHILE loop of the given number of iterations
+     */
+    static String whileHeavy(int iterations) {
+        return "BEGIN CODE\n"
+                + "INT i = 0, sum = 0, x = 3\n"
+                + "FLOAT avg = 0\n"
+                + "WHILE (i < " + iterations + ")\n"
+                + "BEGIN WHILE\n"
+                + "sum = sum + i * x % 7\n"
+                + "IF (sum > 1000 AND i <> 3)\n"
+                + "BEGIN IF\n"
+                + "sum = sum - 1000\n"
+                + "END IF\n"
+                + "avg = sum / (i + 1)\n"
+                + "i = i + 1\n"
+                + "END WHILE\n"
+                + "DISPLAY: sum & \" \" & avg\n"
+                + "END CODE\n";
+    }
+
+    /**
+     * A program of the given number of DISPLAY statements
+     */
+    static String displayHeavy(int statements) {
+        StringBuilder program = new StringBuilder("BEGIN CODE\nINT n = 7\nCHAR c = 'x'\nBOOL t = \"TRUE\"\n");
+        for (int i = 0; i < statements; i++) {
+            program.append("DISPLAY: \"line \" & ").append(i).append(" & [&] & n * ").append(i)
+                    .append(" & c & t & $\n");
+        }
+        return program.append("END CODE\n").toString();
+    }
+
+    /**
+     * An arithmetic expression of the given number of operands, such as "1 + 2 * (3 - 4) / 5"
+     */
+    static String arithmetic(int operands) {
+        String[] operators = { " + ", " * ", " - ", " / " };
+        StringBuilder expression = new StringBuilder("1");
+        for (int i = 1; i < operands; i++) {
+            expression.append(operators[i % operators.length]);
+            if (i % 5 == 2) {
+                expression.append('(').append(i + 1).append(" - ").append(i % 3).append(')');
+            } else {
+                expression.append(i + 1);
+            }
+        }
+        return expression.toString();
+    }
+
+    /**
+     * A logical expression of the given number of comparisons, such as "1 < 2 AND 3 >= 2 OR ..."
+     */
+    static String logical(int comparisons) {
+        String[] operators = { " < ", " >= ", " <> ", " == " };
+        StringBuilder expression = new StringBuilder();
+        for (int i = 0; i < comparisons; i++) {
+            if (i > 0) {
+                expression.append(i % 2 == 0 ? " AND " : " OR ");
+            }
+            expression.append(i).append(operators[i % operators.length]).append(i + 1);
+        }
+        return expression.toString();
+    }
+}
@@ -1,56 +1,190 @@
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import ast.Program;
+import closure.ClosureCompiler;
+import closure.ClosureProgram;
+import codegen.CompiledProgram;
+import codegen.ProgramCompiler;
+import interpreter.AsyncSink;
+import interpreter.BatchRunner;
+import interpreter.BufferedSink;
+import interpreter.ByteInput;
+import interpreter.InputSource;
+import interpreter.Interpreter;
+import interpreter.OutputException;
+import interpreter.OutputSink;
+import interpreter.Profiler;
+import lexer.CodeException;
 import lexer.Lexer;
-import lexer.Token;
+import lexer.ParallelLexer;
+import lexer.TokenStream;
+import lexer.TokenWindow;
 import parser.SyntaxAnalyzer;
+import vm.Bytecode;
+import vm.BytecodeCompiler;
+import vm.VirtualMachine;
 
 public class Main {
+    private static final String DEFAULT_PROFILE_FILE = "profile.json";
+
     // Main method
     public static void main(String[] args) {
         // Define the filename containing the CODE program
         String filename = "D:\\CODE\\FINAL\\interpreter\\codeInterpreter-main\\code\\src\\sourceCode.txt";
-        
-        try {
-            // Create a FileReader to read the file
-            FileReader fileReader = new FileReader(filename);
-            BufferedReader bufferedReader = new BufferedReader(fileReader);
-
-            // Create a StringBuilder to store the CODE program
-            StringBuilder codeBuilder = new StringBuilder();
-            String line;
-            // Read each line from the file and append it to the StringBuilder
-            while ((line = bufferedReader.readLine()) != null) {
-                codeBuilder.append(line).append("@\n");
+
+        // --async: DISPLAY output is written by a background thread
+        // --input <file>: SCAN reads from the file instead of the standard input
+        // --profile[=<file>]: counts and times every line, prints the hottest ones and writes all to a JSON file
+        // --parallel-lex: the whole file is tokenized up front, in chunks on all cores
+        // --compile: the program is compiled to a JVM class before it runs, instead of being interpreted
+        // --vm: the program is compiled to bytecode and run by the VirtualMachine
+        // --disassemble: the bytecode of the program is printed instead of running it
+        // --closures: the program is compiled to a tree of closures before it runs
+        boolean async = false;
+        String inputFile = null;
+        String profileFile = null;
+        boolean parallelLex = false;
+        boolean toClass = false;
+        boolean onVm = false;
+        boolean disassemble = false;
+        boolean toClosures = false;
+        while (args.length > 0) {
+            if (args[0].equals("--async")) {
+                async = true;
+                args = Arrays.copyOfRange(args, 1, args.length);
+            } else if (args[0].equals("--input") && args.length > 1) {
+                inputFile = args[1];
+                args = Arrays.copyOfRange(args, 2, args.length);
+            } else if (args[0].equals("--parallel-lex")) {
+                parallelLex = true;
+                args = Arrays.copyOfRange(args, 1, args.length);
+            } else if (args[0].equals("--compile")) {
+                toClass = true;
+                args = Arrays.copyOfRange(args, 1, args.length);
+            } else if (args[0].equals("--vm")) {
+                onVm = true;
+                args = Arrays.copyOfRange(args, 1, args.length);
+            } else if (args[0].equals("--disassemble")) {
+                disassemble = true;
+                args = Arrays.copyOfRange(args, 1, args.length);
+            } else if (args[0].equals("--closures")) {
+                toClosures = true;
+                args = Arrays.copyOfRange(args, 1, args.length);
+            } else if (args[0].equals("--profile") || args[0].startsWith("--profile=")) {
+                profileFile = args[0].equals("--profile") ? DEFAULT_PROFILE_FILE : args[0].substring(10);
+                args = Arrays.copyOfRange(args, 1, args.length);
+            } else {
+                break;
             }
+        }
 
-            bufferedReader.close();
-            // Create a Lexer instance
-            Lexer lexer = new Lexer(codeBuilder.toString());
+        // --batch <directory or manifest> [threads]
+        if (args.length >= 2 && args[0].equals("--batch")) {
+            int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+            batch(args[1], threads);
+            return;
+        }
+        if (args.length > 0) {
+            filename = args[0];
+        }
 
-            List<Token> tokenList = new ArrayList<>();
-            // Token token;
+        try {
+            Program program = parallelLex ? compileParallel(filename) : compile(filename);
+            if (disassemble) {
+                Bytecode bytecode = BytecodeCompiler.compile(program);
+                System.out.println(bytecode != null ? bytecode.toString().stripTrailing()
+                        : "The program could not be compiled to bytecode");
+                return;
+            }
 
-            // do {
-            //     token = lexer.getNextToken();
-            //     tokens.add(token);
-            //     System.out.println(token);
-            // } while (token.getType() != TokenType.EOF);
+            OutputSink out = async ? new AsyncSink(System.out) : new BufferedSink(System.out);
+            InputSource in = inputFile != null ? ByteInput.fromFile(Path.of(inputFile)) : new ByteInput(System.in);
+            Profiler profiler = profileFile != null ? new Profiler() : null;
+            // a profiled run is always interpreted, the profile is kept by the Interpreter
+            CompiledProgram compiled = toClass && profiler == null ? ProgramCompiler.compile(program) : null;
+            if (toClass && profiler == null && compiled == null) {
+                System.err.println("The program could not be compiled, it is interpreted");
+            }
+            Bytecode bytecode = onVm && profiler == null ? BytecodeCompiler.compile(program) : null;
+            if (onVm && profiler == null && bytecode == null) {
+                System.err.println("The program could not be compiled to bytecode, it is interpreted");
+            }
+            ClosureProgram closures = toClosures && profiler == null ? ClosureCompiler.compile(program) : null;
+            if (toClosures && profiler == null && closures == null) {
+                System.err.println("The program could not be compiled to closures, it is interpreted");
+            }
+            if (compiled != null) {
+                compiled.run(in, out);
+            } else if (bytecode != null) {
+                new VirtualMachine(bytecode, in, out).run();
+            } else if (closures != null) {
+                closures.run(in, out);
+            } else {
+                new Interpreter(program, in, out, profiler).run();
+            }
+            if (profiler != null) {
+                List<String> sourceLines = Files.readAllLines(Path.of(filename));
+                profiler.report(out, sourceLines);
+                try {
+                    profiler.writeJson(Path.of(profileFile), filename, sourceLines);
+                } catch (IOException e) {
+                    System.err.println("Error writing profile: " + e.getMessage());
+                }
+            }
+            out.close();
 
-            tokenList = Lexer.Tokenize(lexer);
+        } catch (CodeException e) {
+            System.out.println(e.getMessage());
+        } catch (NoSuchFileException e) {
+            System.err.println("File not found: " + e.getFile());
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+        } catch (OutputException e) {
+            System.err.println("Error writing output: " + e.getCause().getMessage());
+        } catch (UncheckedIOException e) {
+            System.err.println("Error reading file: " + e.getCause().getMessage());
+        }
 
-            SyntaxAnalyzer syntaxAnalyzer = new SyntaxAnalyzer(tokenList);
-            syntaxAnalyzer.parse();
+    }
 
-        } catch (FileNotFoundException e) {
-            System.err.println("File not found: " + filename);
+    private static void batch(String path, int threads) {
+        List<Path> programs;
+        try {
+            programs = BatchRunner.listPrograms(Path.of(path));
         } catch (IOException e) {
             System.err.println("Error reading file: " + e.getMessage());
+            return;
+        }
+        int failures;
+        try {
+            failures = new BatchRunner(threads).run(programs, new BufferedSink(System.out));
+        } catch (OutputException e) {
+            System.err.println("Error writing output: " + e.getCause().getMessage());
+            failures = 1;
         }
-        
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static Program compile(String filename) throws IOException {
+        // The file is memory-mapped and lexed in place, tokens are handed to the SyntaxAnalyzer as it asks
+        Lexer lexer = Lexer.fromFile(Path.of(filename));
+
+        SyntaxAnalyzer syntaxAnalyzer = new SyntaxAnalyzer(new TokenWindow(lexer));
+        return syntaxAnalyzer.parse();
+    }
+
+    private static Program compileParallel(String filename) throws IOException {
+        TokenStream tokens = new ParallelLexer(ForkJoinPool.commonPool()).tokenize(Lexer.fromFile(Path.of(filename)));
+        return new SyntaxAnalyzer(tokens).parse();
     }
 
 }
@@ -0,0 +1,17 @@
+package ast;
+
+import java.util.List;
+
+/**
+ * x = y = expression
+ */
+public class AssignStatement extends Statement {
+    public final List<Variable> targets;
+    public final Expression value;
+
+    public AssignStatement(List<Variable> targets, Expression value, int line) {
+        super(StatementType.ASSIGN, line);
+        this.targets = List.copyOf(targets);
+        this.value = value;
+    }
+}
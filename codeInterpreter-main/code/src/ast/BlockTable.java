@@ -0,0 +1,111 @@
+package ast;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The statements of a program laid out in one array, with the blocks of IF and WHILE inlined and their control flow
+ * turned into jumps. Entry i is one of
+ * <ul>
+ * <li>STATEMENT: a DECLARE, ASSIGN, DISPLAY or SCAN, followed by entry i + 1</li>
+ * <li>BRANCH: the condition of an IF, ELSE IF or WHILE; entry i + 1 follows when it holds, entry target(i) (the
+ * next ELSE IF or ELSE, or the end of the block) when it does not</li>
+ * <li>JUMP: continue at target(i), from the end of a branch to the end of its IF, or back to the condition of a
+ * WHILE</li>
+ * </ul>
+ * The table is built once, when the {@link Program} is, so choosing a branch or repeating a loop is a single jump.
+ */
+public final class BlockTable {
+    public static final byte STATEMENT = 0;
+    public static final byte BRANCH = 1;
+    public static final byte JUMP = 2;
+
+    private byte[] ops = new byte[16];
+    // the statement of every entry; for a BRANCH and a JUMP, the IF or WHILE it belongs to
+    private Statement[] statements = new Statement[16];
+    private Expression[] conditions = new Expression[16];
+    private int[] targets = new int[16];
+    private int size;
+
+    private BlockTable() {
+    }
+
+    static BlockTable of(List<Statement> statements) {
+        BlockTable table = new BlockTable();
+        table.addAll(statements);
+        return table;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte op(int index) {
+        return ops[index];
+    }
+
+    public Statement statement(int index) {
+        return statements[index];
+    }
+
+    public Expression condition(int index) {
+        return conditions[index];
+    }
+
+    public int target(int index) {
+        return targets[index];
+    }
+
+    private void addAll(List<Statement> block) {
+        for (Statement statement : block) {
+            switch (statement.type) {
+                case IF:
+                    addIf((IfStatement) statement);
+                    break;
+                case WHILE:
+                    addWhile((WhileStatement) statement);
+                    break;
+                default:
+                    add(STATEMENT, statement, null);
+                    break;
+            }
+        }
+    }
+
+    private void addIf(IfStatement statement) {
+        int[] exits = new int[statement.conditions.size()];
+        for (int i = 0; i < statement.conditions.size(); i++) {
+            int branch = add(BRANCH, statement, statement.conditions.get(i));
+            addAll(statement.branches.get(i));
+            exits[i] = add(JUMP, statement, null);
+            targets[branch] = size;
+        }
+        addAll(statement.elseBranch);
+        for (int exit : exits) {
+            targets[exit] = size;
+        }
+    }
+
+    private void addWhile(WhileStatement statement) {
+        int branch = add(BRANCH, statement, statement.condition);
+        addAll(statement.body);
+        // add may grow the arrays, so targets is read after it
+        int back = add(JUMP, statement, null);
+        targets[back] = branch;
+        targets[branch] = size;
+    }
+
+    private int add(byte op, Statement statement, Expression condition) {
+        if (size == ops.length) {
+            int capacity = size * 2;
+            ops = Arrays.copyOf(ops, capacity);
+            statements = Arrays.copyOf(statements, capacity);
+            conditions = Arrays.copyOf(conditions, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+        }
+        ops[size] = op;
+        statements[size] = statement;
+        conditions[size] = condition;
+        return size++;
+    }
+}
@@ -0,0 +1,24 @@
+package ast;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import lexer.TokenType;
+
+/**
+ * INT x, y = 4, z
+ */
+public class DeclareStatement extends Statement {
+    public final TokenType dataType;
+    public final List<Variable> variables;
+    // initial value of each variable, null when the variable is declared without one
+    public final List<Expression> initializers;
+
+    public DeclareStatement(TokenType dataType, List<Variable> variables, List<Expression> initializers, int line) {
+        super(StatementType.DECLARE, line);
+        this.dataType = dataType;
+        this.variables = List.copyOf(variables);
+        this.initializers = Collections.unmodifiableList(new ArrayList<>(initializers));
+    }
+}
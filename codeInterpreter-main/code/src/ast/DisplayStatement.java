@@ -0,0 +1,16 @@
+package ast;
+
+import java.util.List;
+
+/**
+ * DISPLAY: x & "text" & $ & (x + 1)
+ */
+public class DisplayStatement extends Statement {
+    // every operand of the & concatenation in order
+    public final List<Expression> parts;
+
+    public DisplayStatement(List<Expression> parts, int line) {
+        super(StatementType.DISPLAY, line);
+        this.parts = List.copyOf(parts);
+    }
+}
@@ -0,0 +1,70 @@
+package ast;
+
+import java.util.List;
+
+import lexer.Token;
+import lexer.TokenNode;
+import lexer.TokenType;
+import parser.Condition;
+
+/**
+ * An expression as it appears in the source. The classification that decides how it is evaluated (logical,
+ * floating point or integer arithmetic, character) is done by the parser once, since the type of every variable is
+ * known from its declaration.
+ */
+public class Expression {
+    public final List<Token> tokens;
+    // variables[i] is the variable referenced by tokens.get(i), null when that token is not an IDENTIFIER
+    private final Variable[] variables;
+    // INT, FLOAT, BOOL, CHAR or STRING (a text literal in a DISPLAY)
+    public final TokenType resultType;
+    // for INT and FLOAT expressions: the parsed arithmetic, evaluated by parser.Calculator
+    public final TokenNode tree;
+    // for BOOL expressions: the compiled condition, or null if the tokens have to be evaluated to report an error
+    public final Condition condition;
+
+    public Expression(List<Token> tokens, Variable[] variables, TokenType resultType) {
+        this(tokens, variables, resultType, null);
+    }
+
+    public Expression(List<Token> tokens, Variable[] variables, TokenType resultType, TokenNode tree) {
+        this(tokens, variables, resultType, tree, null);
+    }
+
+    public Expression(List<Token> tokens, Variable[] variables, Condition condition) {
+        this(tokens, variables, TokenType.BOOL, null, condition);
+    }
+
+    private Expression(List<Token> tokens, Variable[] variables, TokenType resultType, TokenNode tree,
+            Condition condition) {
+        this.tokens = List.copyOf(tokens);
+        this.variables = variables.clone();
+        this.resultType = resultType;
+        this.tree = tree;
+        this.condition = condition;
+    }
+
+    public boolean isLogical() {
+        return resultType == TokenType.BOOL;
+    }
+
+    public Variable variableAt(int index) {
+        return variables[index];
+    }
+
+    /**
+     * Returns the variable if the expression is a single variable reference, null otherwise
+     */
+    public Variable variable() {
+        return variables.length == 1 ? variables[0] : null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder res = new StringBuilder();
+        for (Token token : tokens) {
+            res.append(token.getValue());
+        }
+        return res.toString();
+    }
+}
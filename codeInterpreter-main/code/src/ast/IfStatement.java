@@ -0,0 +1,21 @@
+package ast;
+
+import java.util.List;
+
+/**
+ * IF (condition) BEGIN IF ... END IF followed by any number of ELSE IF branches and an optional ELSE.
+ */
+public class IfStatement extends Statement {
+    // conditions.get(i) guards branches.get(i)
+    public final List<Expression> conditions;
+    public final List<List<Statement>> branches;
+    // statements of the ELSE block, empty when there is none
+    public final List<Statement> elseBranch;
+
+    public IfStatement(List<Expression> conditions, List<List<Statement>> branches, List<Statement> elseBranch, int line) {
+        super(StatementType.IF, line);
+        this.conditions = List.copyOf(conditions);
+        this.branches = branches.stream().map(List::copyOf).toList();
+        this.elseBranch = List.copyOf(elseBranch);
+    }
+}
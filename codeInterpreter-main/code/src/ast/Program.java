@@ -0,0 +1,19 @@
+package ast;
+
+import java.util.List;
+
+/**
+ * A parsed CODE program: the statements between BEGIN CODE and END CODE and every declared variable, where
+ * variables.get(i).slot == i. The statements are also laid out as a {@link BlockTable} for execution.
+ */
+public class Program {
+    public final List<Statement> statements;
+    public final List<Variable> variables;
+    public final BlockTable blocks;
+
+    public Program(List<Statement> statements, List<Variable> variables) {
+        this.statements = List.copyOf(statements);
+        this.variables = List.copyOf(variables);
+        this.blocks = BlockTable.of(this.statements);
+    }
+}
@@ -0,0 +1,15 @@
+package ast;
+
+import java.util.List;
+
+/**
+ * SCAN: x, y
+ */
+public class ScanStatement extends Statement {
+    public final List<Variable> variables;
+
+    public ScanStatement(List<Variable> variables, int line) {
+        super(StatementType.SCAN, line);
+        this.variables = List.copyOf(variables);
+    }
+}
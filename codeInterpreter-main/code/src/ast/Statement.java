@@ -0,0 +1,16 @@
+package ast;
+
+/**
+ * Base class of every node produced by the {@link parser.SyntaxAnalyzer}. The tree is built once and never
+ * modified, so a loop body is parsed exactly one time no matter how often it is executed.
+ */
+public abstract class Statement {
+    public final StatementType type;
+    // source line on which the statement starts, 0 when it is not known
+    public final int line;
+
+    protected Statement(StatementType type, int line) {
+        this.type = type;
+        this.line = line;
+    }
+}
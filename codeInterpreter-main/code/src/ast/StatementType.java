@@ -0,0 +1,10 @@
+package ast;
+
+public enum StatementType {
+    DECLARE,
+    ASSIGN,
+    DISPLAY,
+    SCAN,
+    IF,
+    WHILE,
+}
@@ -0,0 +1,24 @@
+package ast;
+
+import lexer.TokenType;
+
+/**
+ * A declared variable. Every variable is resolved to a slot index by the parser, and the interpreter keeps its
+ * value at that index of the frame, so no name lookup is done while the program runs.
+ */
+public class Variable {
+    public final String name;
+    public final TokenType type;
+    public final int slot;
+
+    public Variable(String name, TokenType type, int slot) {
+        this.name = name;
+        this.type = type;
+        this.slot = slot;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,17 @@
+package ast;
+
+import java.util.List;
+
+/**
+ * WHILE (condition) BEGIN WHILE ... END WHILE
+ */
+public class WhileStatement extends Statement {
+    public final Expression condition;
+    public final List<Statement> body;
+
+    public WhileStatement(Expression condition, List<Statement> body, int line) {
+        super(StatementType.WHILE, line);
+        this.condition = condition;
+        this.body = List.copyOf(body);
+    }
+}
@@ -0,0 +1,13 @@
+package closure;
+
+import interpreter.Frame;
+import interpreter.InputSource;
+import interpreter.OutputSink;
+
+/**
+ * A statement compiled by {@link ClosureCompiler}, run on the variables, the input and the output of one run
+ */
+@FunctionalInterface
+interface Action {
+    void run(Frame frame, InputSource in, OutputSink out);
+}
@@ -0,0 +1,679 @@
+package closure;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+import ast.AssignStatement;
+import ast.DeclareStatement;
+import ast.DisplayStatement;
+import ast.Expression;
+import ast.IfStatement;
+import ast.Program;
+import ast.ScanStatement;
+import ast.Statement;
+import ast.Variable;
+import ast.WhileStatement;
+import interpreter.Frame;
+import interpreter.InputSource;
+import interpreter.InvalidInputException;
+import lexer.CodeException;
+import lexer.TokenNode;
+import lexer.TokenType;
+import parser.Calculator;
+import parser.Condition;
+
+/**
+ * Compiles a {@link Program} to a tree of closures, one for every statement and every node of an expression, each
+ * holding the slots of its variables and the closures of its operands. Running the program is then a chain of calls
+ * from closure to closure, without a look at the type of a statement or of a token.
+ * <p>
+ * The closures keep the order of evaluation of the Interpreter, so a run prints the same output and stops on the same
+ * runtime error.
+ */
+public final class ClosureCompiler implements Condition.Visitor, Condition.Operand.Visitor {
+    private static final Action NOTHING = (frame, in, out) -> {
+    };
+
+    // the closure of the condition or operand visited last
+    private Predicate<Frame> condition;
+    private ToDoubleFunction<Frame> operand;
+
+    private ClosureCompiler() {
+    }
+
+    /**
+     * Returns the closures of the program, or null if it has an expression that is only evaluated by the Interpreter
+     */
+    public static ClosureProgram compile(Program program) {
+        try {
+            return new ClosureProgram(new ClosureCompiler().block(program.statements), program.variables.size());
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private Action block(List<Statement> statements) {
+        if (statements.isEmpty()) {
+            return NOTHING;
+        }
+        List<Action> actions = new ArrayList<>();
+        for (Statement statement : statements) {
+            actions.add(statement(statement));
+        }
+        return sequence(actions);
+    }
+
+    private static Action sequence(List<Action> actions) {
+        if (actions.size() == 1) {
+            return actions.get(0);
+        }
+        Action[] all = actions.toArray(new Action[0]);
+        return (frame, in, out) -> {
+            for (Action action : all) {
+                action.run(frame, in, out);
+            }
+        };
+    }
+
+    private Action statement(Statement statement) {
+        switch (statement.type) {
+            case DECLARE:
+                return declare((DeclareStatement) statement);
+            case ASSIGN: {
+                AssignStatement assign = (AssignStatement) statement;
+                return assign(assign.targets, assign.value);
+            }
+            case DISPLAY:
+                return display((DisplayStatement) statement);
+            case SCAN:
+                return scan((ScanStatement) statement);
+            case IF:
+                return ifStatement((IfStatement) statement);
+            case WHILE:
+                return whileStatement((WhileStatement) statement);
+            default:
+                throw new UnsupportedOperationException("Unknown statement " + statement.type);
+        }
+    }
+
+    private Action declare(DeclareStatement statement) {
+        List<Action> actions = new ArrayList<>();
+        for (int i = 0; i < statement.variables.size(); i++) {
+            Variable variable = statement.variables.get(i);
+            int slot = variable.slot;
+            actions.add((frame, in, out) -> frame.clear(slot));
+            if (statement.initializers.get(i) != null) {
+                actions.add(assign(List.of(variable), statement.initializers.get(i)));
+            }
+        }
+        return sequence(actions);
+    }
+
+    // evaluates the value once and converts it to the data type of every target, as Interpreter.store does
+    private Action assign(List<Variable> targets, Expression value) {
+        int[] slots = new int[targets.size()];
+        boolean[] toInt = new boolean[targets.size()];
+        for (int i = 0; i < targets.size(); i++) {
+            slots[i] = targets.get(i).slot;
+            toInt[i] = targets.get(i).type == TokenType.INT;
+        }
+        int slot = slots[0];
+        switch (value.resultType) {
+            case BOOL: {
+                Predicate<Frame> result = bool(value);
+                if (slots.length == 1) {
+                    return (frame, in, out) -> frame.setBool(slot, result.test(frame));
+                }
+                return (frame, in, out) -> {
+                    boolean bool = result.test(frame);
+                    for (int target : slots) {
+                        frame.setBool(target, bool);
+                    }
+                };
+            }
+            case CHAR: {
+                ToIntFunction<Frame> result = character(value);
+                if (slots.length == 1) {
+                    return (frame, in, out) -> frame.setChar(slot, (char) result.applyAsInt(frame));
+                }
+                return (frame, in, out) -> {
+                    char c = (char) result.applyAsInt(frame);
+                    for (int target : slots) {
+                        frame.setChar(target, c);
+                    }
+                };
+            }
+            case INT: {
+                ToIntFunction<Frame> result = integer(value);
+                if (slots.length == 1 && toInt[0]) {
+                    return (frame, in, out) -> frame.setInt(slot, result.applyAsInt(frame));
+                } else if (slots.length == 1) {
+                    return (frame, in, out) -> frame.setFloat(slot, result.applyAsInt(frame));
+                }
+                return numbers(slots, toInt, frame -> result.applyAsInt(frame));
+            }
+            default: {
+                ToDoubleFunction<Frame> result = floating(value);
+                if (slots.length == 1 && toInt[0]) {
+                    return (frame, in, out) -> frame.setInt(slot, (int) result.applyAsDouble(frame));
+                } else if (slots.length == 1) {
+                    return (frame, in, out) -> frame.setFloat(slot, result.applyAsDouble(frame));
+                }
+                return numbers(slots, toInt, result);
+            }
+        }
+    }
+
+    private static Action numbers(int[] slots, boolean[] toInt, ToDoubleFunction<Frame> result) {
+        return (frame, in, out) -> {
+            double number = result.applyAsDouble(frame);
+            for (int i = 0; i < slots.length; i++) {
+                if (toInt[i]) {
+                    frame.setInt(slots[i], (int) number);
+                } else {
+                    frame.setFloat(slots[i], number);
+                }
+            }
+        };
+    }
+
+    // every part is printed as soon as it is evaluated; STRING parts next to each other are printed at once
+    private Action display(DisplayStatement statement) {
+        List<Action> actions = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        for (Expression part : statement.parts) {
+            if (part.resultType == TokenType.STRING) {
+                String value = part.tokens.get(0).getValue();
+                text.append(value.equals("$") ? System.lineSeparator() : value);
+                continue;
+            }
+            if (text.length() > 0) {
+                actions.add(print(text.toString()));
+                text.setLength(0);
+            }
+            Action printed = print(part);
+            Variable variable = part.variable();
+            if (variable == null) {
+                actions.add(printed);
+            } else {
+                int slot = variable.slot;
+                actions.add((frame, in, out) -> {
+                    if (frame.isInitialized(slot)) {
+                        printed.run(frame, in, out);
+                    } else {
+                        out.print("null");
+                    }
+                });
+            }
+        }
+        if (text.length() > 0) {
+            actions.add(print(text.toString()));
+        }
+        return actions.isEmpty() ? NOTHING : sequence(actions);
+    }
+
+    private static Action print(String text) {
+        return (frame, in, out) -> out.print(text);
+    }
+
+    // the text Interpreter.format makes of a part
+    private Action print(Expression part) {
+        switch (part.resultType) {
+            case BOOL: {
+                Predicate<Frame> value = bool(part);
+                return (frame, in, out) -> out.print(value.test(frame) ? "TRUE" : "FALSE");
+            }
+            case CHAR: {
+                ToIntFunction<Frame> value = character(part);
+                return (frame, in, out) -> out.print((char) value.applyAsInt(frame));
+            }
+            case FLOAT: {
+                ToDoubleFunction<Frame> value = floating(part);
+                return (frame, in, out) -> out.print(Float.toString((float) value.applyAsDouble(frame)));
+            }
+            default: {
+                ToIntFunction<Frame> value = integer(part);
+                return (frame, in, out) -> out.print(Integer.toString(value.applyAsInt(frame)));
+            }
+        }
+    }
+
+    private Action scan(ScanStatement statement) {
+        List<Action> actions = new ArrayList<>();
+        // a prompt printed before the SCAN has to be seen
+        actions.add((frame, in, out) -> out.flush());
+        for (Variable variable : statement.variables) {
+            int slot = variable.slot;
+            String name = variable.name;
+            switch (variable.type) {
+                case INT:
+                    actions.add((frame, in, out) -> {
+                        hasNext(in, name);
+                        try {
+                            frame.setInt(slot, in.nextInt());
+                        } catch (InvalidInputException e) {
+                            throw invalid("INT", e);
+                        }
+                    });
+                    break;
+                case FLOAT:
+                    actions.add((frame, in, out) -> {
+                        hasNext(in, name);
+                        try {
+                            frame.setFloat(slot, in.nextFloat());
+                        } catch (InvalidInputException e) {
+                            throw invalid("FLOAT", e);
+                        }
+                    });
+                    break;
+                case BOOL:
+                    actions.add((frame, in, out) -> {
+                        hasNext(in, name);
+                        try {
+                            frame.setBool(slot, in.nextBool());
+                        } catch (InvalidInputException e) {
+                            throw invalid("BOOL", e);
+                        }
+                    });
+                    break;
+                default:
+                    actions.add((frame, in, out) -> {
+                        hasNext(in, name);
+                        try {
+                            frame.setChar(slot, in.nextChar());
+                        } catch (InvalidInputException e) {
+                            throw invalid("CHAR", e);
+                        }
+                    });
+                    break;
+            }
+        }
+        return sequence(actions);
+    }
+
+    private static void hasNext(InputSource in, String variable) {
+        if (!in.hasNext()) {
+            throw error("(No input for " + variable + ")");
+        }
+    }
+
+    private static CodeException invalid(String type, InvalidInputException e) {
+        return error("(" + type + " value is invalid = " + e.getValue() + ")");
+    }
+
+    // the branches are chained from the ELSE up, each condition tested only when the ones before it were false
+    private Action ifStatement(IfStatement statement) {
+        Action otherwise = block(statement.elseBranch);
+        for (int i = statement.conditions.size() - 1; i >= 0; i--) {
+            Predicate<Frame> test = bool(statement.conditions.get(i));
+            Action then = block(statement.branches.get(i));
+            Action rest = otherwise;
+            otherwise = (frame, in, out) -> {
+                if (test.test(frame)) {
+                    then.run(frame, in, out);
+                } else {
+                    rest.run(frame, in, out);
+                }
+            };
+        }
+        return otherwise;
+    }
+
+    private Action whileStatement(WhileStatement statement) {
+        Predicate<Frame> test = bool(statement.condition);
+        Action body = block(statement.body);
+        return (frame, in, out) -> {
+            while (test.test(frame)) {
+                body.run(frame, in, out);
+            }
+        };
+    }
+
+    private ToIntFunction<Frame> integer(Expression expression) {
+        TokenNode tree = expression.tree;
+        if (tree == null) {
+            throw new UnsupportedOperationException("Not compiled: " + expression);
+        }
+        if (tree.type == TokenType.IDENTIFIER && !tree.isNegative()) {
+            // an INT variable already holds an INT
+            int slot = tree.slot;
+            String message = unset(tree.name);
+            return frame -> {
+                check(frame, slot, message);
+                return frame.getInt(slot);
+            };
+        }
+        if (!hasVariables(tree)) {
+            try {
+                int value = Calculator.toInt(Calculator.evaluateLong(tree, null));
+                return frame -> value;
+            } catch (ArithmeticException e) {
+                // reported when the expression is evaluated
+            }
+        }
+        ToLongFunction<Frame> value = integerTree(tree);
+        String text = expression.toString();
+        return frame -> {
+            try {
+                return Calculator.toInt(value.applyAsLong(frame));
+            } catch (ArithmeticException e) {
+                throw error(e.getMessage() + ": " + text);
+            }
+        };
+    }
+
+    private ToDoubleFunction<Frame> floating(Expression expression) {
+        TokenNode tree = expression.tree;
+        if (tree == null) {
+            throw new UnsupportedOperationException("Not compiled: " + expression);
+        }
+        if (!hasVariables(tree)) {
+            double value = Calculator.evaluate(tree, null);
+            return frame -> value;
+        }
+        return floatTree(tree);
+    }
+
+    private Predicate<Frame> bool(Expression expression) {
+        Variable variable = expression.variable();
+        if (variable != null) {
+            int slot = variable.slot;
+            String message = unset(variable.name);
+            return frame -> {
+                check(frame, slot, message);
+                return frame.getBool(slot);
+            };
+        }
+        if (expression.condition == null) {
+            throw new UnsupportedOperationException("Not compiled: " + expression);
+        }
+        Predicate<Frame> test = visit(expression.condition);
+        // all variables are checked before the condition is tested, the first one without a value is reported
+        Map<Integer, String> checked = new LinkedHashMap<>();
+        for (int i = 0; i < expression.tokens.size(); i++) {
+            Variable reference = expression.variableAt(i);
+            if (reference != null) {
+                checked.putIfAbsent(reference.slot, unset(reference.name));
+            }
+        }
+        if (checked.isEmpty()) {
+            return test;
+        }
+        int[] slots = checked.keySet().stream().mapToInt(Integer::intValue).toArray();
+        String[] messages = checked.values().toArray(new String[0]);
+        return frame -> {
+            for (int i = 0; i < slots.length; i++) {
+                check(frame, slots[i], messages[i]);
+            }
+            return test.test(frame);
+        };
+    }
+
+    private ToIntFunction<Frame> character(Expression expression) {
+        Variable variable = expression.variable();
+        if (variable == null) {
+            char value = expression.tokens.get(0).getValue().charAt(0);
+            return frame -> value;
+        }
+        int slot = variable.slot;
+        String message = unset(variable.name);
+        return frame -> {
+            check(frame, slot, message);
+            return frame.getChar(slot);
+        };
+    }
+
+    // the operations of Calculator.evaluateLong
+    private static ToLongFunction<Frame> integerTree(TokenNode node) {
+        ToLongFunction<Frame> value;
+        switch (node.type) {
+            case INT: {
+                long constant = node.integer;
+                value = frame -> constant;
+                break;
+            }
+            case IDENTIFIER: {
+                int slot = node.slot;
+                String message = unset(node.name);
+                value = frame -> {
+                    check(frame, slot, message);
+                    return frame.getInt(slot);
+                };
+                break;
+            }
+            case MULTIPLY: {
+                ToLongFunction<Frame> left = integerTree(node.operand1);
+                ToLongFunction<Frame> right = integerTree(node.operand2);
+                value = frame -> Calculator.multiply(left.applyAsLong(frame), right.applyAsLong(frame));
+                break;
+            }
+            case DIVIDE: {
+                ToLongFunction<Frame> left = integerTree(node.operand1);
+                ToLongFunction<Frame> right = integerTree(node.operand2);
+                value = frame -> Calculator.divide(left.applyAsLong(frame), right.applyAsLong(frame));
+                break;
+            }
+            case PLUS: {
+                ToLongFunction<Frame> left = integerTree(node.operand1);
+                ToLongFunction<Frame> right = integerTree(node.operand2);
+                value = frame -> Calculator.add(left.applyAsLong(frame), right.applyAsLong(frame));
+                break;
+            }
+            case MINUS: {
+                ToLongFunction<Frame> left = integerTree(node.operand1);
+                ToLongFunction<Frame> right = integerTree(node.operand2);
+                value = frame -> Calculator.add(left.applyAsLong(frame), Calculator.negate(right.applyAsLong(frame)));
+                break;
+            }
+            case MODULO: {
+                ToLongFunction<Frame> left = integerTree(node.operand1);
+                ToLongFunction<Frame> right = integerTree(node.operand2);
+                value = frame -> Calculator.modulo(left.applyAsLong(frame), right.applyAsLong(frame));
+                break;
+            }
+            default:
+                throw new UnsupportedOperationException("Unknown node " + node.type);
+        }
+        if (node.isNegative()) {
+            ToLongFunction<Frame> positive = value;
+            return frame -> Calculator.negate(positive.applyAsLong(frame));
+        }
+        return value;
+    }
+
+    // the operations of Calculator.evaluate
+    private static ToDoubleFunction<Frame> floatTree(TokenNode node) {
+        ToDoubleFunction<Frame> value;
+        switch (node.type) {
+            case INT: {
+                double constant = node.nodeValue;
+                value = frame -> constant;
+                break;
+            }
+            case IDENTIFIER: {
+                int slot = node.slot;
+                String message = unset(node.name);
+                if (node.valueType == TokenType.INT) {
+                    value = frame -> {
+                        check(frame, slot, message);
+                        return frame.getInt(slot);
+                    };
+                } else {
+                    value = frame -> {
+                        check(frame, slot, message);
+                        return frame.getFloat(slot);
+                    };
+                }
+                break;
+            }
+            case MULTIPLY: {
+                ToDoubleFunction<Frame> left = floatTree(node.operand1);
+                ToDoubleFunction<Frame> right = floatTree(node.operand2);
+                value = frame -> left.applyAsDouble(frame) * right.applyAsDouble(frame);
+                break;
+            }
+            case DIVIDE: {
+                ToDoubleFunction<Frame> left = floatTree(node.operand1);
+                ToDoubleFunction<Frame> right = floatTree(node.operand2);
+                value = frame -> left.applyAsDouble(frame) / right.applyAsDouble(frame);
+                break;
+            }
+            case PLUS: {
+                ToDoubleFunction<Frame> left = floatTree(node.operand1);
+                ToDoubleFunction<Frame> right = floatTree(node.operand2);
+                value = frame -> left.applyAsDouble(frame) + right.applyAsDouble(frame);
+                break;
+            }
+            case MINUS: {
+                ToDoubleFunction<Frame> left = floatTree(node.operand1);
+                ToDoubleFunction<Frame> right = floatTree(node.operand2);
+                value = frame -> left.applyAsDouble(frame) - right.applyAsDouble(frame);
+                break;
+            }
+            case MODULO: {
+                ToDoubleFunction<Frame> left = floatTree(node.operand1);
+                ToDoubleFunction<Frame> right = floatTree(node.operand2);
+                value = frame -> left.applyAsDouble(frame) % right.applyAsDouble(frame);
+                break;
+            }
+            default:
+                throw new UnsupportedOperationException("Unknown node " + node.type);
+        }
+        if (node.isNegative()) {
+            ToDoubleFunction<Frame> positive = value;
+            return frame -> -positive.applyAsDouble(frame);
+        }
+        return value;
+    }
+
+    private static boolean hasVariables(TokenNode node) {
+        if (node.type == TokenType.IDENTIFIER) {
+            return true;
+        }
+        return node.operand1 != null && (hasVariables(node.operand1) || hasVariables(node.operand2));
+    }
+
+    private Predicate<Frame> visit(Condition node) {
+        node.accept(this);
+        return condition;
+    }
+
+    private ToDoubleFunction<Frame> visit(Condition.Operand node) {
+        node.accept(this);
+        return operand;
+    }
+
+    // Condition.Visitor: the closure of the condition
+
+    public void constant(boolean value) {
+        condition = frame -> value;
+    }
+
+    public void variable(int slot) {
+        condition = frame -> frame.getBool(slot);
+    }
+
+    public void not(Condition operand) {
+        Predicate<Frame> test = visit(operand);
+        condition = frame -> !test.test(frame);
+    }
+
+    public void and(Condition left, Condition right) {
+        Predicate<Frame> first = visit(left);
+        Predicate<Frame> second = visit(right);
+        condition = frame -> first.test(frame) && second.test(frame);
+    }
+
+    public void or(Condition left, Condition right) {
+        Predicate<Frame> first = visit(left);
+        Predicate<Frame> second = visit(right);
+        condition = frame -> first.test(frame) || second.test(frame);
+    }
+
+    public void notEqual(Condition left, Condition right) {
+        Predicate<Frame> first = visit(left);
+        Predicate<Frame> second = visit(right);
+        condition = frame -> first.test(frame) != second.test(frame);
+    }
+
+    public void compare(String operator, Condition.Operand left, Condition.Operand right) {
+        ToDoubleFunction<Frame> first = visit(left);
+        ToDoubleFunction<Frame> second = visit(right);
+        switch (operator) {
+            case ">":
+                condition = frame -> first.applyAsDouble(frame) > second.applyAsDouble(frame);
+                break;
+            case "<":
+                condition = frame -> first.applyAsDouble(frame) < second.applyAsDouble(frame);
+                break;
+            case ">=":
+                condition = frame -> first.applyAsDouble(frame) >= second.applyAsDouble(frame);
+                break;
+            case "<=":
+                condition = frame -> first.applyAsDouble(frame) <= second.applyAsDouble(frame);
+                break;
+            case "==":
+                condition = frame -> first.applyAsDouble(frame) == second.applyAsDouble(frame);
+                break;
+            default:
+                condition = frame -> first.applyAsDouble(frame) != second.applyAsDouble(frame);
+                break;
+        }
+    }
+
+    // Condition.Operand.Visitor: the closure of the operand
+
+    public void constant(double value) {
+        operand = frame -> value;
+    }
+
+    public void intVariable(int slot) {
+        operand = frame -> frame.getInt(slot);
+    }
+
+    public void floatVariable(int slot) {
+        operand = frame -> frame.getFloat(slot);
+    }
+
+    public void arithmetic(char operator, Condition.Operand left, Condition.Operand right) {
+        ToDoubleFunction<Frame> first = visit(left);
+        ToDoubleFunction<Frame> second = visit(right);
+        switch (operator) {
+            case '+':
+                operand = frame -> first.applyAsDouble(frame) + second.applyAsDouble(frame);
+                break;
+            case '-':
+                operand = frame -> first.applyAsDouble(frame) - second.applyAsDouble(frame);
+                break;
+            case '*':
+                operand = frame -> first.applyAsDouble(frame) * second.applyAsDouble(frame);
+                break;
+            case '/':
+                operand = frame -> first.applyAsDouble(frame) / second.applyAsDouble(frame);
+                break;
+            default:
+                operand = frame -> first.applyAsDouble(frame) % second.applyAsDouble(frame);
+                break;
+        }
+    }
+
+    private static String unset(String name) {
+        return "Variable: " + name + " has no value";
+    }
+
+    private static void check(Frame frame, int slot, String message) {
+        if (!frame.isInitialized(slot)) {
+            throw error(message);
+        }
+    }
+
+    private static CodeException error(String message) {
+        return new CodeException("\nRuntime Error: " + message);
+    }
+}
@@ -0,0 +1,40 @@
+package closure;
+
+import interpreter.Frame;
+import interpreter.InputSource;
+import interpreter.OutputSink;
+import lexer.CodeException;
+
+/**
+ * A program compiled by {@link ClosureCompiler} to a tree of closures. The closures only hold what the program says,
+ * the values of a run are in the Frame it is given, so a ClosureProgram can be run any number of times, from any
+ * number of threads at the same time.
+ */
+public final class ClosureProgram {
+    private final Action body;
+    private final int variables;
+
+    ClosureProgram(Action body, int variables) {
+        this.body = body;
+        this.variables = variables;
+    }
+
+    /**
+     * Runs the program and prints "No Error", or the report of the runtime error that stopped it, as
+     * {@link interpreter.Interpreter#run} does. The output is flushed when the run ends.
+     *
+     * @return false if the program stopped on a runtime error
+     */
+    public boolean run(InputSource in, OutputSink out) {
+        try {
+            body.run(new Frame(variables), in, out);
+            out.print("\nNo Error" + System.lineSeparator());
+            return true;
+        } catch (CodeException e) {
+            out.print(e.getMessage() + System.lineSeparator());
+            return false;
+        } finally {
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package codegen;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes a class file with a constant pool, a list of interfaces and methods, and nothing else: no fields and no
+ * attributes besides Code. The class file version is 49 (Java 5), the last one that is verified without a
+ * StackMapTable, so the generated code needs no frames computed for its branch targets.
+ */
+final class ClassFile {
+    private static final int VERSION = 49;
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    // index of every constant already in the pool, by a key made of its tag and value
+    private final Map<String, Integer> constants = new HashMap<>();
+    private int poolSize = 1;
+
+    private final ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+    private final DataOutputStream methods = new DataOutputStream(methodBytes);
+    private int methodCount;
+
+    int utf8(String value) {
+        Integer index = constants.get("U" + value);
+        if (index != null) {
+            return index;
+        }
+        try {
+            pool.writeByte(1);
+            // throws UTFDataFormatException past 65535 bytes, which no class file can hold
+            pool.writeUTF(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return add("U" + value, 1);
+    }
+
+    int classRef(String internalName) {
+        return reference("C", 7, utf8(internalName), -1, internalName);
+    }
+
+    int string(String value) {
+        return reference("S", 8, utf8(value), -1, value);
+    }
+
+    int integer(int value) {
+        Integer index = constants.get("I" + value);
+        if (index != null) {
+            return index;
+        }
+        write(3, value);
+        return add("I" + value, 1);
+    }
+
+    int longValue(long value) {
+        Integer index = constants.get("J" + value);
+        if (index != null) {
+            return index;
+        }
+        write(5, (int) (value >>> 32));
+        writeInt((int) value);
+        // a long takes two entries of the pool
+        return add("J" + value, 2);
+    }
+
+    int doubleValue(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        Integer index = constants.get("D" + bits);
+        if (index != null) {
+            return index;
+        }
+        write(6, (int) (bits >>> 32));
+        writeInt((int) bits);
+        return add("D" + bits, 2);
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return member("M", 10, owner, name, descriptor);
+    }
+
+    int interfaceMethodRef(String owner, String name, String descriptor) {
+        return member("N", 11, owner, name, descriptor);
+    }
+
+    void method(int access, String name, String descriptor, Code code) {
+        try {
+            methods.writeShort(access);
+            methods.writeShort(utf8(name));
+            methods.writeShort(utf8(descriptor));
+            methods.writeShort(1);
+            methods.writeShort(utf8("Code"));
+            byte[] body = code.toBytes();
+            methods.writeInt(body.length);
+            methods.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        methodCount++;
+    }
+
+    byte[] toBytes(int access, String name, String superName, String... interfaces) {
+        int thisIndex = classRef(name);
+        int superIndex = classRef(superName);
+        int[] interfaceIndexes = new int[interfaces.length];
+        for (int i = 0; i < interfaces.length; i++) {
+            interfaceIndexes[i] = classRef(interfaces[i]);
+        }
+        if (poolSize > 0xFFFF) {
+            throw new IllegalStateException("Too many constants");
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(poolSize);
+            poolBytes.writeTo(out);
+            out.writeShort(access);
+            out.writeShort(thisIndex);
+            out.writeShort(superIndex);
+            out.writeShort(interfaceIndexes.length);
+            for (int index : interfaceIndexes) {
+                out.writeShort(index);
+            }
+            out.writeShort(0);
+            out.writeShort(methodCount);
+            methodBytes.writeTo(out);
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private int member(String kind, int tag, String owner, String name, String descriptor) {
+        String key = kind + owner + "." + name + descriptor;
+        Integer index = constants.get(key);
+        if (index != null) {
+            return index;
+        }
+        int ownerIndex = classRef(owner);
+        int nameAndType = reference("T", 12, utf8(name), utf8(descriptor), name + ":" + descriptor);
+        return reference(kind, tag, ownerIndex, nameAndType, owner + "." + name + descriptor);
+    }
+
+    // a constant made of one or two indexes of other constants; second is -1 when there is only one
+    private int reference(String kind, int tag, int first, int second, String value) {
+        Integer index = constants.get(kind + value);
+        if (index != null) {
+            return index;
+        }
+        try {
+            pool.writeByte(tag);
+            pool.writeShort(first);
+            if (second >= 0) {
+                pool.writeShort(second);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return add(kind + value, 1);
+    }
+
+    private void write(int tag, int value) {
+        try {
+            pool.writeByte(tag);
+            pool.writeInt(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeInt(int value) {
+        try {
+            pool.writeInt(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int add(String key, int entries) {
+        int index = poolSize;
+        constants.put(key, index);
+        poolSize += entries;
+        return index;
+    }
+}
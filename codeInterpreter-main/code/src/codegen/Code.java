@@ -0,0 +1,352 @@
+package codegen;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The bytecode of one method, with the constants it refers to added to a {@link ClassFile}. Branches go to
+ * {@link Label}s, which are resolved when the code is written out. The depth of the operand stack is followed
+ * instruction by instruction to find the max_stack of the method; after an unconditional jump the emitter sets the
+ * depth of the code that follows with {@link #setDepth}.
+ */
+final class Code {
+    static final int ICONST_M1 = 2;
+    static final int ICONST_0 = 3;
+    static final int ICONST_1 = 4;
+    static final int BIPUSH = 16;
+    static final int SIPUSH = 17;
+    static final int LDC = 18;
+    static final int LDC_W = 19;
+    static final int LDC2_W = 20;
+    static final int ILOAD = 21;
+    static final int DLOAD = 24;
+    static final int ALOAD = 25;
+    static final int ISTORE = 54;
+    static final int DSTORE = 57;
+    static final int ASTORE = 58;
+    static final int POP = 87;
+    static final int DUP = 89;
+    static final int DUP2 = 92;
+    static final int DADD = 99;
+    static final int ISUB = 100;
+    static final int DSUB = 103;
+    static final int DMUL = 107;
+    static final int DDIV = 111;
+    static final int DREM = 115;
+    static final int DNEG = 119;
+    static final int IXOR = 130;
+    static final int I2L = 133;
+    static final int I2D = 135;
+    static final int D2I = 142;
+    static final int D2F = 144;
+    static final int DCMPL = 151;
+    static final int DCMPG = 152;
+    static final int IFEQ = 153;
+    static final int IFNE = 154;
+    static final int IFLT = 155;
+    static final int IFGE = 156;
+    static final int IFGT = 157;
+    static final int IFLE = 158;
+    static final int GOTO = 167;
+    static final int IRETURN = 172;
+    static final int RETURN = 177;
+    static final int INVOKEVIRTUAL = 182;
+    static final int INVOKESPECIAL = 183;
+    static final int INVOKESTATIC = 184;
+    static final int INVOKEINTERFACE = 185;
+    static final int NEW = 187;
+    static final int ATHROW = 191;
+    private static final int WIDE = 196;
+
+    // the change of the stack depth, in slots, of every opcode that takes no operand or a local or a branch target
+    private static final int[] STACK_CHANGE = new int[256];
+
+    static {
+        Arrays.fill(STACK_CHANGE, Integer.MIN_VALUE);
+        for (int opcode = ICONST_M1; opcode <= ICONST_1; opcode++) {
+            STACK_CHANGE[opcode] = 1;
+        }
+        STACK_CHANGE[ILOAD] = 1;
+        STACK_CHANGE[DLOAD] = 2;
+        STACK_CHANGE[ALOAD] = 1;
+        STACK_CHANGE[ISTORE] = -1;
+        STACK_CHANGE[DSTORE] = -2;
+        STACK_CHANGE[ASTORE] = -1;
+        STACK_CHANGE[POP] = -1;
+        STACK_CHANGE[DUP] = 1;
+        STACK_CHANGE[DUP2] = 2;
+        STACK_CHANGE[ISUB] = -1;
+        STACK_CHANGE[IXOR] = -1;
+        for (int opcode : new int[] { DADD, DSUB, DMUL, DDIV, DREM }) {
+            STACK_CHANGE[opcode] = -2;
+        }
+        STACK_CHANGE[DNEG] = 0;
+        STACK_CHANGE[I2L] = 1;
+        STACK_CHANGE[I2D] = 1;
+        STACK_CHANGE[D2I] = -1;
+        STACK_CHANGE[D2F] = -1;
+        STACK_CHANGE[DCMPL] = -3;
+        STACK_CHANGE[DCMPG] = -3;
+        for (int opcode = IFEQ; opcode <= IFLE; opcode++) {
+            STACK_CHANGE[opcode] = -1;
+        }
+        STACK_CHANGE[GOTO] = 0;
+        STACK_CHANGE[IRETURN] = -1;
+        STACK_CHANGE[RETURN] = 0;
+        STACK_CHANGE[ATHROW] = -1;
+    }
+
+    /**
+     * A position in the code, possibly not emitted yet
+     */
+    static final class Label {
+        private int position = -1;
+    }
+
+    private final ClassFile classFile;
+    private byte[] bytes = new byte[256];
+    private int length;
+    private int depth;
+    private int maxDepth;
+    private int maxLocals;
+    // every branch: the position of the instruction, and its target
+    private final List<Integer> branches = new ArrayList<>();
+    private final List<Label> branchTargets = new ArrayList<>();
+    // every exception handler: start, end and handler labels and the index of the caught class
+    private final List<Label[]> handlers = new ArrayList<>();
+    private final List<Integer> handlerTypes = new ArrayList<>();
+
+    Code(ClassFile classFile, int maxLocals) {
+        this.classFile = classFile;
+        this.maxLocals = maxLocals;
+    }
+
+    int depth() {
+        return depth;
+    }
+
+    // the size of the bytecode so far
+    int length() {
+        return length;
+    }
+
+    void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    void op(int opcode) {
+        byte1(opcode);
+        stack(opcode);
+    }
+
+    void pushInt(int value) {
+        if (value >= -1 && value <= 5) {
+            byte1(ICONST_0 + value);
+        } else if (value == (byte) value) {
+            byte1(BIPUSH);
+            byte1(value);
+        } else if (value == (short) value) {
+            byte1(SIPUSH);
+            byte2(value);
+        } else {
+            constant(classFile.integer(value));
+            return;
+        }
+        grow(1);
+    }
+
+    void pushLong(long value) {
+        if (value == (short) value) {
+            // no constant for the small literals most expressions are made of
+            pushInt((int) value);
+            op(I2L);
+            return;
+        }
+        byte1(LDC2_W);
+        byte2(classFile.longValue(value));
+        grow(2);
+    }
+
+    void pushDouble(double value) {
+        byte1(LDC2_W);
+        byte2(classFile.doubleValue(value));
+        grow(2);
+    }
+
+    void pushString(String value) {
+        constant(classFile.string(value));
+    }
+
+    void load(int opcode, int local) {
+        local(opcode, local);
+        stack(opcode);
+    }
+
+    void store(int opcode, int local) {
+        local(opcode, local);
+        stack(opcode);
+    }
+
+    void invoke(int opcode, String owner, String name, String descriptor) {
+        int index = opcode == INVOKEINTERFACE
+                ? classFile.interfaceMethodRef(owner, name, descriptor)
+                : classFile.methodRef(owner, name, descriptor);
+        byte1(opcode);
+        byte2(index);
+        int arguments = argumentSlots(descriptor);
+        if (opcode == INVOKEINTERFACE) {
+            byte1(arguments + 1);
+            byte1(0);
+        }
+        grow(returnSlots(descriptor) - arguments - (opcode == INVOKESTATIC ? 0 : 1));
+    }
+
+    void newObject(String className) {
+        byte1(NEW);
+        byte2(classFile.classRef(className));
+        grow(1);
+    }
+
+    Label label() {
+        return new Label();
+    }
+
+    void mark(Label label) {
+        label.position = length;
+    }
+
+    void jump(int opcode, Label target) {
+        branches.add(length);
+        branchTargets.add(target);
+        byte1(opcode);
+        byte2(0);
+        stack(opcode);
+    }
+
+    /**
+     * Sends exceptions of the class thrown in [start, end) to handler, with only the exception on the stack
+     */
+    void handler(Label start, Label end, Label handler, String className) {
+        handlers.add(new Label[] { start, end, handler });
+        handlerTypes.add(classFile.classRef(className));
+    }
+
+    byte[] toBytes() {
+        if (length > 0xFFFF) {
+            throw new IllegalStateException("Method too large");
+        }
+        for (int i = 0; i < branches.size(); i++) {
+            int position = branches.get(i);
+            int offset = branchTargets.get(i).position - position;
+            if (branchTargets.get(i).position < 0 || offset != (short) offset) {
+                throw new IllegalStateException("Branch out of range");
+            }
+            bytes[position + 1] = (byte) (offset >> 8);
+            bytes[position + 2] = (byte) offset;
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(body);
+        try {
+            out.writeShort(maxDepth);
+            out.writeShort(maxLocals);
+            out.writeInt(length);
+            out.write(bytes, 0, length);
+            out.writeShort(handlers.size());
+            for (int i = 0; i < handlers.size(); i++) {
+                for (Label label : handlers.get(i)) {
+                    out.writeShort(label.position);
+                }
+                out.writeShort(handlerTypes.get(i));
+            }
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return body.toByteArray();
+    }
+
+    private void constant(int index) {
+        if (index <= 0xFF) {
+            byte1(LDC);
+            byte1(index);
+        } else {
+            byte1(LDC_W);
+            byte2(index);
+        }
+        grow(1);
+    }
+
+    private void local(int opcode, int local) {
+        int size = opcode == DLOAD || opcode == DSTORE ? 2 : 1;
+        maxLocals = Math.max(maxLocals, local + size);
+        if (local <= 0xFF) {
+            byte1(opcode);
+            byte1(local);
+        } else {
+            byte1(WIDE);
+            byte1(opcode);
+            byte2(local);
+        }
+    }
+
+    private void stack(int opcode) {
+        if (STACK_CHANGE[opcode] == Integer.MIN_VALUE) {
+            throw new IllegalArgumentException("Unsupported opcode " + opcode);
+        }
+        grow(STACK_CHANGE[opcode]);
+    }
+
+    private void grow(int slots) {
+        depth += slots;
+        maxDepth = Math.max(maxDepth, depth);
+    }
+
+    private void byte1(int value) {
+        if (length == bytes.length) {
+            bytes = Arrays.copyOf(bytes, length * 2);
+        }
+        bytes[length++] = (byte) value;
+    }
+
+    private void byte2(int value) {
+        byte1(value >> 8);
+        byte1(value);
+    }
+
+    // the stack slots taken by the arguments of a method descriptor
+    private static int argumentSlots(String descriptor) {
+        int slots = 0;
+        int i = 1;
+        while (descriptor.charAt(i) != ')') {
+            char c = descriptor.charAt(i);
+            if (c == 'J' || c == 'D') {
+                slots += 2;
+                i++;
+            } else if (c == 'L') {
+                slots++;
+                i = descriptor.indexOf(';', i) + 1;
+            } else if (c == '[') {
+                slots++;
+                while (descriptor.charAt(i) == '[') {
+                    i++;
+                }
+                i = descriptor.charAt(i) == 'L' ? descriptor.indexOf(';', i) + 1 : i + 1;
+            } else {
+                slots++;
+                i++;
+            }
+        }
+        return slots;
+    }
+
+    private static int returnSlots(String descriptor) {
+        char c = descriptor.charAt(descriptor.indexOf(')') + 1);
+        return c == 'V' ? 0 : c == 'J' || c == 'D' ? 2 : 1;
+    }
+}
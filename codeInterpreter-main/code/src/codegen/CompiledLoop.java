@@ -0,0 +1,19 @@
+package codegen;
+
+import interpreter.Frame;
+import interpreter.OutputSink;
+
+/**
+ * A WHILE loop of a {@link ast.BlockTable} compiled to JVM bytecode by {@link LoopCompiler}
+ */
+public interface CompiledLoop {
+
+    /**
+     * Runs the loop from its condition on. The variables of the loop are read from the frame when it starts and
+     * written back when it stops.
+     *
+     * @return the index of the table entry after the loop, or -1 - index when the entry at index has to be executed
+     *         by the interpreter: at the start if a variable of the loop has no value, or a statement that fails
+     */
+    int run(Frame frame, OutputSink out);
+}
@@ -0,0 +1,100 @@
+package codegen;
+
+import interpreter.InputSource;
+import interpreter.InvalidInputException;
+import interpreter.OutputSink;
+import lexer.CodeException;
+
+/**
+ * A whole program compiled to JVM bytecode by {@link ProgramCompiler}. A CompiledProgram holds no state of a run, so
+ * it can be run any number of times, from any number of threads at the same time.
+ */
+public abstract class CompiledProgram {
+
+    protected CompiledProgram() {
+    }
+
+    /**
+     * Runs the program and prints "No Error", or the report of the runtime error that stopped it, as
+     * {@link interpreter.Interpreter#run} does. The output is flushed when the run ends.
+     *
+     * @return false if the program stopped on a runtime error
+     */
+    public final boolean run(InputSource in, OutputSink out) {
+        try {
+            execute(in, out);
+            out.print("\nNo Error" + System.lineSeparator());
+            return true;
+        } catch (CodeException e) {
+            out.print(e.getMessage() + System.lineSeparator());
+            return false;
+        } finally {
+            out.flush();
+        }
+    }
+
+    /**
+     * The generated code of the program
+     *
+     * @throws CodeException on a runtime error
+     */
+    protected abstract void execute(InputSource in, OutputSink out);
+
+    // Called by the generated code, which throws the exception returned
+
+    static CodeException error(String message) {
+        return new CodeException("\nRuntime Error: " + message);
+    }
+
+    static CodeException error(ArithmeticException e, String expression) {
+        return error(e.getMessage() + ": " + expression);
+    }
+
+    // SCAN of one variable, with the errors of Interpreter.scanStatement
+
+    static int scanInt(InputSource in, String variable) {
+        hasNext(in, variable);
+        try {
+            return in.nextInt();
+        } catch (InvalidInputException e) {
+            throw invalid("INT", e);
+        }
+    }
+
+    static double scanFloat(InputSource in, String variable) {
+        hasNext(in, variable);
+        try {
+            return in.nextFloat();
+        } catch (InvalidInputException e) {
+            throw invalid("FLOAT", e);
+        }
+    }
+
+    static boolean scanBool(InputSource in, String variable) {
+        hasNext(in, variable);
+        try {
+            return in.nextBool();
+        } catch (InvalidInputException e) {
+            throw invalid("BOOL", e);
+        }
+    }
+
+    static char scanChar(InputSource in, String variable) {
+        hasNext(in, variable);
+        try {
+            return in.nextChar();
+        } catch (InvalidInputException e) {
+            throw invalid("CHAR", e);
+        }
+    }
+
+    private static void hasNext(InputSource in, String variable) {
+        if (!in.hasNext()) {
+            throw error("(No input for " + variable + ")");
+        }
+    }
+
+    private static CodeException invalid(String type, InvalidInputException e) {
+        return error("(" + type + " value is invalid = " + e.getValue() + ")");
+    }
+}
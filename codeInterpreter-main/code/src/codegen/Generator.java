@@ -0,0 +1,453 @@
+package codegen;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ast.Expression;
+import ast.Variable;
+import lexer.TokenNode;
+import lexer.TokenType;
+import parser.Calculator;
+import parser.Condition;
+
+/**
+ * Generates the bytecode of the statements and expressions of a {@link ast.BlockTable} into one method, in which
+ * every variable is a local of the JVM. Expressions are computed as the Interpreter computes them: INT arithmetic in
+ * longs through the helpers of {@link parser.Calculator}, FLOAT arithmetic and comparisons in doubles.
+ * <p>
+ * Subclasses give the variables their locals, decide what a read of a variable that has no value and a failed INT
+ * expression do, and write the class.
+ */
+abstract class Generator implements Condition.Visitor, Condition.Operand.Visitor {
+    static final String INPUT_SOURCE = "interpreter/InputSource";
+    static final String OUTPUT_SINK = "interpreter/OutputSink";
+    static final String CALCULATOR = "parser/Calculator";
+    static final String STRING_BUILDER = "java/lang/StringBuilder";
+    static final String APPEND_STRING = "(Ljava/lang/String;)Ljava/lang/StringBuilder;";
+
+    final ClassFile classFile = new ClassFile();
+    // the local every variable is kept in, by slot
+    final Map<Integer, Integer> locals = new HashMap<>();
+    Code code;
+
+    /**
+     * Emits what happens when the variable is read without a value; nothing when it is known to have one
+     */
+    abstract void checkInitialized(int slot, String name);
+
+    /**
+     * Called for the code of every INT expression, from start to end, which throws an ArithmeticException on an
+     * overflow or a division by zero
+     */
+    abstract void integerArithmetic(Code.Label start, Code.Label end, Expression expression);
+
+    void constructor(String superName) {
+        Code constructor = new Code(classFile, 1);
+        constructor.load(Code.ALOAD, 0);
+        constructor.invoke(Code.INVOKESPECIAL, superName, "<init>", "()V");
+        constructor.op(Code.RETURN);
+        classFile.method(ClassFile.ACC_PUBLIC, "<init>", "()V", constructor);
+    }
+
+    static boolean isCompiled(Expression expression, boolean display) {
+        switch (expression.resultType) {
+            case BOOL:
+                return expression.variable() != null || expression.condition != null;
+            case CHAR:
+                return expression.tokens.size() == 1;
+            case STRING:
+                return display;
+            default:
+                return expression.tree != null;
+        }
+    }
+
+    // the Interpreter stores a BOOL or CHAR only in a variable of its type, and a number in an INT or a FLOAT
+    static boolean isAssignable(Variable target, TokenType valueType) {
+        switch (valueType) {
+            case BOOL:
+            case CHAR:
+                return target.type == valueType;
+            case INT:
+            case FLOAT:
+                return target.type == TokenType.INT || target.type == TokenType.FLOAT;
+            default:
+                return false;
+        }
+    }
+
+    // evaluates the value once and converts it to the data type of every target
+    void assign(List<Variable> targets, Expression value) {
+        switch (value.resultType) {
+            case BOOL:
+            case CHAR:
+                if (value.resultType == TokenType.BOOL) {
+                    bool(value);
+                } else {
+                    character(value);
+                }
+                for (int i = 0; i < targets.size(); i++) {
+                    if (i < targets.size() - 1) {
+                        code.op(Code.DUP);
+                    }
+                    store(targets.get(i));
+                }
+                break;
+            case INT:
+                integer(value);
+                for (int i = 0; i < targets.size(); i++) {
+                    if (i < targets.size() - 1) {
+                        code.op(Code.DUP);
+                    }
+                    if (targets.get(i).type == TokenType.FLOAT) {
+                        code.op(Code.I2D);
+                    }
+                    store(targets.get(i));
+                }
+                break;
+            default:
+                floating(value);
+                for (int i = 0; i < targets.size(); i++) {
+                    if (i < targets.size() - 1) {
+                        code.op(Code.DUP2);
+                    }
+                    if (targets.get(i).type == TokenType.INT) {
+                        code.op(Code.D2I);
+                    }
+                    store(targets.get(i));
+                }
+                break;
+        }
+    }
+
+    // the text DISPLAY prints for a part, as a String
+    void format(Expression part) {
+        String text = constantText(part);
+        if (text != null) {
+            code.pushString(text);
+            return;
+        }
+        switch (part.resultType) {
+            case STRING: {
+                String value = part.tokens.get(0).getValue();
+                code.pushString(value.equals("$") ? System.lineSeparator() : value);
+                break;
+            }
+            case BOOL: {
+                Code.Label isFalse = code.label();
+                Code.Label end = code.label();
+                bool(part);
+                code.jump(Code.IFEQ, isFalse);
+                code.pushString("TRUE");
+                code.jump(Code.GOTO, end);
+                code.setDepth(code.depth() - 1);
+                code.mark(isFalse);
+                code.pushString("FALSE");
+                code.mark(end);
+                break;
+            }
+            case CHAR:
+                character(part);
+                code.invoke(Code.INVOKESTATIC, "java/lang/String", "valueOf", "(C)Ljava/lang/String;");
+                break;
+            case FLOAT:
+                floating(part);
+                code.op(Code.D2F);
+                code.invoke(Code.INVOKESTATIC, "java/lang/Float", "toString", "(F)Ljava/lang/String;");
+                break;
+            default:
+                integer(part);
+                code.invoke(Code.INVOKESTATIC, "java/lang/Integer", "toString", "(I)Ljava/lang/String;");
+                break;
+        }
+    }
+
+    /**
+     * Returns the text DISPLAY prints for a part without variables, computed now, or null if the part has a variable
+     * or fails, which is left to the code to report
+     */
+    static String constantText(Expression part) {
+        for (int i = 0; i < part.tokens.size(); i++) {
+            if (part.variableAt(i) != null) {
+                return null;
+            }
+        }
+        switch (part.resultType) {
+            case STRING: {
+                String value = part.tokens.get(0).getValue();
+                return value.equals("$") ? System.lineSeparator() : value;
+            }
+            case BOOL:
+                return part.condition.test(null) ? "TRUE" : "FALSE";
+            case CHAR:
+                return String.valueOf(part.tokens.get(0).getValue().charAt(0));
+            case FLOAT:
+                return Float.toString((float) Calculator.evaluate(part.tree, null));
+            default:
+                try {
+                    return Integer.toString(Calculator.toInt(Calculator.evaluateLong(part.tree, null)));
+                } catch (ArithmeticException e) {
+                    return null;
+                }
+        }
+    }
+
+    void store(Variable variable) {
+        code.store(variable.type == TokenType.FLOAT ? Code.DSTORE : Code.ISTORE, locals.get(variable.slot));
+    }
+
+    void load(Variable variable) {
+        code.load(variable.type == TokenType.FLOAT ? Code.DLOAD : Code.ILOAD, locals.get(variable.slot));
+    }
+
+    // an INT expression, as an int
+    void integer(Expression expression) {
+        Code.Label start = code.label();
+        Code.Label end = code.label();
+        code.mark(start);
+        longValue(expression.tree);
+        code.invoke(Code.INVOKESTATIC, CALCULATOR, "toInt", "(J)I");
+        code.mark(end);
+        integerArithmetic(start, end, expression);
+    }
+
+    // a FLOAT expression, as a double
+    void floating(Expression expression) {
+        doubleValue(expression.tree);
+    }
+
+    // a BOOL expression, as 1 or 0; the variables of a condition are checked in the order of the source first
+    void bool(Expression expression) {
+        Variable variable = expression.variable();
+        if (variable != null) {
+            checkInitialized(variable.slot, variable.name);
+            load(variable);
+            return;
+        }
+        for (int i = 0; i < expression.tokens.size(); i++) {
+            Variable reference = expression.variableAt(i);
+            if (reference != null) {
+                checkInitialized(reference.slot, reference.name);
+            }
+        }
+        expression.condition.accept(this);
+    }
+
+    void character(Expression expression) {
+        Variable variable = expression.variable();
+        if (variable != null) {
+            checkInitialized(variable.slot, variable.name);
+            load(variable);
+        } else {
+            code.pushInt(expression.tokens.get(0).getValue().charAt(0));
+        }
+    }
+
+    // the operations of Calculator.evaluateLong
+    private void longValue(TokenNode node) {
+        switch (node.type) {
+            case INT:
+                code.pushLong(node.integer);
+                break;
+            case IDENTIFIER:
+                checkInitialized(node.slot, node.name);
+                code.load(Code.ILOAD, locals.get(node.slot));
+                code.op(Code.I2L);
+                break;
+            case MULTIPLY:
+                longOperation(node, "multiply");
+                break;
+            case DIVIDE:
+                longOperation(node, "divide");
+                break;
+            case PLUS:
+                longOperation(node, "add");
+                break;
+            case MINUS:
+                longValue(node.operand1);
+                longValue(node.operand2);
+                code.invoke(Code.INVOKESTATIC, CALCULATOR, "negate", "(J)J");
+                code.invoke(Code.INVOKESTATIC, CALCULATOR, "add", "(JJ)J");
+                break;
+            case MODULO:
+                longOperation(node, "modulo");
+                break;
+            default:
+                throw new IllegalStateException("Unknown node " + node.type);
+        }
+        if (node.isNegative()) {
+            code.invoke(Code.INVOKESTATIC, CALCULATOR, "negate", "(J)J");
+        }
+    }
+
+    private void longOperation(TokenNode node, String name) {
+        longValue(node.operand1);
+        longValue(node.operand2);
+        code.invoke(Code.INVOKESTATIC, CALCULATOR, name, "(JJ)J");
+    }
+
+    // the operations of Calculator.evaluate
+    private void doubleValue(TokenNode node) {
+        switch (node.type) {
+            case INT:
+                code.pushDouble(node.nodeValue);
+                break;
+            case IDENTIFIER:
+                checkInitialized(node.slot, node.name);
+                if (node.valueType == TokenType.INT) {
+                    code.load(Code.ILOAD, locals.get(node.slot));
+                    code.op(Code.I2D);
+                } else {
+                    code.load(Code.DLOAD, locals.get(node.slot));
+                }
+                break;
+            case MULTIPLY:
+                doubleOperation(node, Code.DMUL);
+                break;
+            case DIVIDE:
+                doubleOperation(node, Code.DDIV);
+                break;
+            case PLUS:
+                doubleOperation(node, Code.DADD);
+                break;
+            case MINUS:
+                doubleOperation(node, Code.DSUB);
+                break;
+            case MODULO:
+                doubleOperation(node, Code.DREM);
+                break;
+            default:
+                throw new IllegalStateException("Unknown node " + node.type);
+        }
+        if (node.isNegative()) {
+            code.op(Code.DNEG);
+        }
+    }
+
+    private void doubleOperation(TokenNode node, int opcode) {
+        doubleValue(node.operand1);
+        doubleValue(node.operand2);
+        code.op(opcode);
+    }
+
+    // Condition.Visitor: the value of the condition as 1 or 0
+
+    public void constant(boolean value) {
+        code.pushInt(value ? 1 : 0);
+    }
+
+    public void variable(int slot) {
+        code.load(Code.ILOAD, locals.get(slot));
+    }
+
+    public void not(Condition operand) {
+        operand.accept(this);
+        code.pushInt(1);
+        code.op(Code.IXOR);
+    }
+
+    public void and(Condition left, Condition right) {
+        shortCircuit(left, right, Code.IFEQ, 0);
+    }
+
+    public void or(Condition left, Condition right) {
+        shortCircuit(left, right, Code.IFNE, 1);
+    }
+
+    // right is only evaluated when left does not jump to the result
+    private void shortCircuit(Condition left, Condition right, int jump, int result) {
+        Code.Label decided = code.label();
+        Code.Label end = code.label();
+        left.accept(this);
+        code.jump(jump, decided);
+        right.accept(this);
+        code.jump(Code.GOTO, end);
+        code.setDepth(code.depth() - 1);
+        code.mark(decided);
+        code.pushInt(result);
+        code.mark(end);
+    }
+
+    public void notEqual(Condition left, Condition right) {
+        left.accept(this);
+        right.accept(this);
+        code.op(Code.IXOR);
+    }
+
+    public void compare(String operator, Condition.Operand left, Condition.Operand right) {
+        left.accept(this);
+        right.accept(this);
+        // the comparison and the jump taken when it is false, NaN included, as javac compiles it
+        switch (operator) {
+            case ">":
+                compare(Code.DCMPL, Code.IFLE);
+                break;
+            case "<":
+                compare(Code.DCMPG, Code.IFGE);
+                break;
+            case ">=":
+                compare(Code.DCMPL, Code.IFLT);
+                break;
+            case "<=":
+                compare(Code.DCMPG, Code.IFGT);
+                break;
+            case "==":
+                compare(Code.DCMPL, Code.IFNE);
+                break;
+            default:
+                compare(Code.DCMPL, Code.IFEQ);
+                break;
+        }
+    }
+
+    private void compare(int comparison, int jumpIfFalse) {
+        Code.Label isFalse = code.label();
+        Code.Label end = code.label();
+        code.op(comparison);
+        code.jump(jumpIfFalse, isFalse);
+        code.pushInt(1);
+        code.jump(Code.GOTO, end);
+        code.setDepth(code.depth() - 1);
+        code.mark(isFalse);
+        code.pushInt(0);
+        code.mark(end);
+    }
+
+    // Condition.Operand.Visitor: the value of the operand as a double
+
+    public void constant(double value) {
+        code.pushDouble(value);
+    }
+
+    public void intVariable(int slot) {
+        code.load(Code.ILOAD, locals.get(slot));
+        code.op(Code.I2D);
+    }
+
+    public void floatVariable(int slot) {
+        code.load(Code.DLOAD, locals.get(slot));
+    }
+
+    public void arithmetic(char operator, Condition.Operand left, Condition.Operand right) {
+        left.accept(this);
+        right.accept(this);
+        switch (operator) {
+            case '+':
+                code.op(Code.DADD);
+                break;
+            case '-':
+                code.op(Code.DSUB);
+                break;
+            case '*':
+                code.op(Code.DMUL);
+                break;
+            case '/':
+                code.op(Code.DDIV);
+                break;
+            default:
+                code.op(Code.DREM);
+                break;
+        }
+    }
+}
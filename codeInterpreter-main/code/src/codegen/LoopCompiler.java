@@ -0,0 +1,330 @@
+package codegen;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import ast.AssignStatement;
+import ast.BlockTable;
+import ast.DisplayStatement;
+import ast.Expression;
+import ast.Statement;
+import ast.StatementType;
+import ast.Variable;
+import lexer.TokenType;
+
+/**
+ * Compiles a hot WHILE loop of a {@link BlockTable} into a hidden class, defined with
+ * {@link MethodHandles.Lookup#defineHiddenClass}. The entries of the loop, from its condition to the jump back to it,
+ * become one method in which every variable of the loop is a local of the JVM, so the JIT compiler sees the loop as
+ * ordinary Java code.
+ * <p>
+ * The generated code does what the Interpreter does, down to the text of DISPLAY, with two exceptions it leaves to
+ * the Interpreter: a variable of the loop that has no value when the loop is entered, and an INT expression that
+ * overflows or divides by zero. It then writes the variables back and returns the entry the Interpreter goes on
+ * from, which reports the error as it always has.
+ * <p>
+ * Loops with a DECLARE or a SCAN, or with a BOOL expression that was not compiled to a
+ * {@link parser.Condition}, are not compiled. They keep running in the Interpreter.
+ */
+public final class LoopCompiler {
+    // iterations a loop runs in the Interpreter before it is compiled
+    public static final int THRESHOLD = Integer.getInteger("codegen.threshold", 1000);
+    // -Dcodegen.loops=false runs every loop in the Interpreter
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("codegen.loops", "true"));
+
+    private static final String CLASS_NAME = "codegen/Loop";
+    private static final String FRAME = "interpreter/Frame";
+
+    // locals of the generated method: this, the frame, the output, the entry to go on from after a failed statement,
+    // then the variables
+    private static final int FRAME_LOCAL = 1;
+    private static final int OUT_LOCAL = 2;
+    private static final int ENTRY_LOCAL = 3;
+    private static final int FIRST_VARIABLE_LOCAL = 4;
+
+    // the loops of every table compiled so far; the Programs share them between Interpreters
+    private static final Map<BlockTable, CompiledLoop[]> loops = Collections.synchronizedMap(new WeakHashMap<>());
+    // stands for a loop that cannot be compiled
+    private static final CompiledLoop NOT_COMPILABLE = (frame, out) -> {
+        throw new IllegalStateException("Not compiled");
+    };
+
+    private LoopCompiler() {
+    }
+
+    /**
+     * Returns the compiled loop whose condition is the BRANCH at index branch of the table, compiling it the first
+     * time it is asked for
+     *
+     * @return the compiled loop, or null if the loop is not compiled
+     */
+    public static CompiledLoop compile(BlockTable table, int branch) {
+        CompiledLoop[] compiled = loops.computeIfAbsent(table, t -> new CompiledLoop[t.size()]);
+        synchronized (compiled) {
+            if (compiled[branch] == null) {
+                CompiledLoop loop = null;
+                try {
+                    byte[] bytes = new LoopGenerator(table, branch).generate();
+                    if (bytes != null) {
+                        loop = define(bytes);
+                    }
+                } catch (RuntimeException | LinkageError | ReflectiveOperationException e) {
+                    // code the JVM does not take, or a method too large for a class file
+                }
+                compiled[branch] = loop != null ? loop : NOT_COMPILABLE;
+            }
+            return compiled[branch] == NOT_COMPILABLE ? null : compiled[branch];
+        }
+    }
+
+    private static CompiledLoop define(byte[] bytes) throws ReflectiveOperationException {
+        MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+        return (CompiledLoop) lookup.lookupClass().getDeclaredConstructor().newInstance();
+    }
+
+    /**
+     * Generates the class of one loop
+     */
+    private static final class LoopGenerator extends Generator {
+        private final BlockTable table;
+        private final int branch;
+        private final int exit;
+        // every variable of the loop by slot
+        private final Map<Integer, Variable> variables = new LinkedHashMap<>();
+        // set when the statement being generated can fail
+        private boolean integerArithmetic;
+
+        LoopGenerator(BlockTable table, int branch) {
+            this.table = table;
+            this.branch = branch;
+            this.exit = table.target(branch);
+        }
+
+        /**
+         * Returns the class file, or null if the loop has a statement or expression that is not compiled
+         */
+        byte[] generate() {
+            for (int index = branch; index < exit; index++) {
+                if (!collect(index)) {
+                    return null;
+                }
+            }
+            int local = FIRST_VARIABLE_LOCAL;
+            for (Variable variable : variables.values()) {
+                locals.put(variable.slot, local);
+                local += variable.type == TokenType.FLOAT ? 2 : 1;
+            }
+
+            constructor("java/lang/Object");
+            code = new Code(classFile, local);
+            generateRun();
+            classFile.method(ClassFile.ACC_PUBLIC, "run", "(L" + FRAME + ";L" + OUTPUT_SINK + ";)I", code);
+            return classFile.toBytes(ClassFile.ACC_PUBLIC | ClassFile.ACC_FINAL | ClassFile.ACC_SUPER, CLASS_NAME,
+                    "java/lang/Object", "codegen/CompiledLoop");
+        }
+
+        // every variable of the loop has a value when it is entered
+        void checkInitialized(int slot, String name) {
+        }
+
+        void integerArithmetic(Code.Label start, Code.Label end, Expression expression) {
+            integerArithmetic = true;
+        }
+
+        // checks that the entry at index can be compiled and adds the variables it uses
+        private boolean collect(int index) {
+            if (table.op(index) != BlockTable.STATEMENT) {
+                int target = table.target(index);
+                if (target < branch || target > exit) {
+                    return false;
+                }
+                return table.op(index) == BlockTable.JUMP || isCompiled(table.condition(index));
+            }
+            Statement statement = table.statement(index);
+            switch (statement.type) {
+                case ASSIGN: {
+                    AssignStatement assign = (AssignStatement) statement;
+                    for (Variable target : assign.targets) {
+                        if (!isAssignable(target, assign.value.resultType)) {
+                            return false;
+                        }
+                        variables.put(target.slot, target);
+                    }
+                    return isCompiled(assign.value);
+                }
+                case DISPLAY:
+                    for (Expression part : ((DisplayStatement) statement).parts) {
+                        if (!isCompiled(part, true)) {
+                            return false;
+                        }
+                        addVariables(part);
+                    }
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        private boolean isCompiled(Expression expression) {
+            addVariables(expression);
+            return isCompiled(expression, false);
+        }
+
+        private void addVariables(Expression expression) {
+            for (int i = 0; i < expression.tokens.size(); i++) {
+                Variable variable = expression.variableAt(i);
+                if (variable != null) {
+                    variables.put(variable.slot, variable);
+                }
+            }
+        }
+
+        private void generateRun() {
+            Code.Label notReady = code.label();
+            for (Variable variable : variables.values()) {
+                code.load(Code.ALOAD, FRAME_LOCAL);
+                code.pushInt(variable.slot);
+                code.invoke(Code.INVOKEVIRTUAL, FRAME, "isInitialized", "(I)Z");
+                code.jump(Code.IFEQ, notReady);
+            }
+            for (Variable variable : variables.values()) {
+                code.load(Code.ALOAD, FRAME_LOCAL);
+                code.pushInt(variable.slot);
+                switch (variable.type) {
+                    case INT:
+                        code.invoke(Code.INVOKEVIRTUAL, FRAME, "getInt", "(I)I");
+                        break;
+                    case FLOAT:
+                        code.invoke(Code.INVOKEVIRTUAL, FRAME, "getFloat", "(I)D");
+                        break;
+                    case BOOL:
+                        code.invoke(Code.INVOKEVIRTUAL, FRAME, "getBool", "(I)Z");
+                        break;
+                    default:
+                        code.invoke(Code.INVOKEVIRTUAL, FRAME, "getChar", "(I)C");
+                        break;
+                }
+                store(variable);
+            }
+
+            Code.Label[] entries = new Code.Label[exit - branch + 1];
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = code.label();
+            }
+            Code.Label failed = code.label();
+            int[] failing = new int[exit - branch];
+            Code.Label[][] ranges = new Code.Label[exit - branch][];
+
+            for (int index = branch; index < exit; index++) {
+                code.setDepth(0);
+                code.mark(entries[index - branch]);
+                switch (table.op(index)) {
+                    case BlockTable.STATEMENT: {
+                        Code.Label start = code.label();
+                        Code.Label end = code.label();
+                        integerArithmetic = false;
+                        code.mark(start);
+                        statement(table.statement(index));
+                        code.mark(end);
+                        if (integerArithmetic) {
+                            ranges[index - branch] = new Code.Label[] { start, end };
+                            failing[index - branch] = index;
+                        }
+                        break;
+                    }
+                    case BlockTable.BRANCH:
+                        bool(table.condition(index));
+                        code.jump(Code.IFEQ, entries[table.target(index) - branch]);
+                        break;
+                    default:
+                        code.jump(Code.GOTO, entries[table.target(index) - branch]);
+                        break;
+                }
+            }
+
+            code.setDepth(0);
+            code.mark(entries[exit - branch]);
+            writeBack();
+            code.pushInt(exit);
+            code.op(Code.IRETURN);
+
+            // a failed statement goes on in the Interpreter, which reports the error
+            for (int i = 0; i < ranges.length; i++) {
+                if (ranges[i] != null) {
+                    Code.Label handler = code.label();
+                    code.setDepth(1);
+                    code.mark(handler);
+                    code.handler(ranges[i][0], ranges[i][1], handler, "java/lang/ArithmeticException");
+                    code.op(Code.POP);
+                    code.pushInt(failing[i]);
+                    code.store(Code.ISTORE, ENTRY_LOCAL);
+                    code.jump(Code.GOTO, failed);
+                }
+            }
+            code.setDepth(0);
+            code.mark(failed);
+            writeBack();
+            code.pushInt(-1);
+            code.load(Code.ILOAD, ENTRY_LOCAL);
+            code.op(Code.ISUB);
+            code.op(Code.IRETURN);
+
+            // nothing was changed yet, the Interpreter runs the loop from its condition
+            code.setDepth(0);
+            code.mark(notReady);
+            code.pushInt(-1 - branch);
+            code.op(Code.IRETURN);
+        }
+
+        private void writeBack() {
+            for (Variable variable : variables.values()) {
+                code.load(Code.ALOAD, FRAME_LOCAL);
+                code.pushInt(variable.slot);
+                switch (variable.type) {
+                    case INT:
+                        code.load(Code.ILOAD, locals.get(variable.slot));
+                        code.invoke(Code.INVOKEVIRTUAL, FRAME, "setInt", "(II)V");
+                        break;
+                    case FLOAT:
+                        code.load(Code.DLOAD, locals.get(variable.slot));
+                        code.invoke(Code.INVOKEVIRTUAL, FRAME, "setFloat", "(ID)V");
+                        break;
+                    case BOOL:
+                        code.load(Code.ILOAD, locals.get(variable.slot));
+                        code.invoke(Code.INVOKEVIRTUAL, FRAME, "setBool", "(IZ)V");
+                        break;
+                    default:
+                        code.load(Code.ILOAD, locals.get(variable.slot));
+                        code.invoke(Code.INVOKEVIRTUAL, FRAME, "setChar", "(IC)V");
+                        break;
+                }
+            }
+        }
+
+        private void statement(Statement statement) {
+            if (statement.type == StatementType.ASSIGN) {
+                AssignStatement assign = (AssignStatement) statement;
+                assign(assign.targets, assign.value);
+            } else {
+                display((DisplayStatement) statement);
+            }
+        }
+
+        // the whole text is built before it is printed, so a part that fails prints nothing
+        private void display(DisplayStatement statement) {
+            code.load(Code.ALOAD, OUT_LOCAL);
+            code.newObject(STRING_BUILDER);
+            code.op(Code.DUP);
+            code.invoke(Code.INVOKESPECIAL, STRING_BUILDER, "<init>", "()V");
+            for (Expression part : statement.parts) {
+                format(part);
+                code.invoke(Code.INVOKEVIRTUAL, STRING_BUILDER, "append", APPEND_STRING);
+            }
+            code.invoke(Code.INVOKEVIRTUAL, STRING_BUILDER, "toString", "()Ljava/lang/String;");
+            code.invoke(Code.INVOKEINTERFACE, OUTPUT_SINK, "print", "(Ljava/lang/String;)V");
+        }
+    }
+}
@@ -0,0 +1,503 @@
+package codegen;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ast.AssignStatement;
+import ast.BlockTable;
+import ast.DeclareStatement;
+import ast.DisplayStatement;
+import ast.Expression;
+import ast.Program;
+import ast.ScanStatement;
+import ast.Statement;
+import ast.Variable;
+import lexer.TokenType;
+
+/**
+ * Compiles a whole {@link Program} ahead of time into a hidden class, defined with
+ * {@link MethodHandles.Lookup#defineHiddenClass}. The {@link BlockTable} is cut between its top-level statements into
+ * parts, each a static method in which the variables it uses are locals of the JVM, next to a flag telling whether
+ * the variable has a value, and IF and WHILE are plain jumps. The parts hand the variables on through a
+ * {@link interpreter.Frame}.
+ * <p>
+ * A part is kept small enough for HotSpot to compile it, unless it is a single IF or WHILE.
+ * <p>
+ * The generated code reports the same runtime errors, with the same output before them, as the Interpreter. A program
+ * with an expression that is only evaluated on its tokens is not compiled.
+ * <p>
+ * The hidden class is not kept alive by its class loader: it is unloaded with the last reference to the
+ * CompiledProgram, so compiling programs over and over does not fill the metaspace.
+ */
+public final class ProgramCompiler {
+    private static final String CLASS_NAME = "codegen/Program";
+    private static final String COMPILED_PROGRAM = "codegen/CompiledProgram";
+    private static final String CODE_EXCEPTION = "lexer/CodeException";
+    private static final String FRAME = "interpreter/Frame";
+    private static final String PART = "(L" + FRAME + ";L" + Generator.INPUT_SOURCE + ";L" + Generator.OUTPUT_SINK
+            + ";)V";
+    // the largest part in bytes of bytecode, unless it is a single IF or WHILE: HotSpot does not compile a method over
+    // 8000 bytes, and C1 runs out of registers on generated methods of half that size
+    private static final int PART_SIZE = 2000;
+
+    // locals of a part: the frame, the input, the output, then the variables
+    private static final int FRAME_LOCAL = 0;
+    private static final int IN_LOCAL = 1;
+    private static final int OUT_LOCAL = 2;
+    private static final int FIRST_VARIABLE_LOCAL = 3;
+
+    private ProgramCompiler() {
+    }
+
+    /**
+     * Returns the compiled program, or null if the program is not compiled
+     */
+    public static CompiledProgram compile(Program program) {
+        try {
+            byte[] bytes = new ProgramGenerator(program).generate();
+            if (bytes == null) {
+                return null;
+            }
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return (CompiledProgram) lookup.lookupClass().getDeclaredConstructor().newInstance();
+        } catch (RuntimeException | LinkageError | ReflectiveOperationException e) {
+            // code the JVM does not take, or a method too large for a class file
+            return null;
+        }
+    }
+
+    /**
+     * Generates the class of one program
+     */
+    private static final class ProgramGenerator extends Generator {
+        private final Program program;
+        private final BlockTable table;
+        // the names of the methods of the parts, in the order they run
+        private final List<String> parts = new ArrayList<>();
+
+        // of the part being generated: every variable it uses by slot, the ones it stores, and the local of the flag
+        // of every variable, 0 until the variable is given a value
+        private final Map<Integer, Variable> variables = new LinkedHashMap<>();
+        private final Set<Integer> stored = new HashSet<>();
+        private final Map<Integer, Integer> flags = new HashMap<>();
+        // every INT expression of the part: the start and end of its code
+        private final List<Code.Label[]> ranges = new ArrayList<>();
+        private final List<Expression> rangeExpressions = new ArrayList<>();
+
+        ProgramGenerator(Program program) {
+            this.program = program;
+            this.table = program.blocks;
+        }
+
+        /**
+         * Returns the class file, or null if the program has a statement or expression that is not compiled
+         */
+        byte[] generate() {
+            for (int index = 0; index < table.size(); index++) {
+                if (!isCompiled(index)) {
+                    return null;
+                }
+            }
+            constructor(COMPILED_PROGRAM);
+            generateParts(regions());
+            generateExecute();
+            return classFile.toBytes(ClassFile.ACC_PUBLIC | ClassFile.ACC_FINAL | ClassFile.ACC_SUPER, CLASS_NAME,
+                    COMPILED_PROGRAM);
+        }
+
+        // stops the run with the error of Interpreter.checkInitialized
+        void checkInitialized(int slot, String name) {
+            Code.Label initialized = code.label();
+            int depth = code.depth();
+            code.load(Code.ILOAD, flags.get(slot));
+            code.jump(Code.IFNE, initialized);
+            code.pushString("Variable: " + name + " has no value");
+            code.invoke(Code.INVOKESTATIC, COMPILED_PROGRAM, "error", "(Ljava/lang/String;)L" + CODE_EXCEPTION + ";");
+            code.op(Code.ATHROW);
+            code.setDepth(depth);
+            code.mark(initialized);
+        }
+
+        void integerArithmetic(Code.Label start, Code.Label end, Expression expression) {
+            ranges.add(new Code.Label[] { start, end });
+            rangeExpressions.add(expression);
+        }
+
+        @Override
+        void store(Variable variable) {
+            super.store(variable);
+            code.pushInt(1);
+            code.store(Code.ISTORE, flags.get(variable.slot));
+        }
+
+        private boolean isCompiled(int index) {
+            if (table.op(index) == BlockTable.BRANCH) {
+                return isCompiled(table.condition(index), false);
+            }
+            if (table.op(index) == BlockTable.JUMP) {
+                return true;
+            }
+            Statement statement = table.statement(index);
+            switch (statement.type) {
+                case DECLARE: {
+                    DeclareStatement declare = (DeclareStatement) statement;
+                    for (int i = 0; i < declare.variables.size(); i++) {
+                        Expression initializer = declare.initializers.get(i);
+                        if (initializer != null && (!isAssignable(declare.variables.get(i), initializer.resultType)
+                                || !isCompiled(initializer, false))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+                case ASSIGN: {
+                    AssignStatement assign = (AssignStatement) statement;
+                    for (Variable target : assign.targets) {
+                        if (!isAssignable(target, assign.value.resultType)) {
+                            return false;
+                        }
+                    }
+                    return isCompiled(assign.value, false);
+                }
+                case DISPLAY:
+                    for (Expression part : ((DisplayStatement) statement).parts) {
+                        if (!isCompiled(part, true)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                default:
+                    return true;
+            }
+        }
+
+        // the start of every top-level statement of the table, and its end: no jump leaves it
+        private List<int[]> regions() {
+            List<int[]> regions = new ArrayList<>();
+            int index = 0;
+            while (index < table.size()) {
+                int end = index + 1;
+                for (int i = index; i < end; i++) {
+                    if (table.op(i) != BlockTable.STATEMENT) {
+                        end = Math.max(end, table.target(i));
+                    }
+                }
+                regions.add(new int[] { index, end });
+                index = end;
+            }
+            return regions;
+        }
+
+        // a part of all the regions, or of each half of them when it is too large to be compiled by HotSpot
+        private void generateParts(List<int[]> regions) {
+            if (regions.isEmpty()) {
+                return;
+            }
+            generatePart(regions.get(0)[0], regions.get(regions.size() - 1)[1]);
+            if (code.length() > PART_SIZE && regions.size() > 1) {
+                int half = regions.size() / 2;
+                generateParts(regions.subList(0, half));
+                generateParts(regions.subList(half, regions.size()));
+                return;
+            }
+            String name = "part" + parts.size();
+            classFile.method(ClassFile.ACC_PRIVATE | ClassFile.ACC_STATIC, name, PART, code);
+            parts.add(name);
+        }
+
+        // the Frame of the run, handed to every part
+        private void generateExecute() {
+            code = new Code(classFile, 4);
+            code.newObject(FRAME);
+            code.op(Code.DUP);
+            code.pushInt(program.variables.size());
+            code.invoke(Code.INVOKESPECIAL, FRAME, "<init>", "(I)V");
+            code.store(Code.ASTORE, 3);
+            for (String part : parts) {
+                code.load(Code.ALOAD, 3);
+                code.load(Code.ALOAD, 1);
+                code.load(Code.ALOAD, 2);
+                code.invoke(Code.INVOKESTATIC, CLASS_NAME, part, PART);
+            }
+            code.op(Code.RETURN);
+            classFile.method(ClassFile.ACC_PUBLIC, "execute", "(L" + INPUT_SOURCE + ";L" + OUTPUT_SINK + ";)V", code);
+        }
+
+        private void generatePart(int start, int end) {
+            variables.clear();
+            stored.clear();
+            for (int index = start; index < end; index++) {
+                collect(index);
+            }
+            locals.clear();
+            flags.clear();
+            int local = FIRST_VARIABLE_LOCAL;
+            for (Variable variable : variables.values()) {
+                locals.put(variable.slot, local);
+                local += variable.type == TokenType.FLOAT ? 2 : 1;
+                flags.put(variable.slot, local++);
+            }
+            ranges.clear();
+            rangeExpressions.clear();
+
+            code = new Code(classFile, local);
+            for (Variable variable : variables.values()) {
+                code.load(Code.ALOAD, FRAME_LOCAL);
+                code.pushInt(variable.slot);
+                switch (variable.type) {
+                    case INT:
+                        code.invoke(Code.INVOKEVIRTUAL, FRAME, "getInt", "(I)I");
+                        break;
+                    case FLOAT:
+                        code.invoke(Code.INVOKEVIRTUAL, FRAME, "getFloat", "(I)D");
+                        break;
+                    case BOOL:
+                        code.invoke(Code.INVOKEVIRTUAL, FRAME, "getBool", "(I)Z");
+                        break;
+                    default:
+                        code.invoke(Code.INVOKEVIRTUAL, FRAME, "getChar", "(I)C");
+                        break;
+                }
+                super.store(variable);
+                code.load(Code.ALOAD, FRAME_LOCAL);
+                code.pushInt(variable.slot);
+                code.invoke(Code.INVOKEVIRTUAL, FRAME, "isInitialized", "(I)Z");
+                code.store(Code.ISTORE, flags.get(variable.slot));
+            }
+
+            Code.Label[] entries = new Code.Label[end - start + 1];
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = code.label();
+            }
+            for (int index = start; index < end; index++) {
+                code.setDepth(0);
+                code.mark(entries[index - start]);
+                switch (table.op(index)) {
+                    case BlockTable.STATEMENT:
+                        statement(table.statement(index));
+                        break;
+                    case BlockTable.BRANCH:
+                        bool(table.condition(index));
+                        code.jump(Code.IFEQ, entries[table.target(index) - start]);
+                        break;
+                    default:
+                        code.jump(Code.GOTO, entries[table.target(index) - start]);
+                        break;
+                }
+            }
+            code.setDepth(0);
+            code.mark(entries[end - start]);
+            writeBack();
+            code.op(Code.RETURN);
+
+            // an INT expression that fails stops the run with the error of Interpreter.calculateInt
+            for (int i = 0; i < ranges.size(); i++) {
+                Code.Label handler = code.label();
+                code.setDepth(1);
+                code.mark(handler);
+                code.handler(ranges.get(i)[0], ranges.get(i)[1], handler, "java/lang/ArithmeticException");
+                code.pushString(rangeExpressions.get(i).toString());
+                code.invoke(Code.INVOKESTATIC, COMPILED_PROGRAM, "error",
+                        "(Ljava/lang/ArithmeticException;Ljava/lang/String;)L" + CODE_EXCEPTION + ";");
+                code.op(Code.ATHROW);
+            }
+        }
+
+        // adds the variables the entry at index uses, and the ones it stores
+        private void collect(int index) {
+            if (table.op(index) == BlockTable.BRANCH) {
+                addVariables(table.condition(index));
+                return;
+            }
+            if (table.op(index) == BlockTable.JUMP) {
+                return;
+            }
+            Statement statement = table.statement(index);
+            switch (statement.type) {
+                case DECLARE: {
+                    DeclareStatement declare = (DeclareStatement) statement;
+                    for (int i = 0; i < declare.variables.size(); i++) {
+                        addStored(declare.variables.get(i));
+                        if (declare.initializers.get(i) != null) {
+                            addVariables(declare.initializers.get(i));
+                        }
+                    }
+                    break;
+                }
+                case ASSIGN: {
+                    AssignStatement assign = (AssignStatement) statement;
+                    for (Variable target : assign.targets) {
+                        addStored(target);
+                    }
+                    addVariables(assign.value);
+                    break;
+                }
+                case DISPLAY:
+                    for (Expression part : ((DisplayStatement) statement).parts) {
+                        addVariables(part);
+                    }
+                    break;
+                default:
+                    for (Variable variable : ((ScanStatement) statement).variables) {
+                        addStored(variable);
+                    }
+                    break;
+            }
+        }
+
+        private void addVariables(Expression expression) {
+            for (int i = 0; i < expression.tokens.size(); i++) {
+                Variable variable = expression.variableAt(i);
+                if (variable != null) {
+                    variables.put(variable.slot, variable);
+                }
+            }
+        }
+
+        private void addStored(Variable variable) {
+            variables.put(variable.slot, variable);
+            stored.add(variable.slot);
+        }
+
+        // the variables the part stored go back to the frame, with the clearing of a DECLARE
+        private void writeBack() {
+            for (Variable variable : variables.values()) {
+                if (!stored.contains(variable.slot)) {
+                    continue;
+                }
+                Code.Label cleared = code.label();
+                Code.Label next = code.label();
+                code.load(Code.ALOAD, FRAME_LOCAL);
+                code.pushInt(variable.slot);
+                code.load(Code.ILOAD, flags.get(variable.slot));
+                code.jump(Code.IFEQ, cleared);
+                load(variable);
+                switch (variable.type) {
+                    case INT:
+                        code.invoke(Code.INVOKEVIRTUAL, FRAME, "setInt", "(II)V");
+                        break;
+                    case FLOAT:
+                        code.invoke(Code.INVOKEVIRTUAL, FRAME, "setFloat", "(ID)V");
+                        break;
+                    case BOOL:
+                        code.invoke(Code.INVOKEVIRTUAL, FRAME, "setBool", "(IZ)V");
+                        break;
+                    default:
+                        code.invoke(Code.INVOKEVIRTUAL, FRAME, "setChar", "(IC)V");
+                        break;
+                }
+                code.jump(Code.GOTO, next);
+                code.setDepth(2);
+                code.mark(cleared);
+                code.invoke(Code.INVOKEVIRTUAL, FRAME, "clear", "(I)V");
+                code.mark(next);
+            }
+        }
+
+        private void statement(Statement statement) {
+            switch (statement.type) {
+                case DECLARE:
+                    declare((DeclareStatement) statement);
+                    break;
+                case ASSIGN: {
+                    AssignStatement assign = (AssignStatement) statement;
+                    assign(assign.targets, assign.value);
+                    break;
+                }
+                case DISPLAY:
+                    display((DisplayStatement) statement);
+                    break;
+                default:
+                    scan((ScanStatement) statement);
+                    break;
+            }
+        }
+
+        private void declare(DeclareStatement statement) {
+            for (int i = 0; i < statement.variables.size(); i++) {
+                Variable variable = statement.variables.get(i);
+                Expression initializer = statement.initializers.get(i);
+                code.pushInt(0);
+                code.store(Code.ISTORE, flags.get(variable.slot));
+                if (initializer != null) {
+                    assign(List.of(variable), initializer);
+                }
+            }
+        }
+
+        // every part is printed as soon as it is evaluated, so the parts before one that fails are printed; the
+        // parts without variables next to each other are printed at once
+        private void display(DisplayStatement statement) {
+            StringBuilder constants = new StringBuilder();
+            for (Expression part : statement.parts) {
+                String text = constantText(part);
+                if (text != null) {
+                    constants.append(text);
+                    continue;
+                }
+                print(constants);
+                code.load(Code.ALOAD, OUT_LOCAL);
+                Variable variable = part.variable();
+                if (variable == null) {
+                    format(part);
+                } else {
+                    // a variable without a value is printed as null
+                    Code.Label isNull = code.label();
+                    Code.Label end = code.label();
+                    code.load(Code.ILOAD, flags.get(variable.slot));
+                    code.jump(Code.IFEQ, isNull);
+                    format(part);
+                    code.jump(Code.GOTO, end);
+                    code.setDepth(code.depth() - 1);
+                    code.mark(isNull);
+                    code.pushString("null");
+                    code.mark(end);
+                }
+                code.invoke(Code.INVOKEINTERFACE, OUTPUT_SINK, "print", "(Ljava/lang/String;)V");
+            }
+            print(constants);
+        }
+
+        // prints the text, if any, and empties it
+        private void print(StringBuilder text) {
+            if (text.length() > 0) {
+                code.load(Code.ALOAD, OUT_LOCAL);
+                code.pushString(text.toString());
+                code.invoke(Code.INVOKEINTERFACE, OUTPUT_SINK, "print", "(Ljava/lang/String;)V");
+                text.setLength(0);
+            }
+        }
+
+        private void scan(ScanStatement statement) {
+            // a prompt printed before the SCAN has to be seen
+            code.load(Code.ALOAD, OUT_LOCAL);
+            code.invoke(Code.INVOKEINTERFACE, OUTPUT_SINK, "flush", "()V");
+            String descriptor = "(L" + INPUT_SOURCE + ";Ljava/lang/String;)";
+            for (Variable variable : statement.variables) {
+                code.load(Code.ALOAD, IN_LOCAL);
+                code.pushString(variable.name);
+                switch (variable.type) {
+                    case INT:
+                        code.invoke(Code.INVOKESTATIC, COMPILED_PROGRAM, "scanInt", descriptor + "I");
+                        break;
+                    case FLOAT:
+                        code.invoke(Code.INVOKESTATIC, COMPILED_PROGRAM, "scanFloat", descriptor + "D");
+                        break;
+                    case BOOL:
+                        code.invoke(Code.INVOKESTATIC, COMPILED_PROGRAM, "scanBool", descriptor + "Z");
+                        break;
+                    default:
+                        code.invoke(Code.INVOKESTATIC, COMPILED_PROGRAM, "scanChar", descriptor + "C");
+                        break;
+                }
+                store(variable);
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package interpreter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills char buffers on the interpreter thread and hands every full buffer to a background thread that writes it
+ * out, so the program does not wait for the output device. At most a fixed number of buffers wait to be written;
+ * when they are all taken, printing blocks until the writer catches up.
+ * <p>
+ * Whatever the writer throws is kept and thrown again to the interpreter thread by the next print that hands over a
+ * buffer, flush or close; the writer goes on taking buffers without writing them, so none of those ever waits for it.
+ */
+public class AsyncSink implements OutputSink {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 14;
+    public static final int DEFAULT_QUEUE_SIZE = 8;
+    // how often a wait for the writer thread checks that it is still running
+    private static final long POLL_MILLIS = 50;
+
+    private final Writer writer;
+    private final int bufferSize;
+    private final BlockingQueue<Chunk> pending;
+    // buffers already written, ready to be filled again
+    private final BlockingQueue<Chunk> free;
+    private final Thread thread;
+    private Chunk current;
+    private volatile Throwable failure;
+    // set when the writer thread ends, after failure
+    private volatile boolean stopped;
+    private boolean closed;
+
+    public AsyncSink(OutputStream out) {
+        this(new OutputStreamWriter(out, Charset.defaultCharset()), DEFAULT_BUFFER_SIZE, DEFAULT_QUEUE_SIZE);
+    }
+
+    public AsyncSink(Writer writer, int bufferSize, int queueSize) {
+        if (bufferSize < 1 || queueSize < 1) {
+            throw new IllegalArgumentException("Buffer and queue sizes must be positive");
+        }
+        this.writer = writer;
+        this.bufferSize = bufferSize;
+        this.pending = new ArrayBlockingQueue<>(queueSize);
+        this.free = new ArrayBlockingQueue<>(queueSize + 1);
+        this.current = new Chunk(new char[bufferSize]);
+        this.thread = new Thread(this::write, "output-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public void print(String text) {
+        int offset = 0;
+        while (offset < text.length()) {
+            if (current.length == current.chars.length) {
+                send();
+            }
+            int length = Math.min(text.length() - offset, current.chars.length - current.length);
+            text.getChars(offset, offset + length, current.chars, current.length);
+            current.length += length;
+            offset += length;
+        }
+    }
+
+    public void print(char c) {
+        if (current.length == current.chars.length) {
+            send();
+        }
+        current.chars[current.length++] = c;
+    }
+
+    /**
+     * Waits until everything printed so far is written and flushed by the writer thread
+     */
+    public void flush() {
+        checkOpen();
+        if (current.length > 0) {
+            send();
+        }
+        Chunk marker = new Chunk(null);
+        put(marker);
+        try {
+            while (!marker.done.await(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (stopped) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        checkFailure();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            // the writer thread is ended even when the flush failed
+            closed = true;
+            if (offer(Chunk.END)) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    // queues the current buffer and continues with a free one
+    private void send() {
+        checkOpen();
+        checkFailure();
+        put(current);
+        Chunk next = free.poll();
+        current = next != null ? next : new Chunk(new char[bufferSize]);
+    }
+
+    private void put(Chunk chunk) {
+        if (!offer(chunk)) {
+            checkFailure();
+        }
+    }
+
+    // queues a chunk for the writer, returns false if the writer thread has ended
+    private boolean offer(Chunk chunk) {
+        try {
+            while (!pending.offer(chunk, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (stopped) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the output writer", e);
+        }
+    }
+
+    private void write() {
+        try {
+            while (true) {
+                Chunk chunk = pending.take();
+                if (chunk == Chunk.END) {
+                    return;
+                }
+                if (chunk.chars == null) {
+                    flushWriter();
+                    chunk.done.countDown();
+                    continue;
+                }
+                if (failure == null) {
+                    try {
+                        writer.write(chunk.chars, 0, chunk.length);
+                    } catch (Throwable e) {
+                        failure = e;
+                    }
+                }
+                chunk.length = 0;
+                free.offer(chunk);
+            }
+        } catch (Throwable e) {
+            if (failure == null) {
+                failure = e instanceof InterruptedException
+                        ? new IllegalStateException("The output writer was interrupted", e) : e;
+            }
+        } finally {
+            stopped = true;
+            // a flush waiting for a marker that is no longer written is released
+            for (Chunk chunk = pending.poll(); chunk != null; chunk = pending.poll()) {
+                if (chunk.done != null) {
+                    chunk.done.countDown();
+                }
+            }
+        }
+    }
+
+    private void flushWriter() {
+        if (failure == null) {
+            try {
+                writer.flush();
+            } catch (Throwable e) {
+                failure = e;
+            }
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Output sink is closed");
+        }
+    }
+
+    private void checkFailure() {
+        Throwable failure = this.failure;
+        if (failure instanceof IOException) {
+            throw new OutputException((IOException) failure);
+        }
+        if (failure != null) {
+            throw new IllegalStateException("The output writer failed", failure);
+        }
+    }
+
+    // a buffer and how much of it is filled; a chunk without chars asks the writer to flush
+    private static class Chunk {
+        static final Chunk END = new Chunk(null);
+
+        final char[] chars;
+        final CountDownLatch done;
+        int length;
+
+        Chunk(char[] chars) {
+            this.chars = chars;
+            this.done = chars == null ? new CountDownLatch(1) : null;
+        }
+    }
+}
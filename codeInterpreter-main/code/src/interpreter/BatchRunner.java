@@ -0,0 +1,166 @@
+package interpreter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import ast.Program;
+import lexer.CodeException;
+import lexer.Lexer;
+import lexer.TokenWindow;
+import parser.SyntaxAnalyzer;
+
+/**
+ * Runs many CODE programs in one JVM on a work-stealing pool. Every program is compiled and run on its own, with
+ * its own output buffer; the outputs are printed in the order of the programs, each as soon as the programs before
+ * it are done, followed by a summary of throughput, latency and failures.
+ * <p>
+ * A program reads its SCAN input from the file next to it with the extension ".in", if there is one.
+ */
+public class BatchRunner {
+    public static final String PROGRAM_EXTENSION = ".code";
+    public static final String INPUT_EXTENSION = ".in";
+
+    private final int parallelism;
+
+    public BatchRunner(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns the programs of a directory (its ".code" files, sorted by name) or of a manifest file listing one
+     * program per line, relative to the manifest. Blank lines and lines starting with '#' are skipped.
+     */
+    public static List<Path> listPrograms(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> files = Files.list(path)) {
+                return files.filter(file -> file.toString().endsWith(PROGRAM_EXTENSION) && Files.isRegularFile(file))
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+        }
+        Path directory = path.toAbsolutePath().getParent();
+        List<Path> programs = new ArrayList<>();
+        for (String line : Files.readAllLines(path)) {
+            line = line.strip();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                programs.add(directory.resolve(line));
+            }
+        }
+        return programs;
+    }
+
+    /**
+     * Runs the programs and prints their outputs and the summary to out. Every run has a pool of its own, shut down
+     * when it ends, so a BatchRunner can run any number of batches.
+     *
+     * @return the number of programs that failed
+     */
+    public int run(List<Path> programs, OutputSink out) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long[] latencies = new long[programs.size()];
+        int failures = 0;
+        long startTime = System.nanoTime();
+        try {
+            List<ForkJoinTask<Result>> tasks = new ArrayList<>();
+            for (Path program : programs) {
+                tasks.add(pool.submit(() -> runProgram(program)));
+            }
+
+            for (int i = 0; i < tasks.size(); i++) {
+                Result result = tasks.get(i).join();
+                out.print("==> " + result.program + (result.failed ? " (failed)" : "") + " <=="
+                        + System.lineSeparator());
+                out.print(result.output);
+                out.flush();
+                latencies[i] = result.nanos;
+                if (result.failed) {
+                    failures++;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - startTime;
+
+        Arrays.sort(latencies);
+        out.print(String.format("%nPrograms: %d, failures: %d, threads: %d%n", programs.size(), failures,
+                parallelism));
+        out.print(String.format("Time: %.1f ms, throughput: %.1f scripts/sec%n", elapsed / 1e6,
+                programs.size() / Math.max(elapsed / 1e9, 1e-9)));
+        out.print(String.format("Latency p50: %.3f ms, p99: %.3f ms%n", percentile(latencies, 50) / 1e6,
+                percentile(latencies, 99) / 1e6));
+        out.flush();
+        return failures;
+    }
+
+    private static Result runProgram(Path program) {
+        MemorySink out = new MemorySink();
+        long startTime = System.nanoTime();
+        boolean failed;
+        try (InputStream in = input(program)) {
+            Program compiled = new SyntaxAnalyzer(new TokenWindow(Lexer.fromFile(program))).parse();
+            failed = !new Interpreter(compiled, new ByteInput(in), out).run();
+        } catch (CodeException e) {
+            out.print(e.getMessage() + System.lineSeparator());
+            failed = true;
+        } catch (NoSuchFileException e) {
+            out.print("File not found: " + e.getMessage() + System.lineSeparator());
+            failed = true;
+        } catch (IOException | UncheckedIOException e) {
+            out.print("Error reading file: " + e.getMessage() + System.lineSeparator());
+            failed = true;
+        } catch (RuntimeException e) {
+            out.print("Internal error: " + e + System.lineSeparator());
+            failed = true;
+        }
+        long nanos = System.nanoTime() - startTime;
+        return new Result(program, out.toString(), failed, nanos);
+    }
+
+    private static InputStream input(Path program) throws IOException {
+        String name = program.getFileName().toString();
+        if (name.endsWith(PROGRAM_EXTENSION)) {
+            name = name.substring(0, name.length() - PROGRAM_EXTENSION.length());
+        }
+        Path input = program.resolveSibling(name + INPUT_EXTENSION);
+        return Files.isRegularFile(input) ? Files.newInputStream(input) : new ByteArrayInputStream(new byte[0]);
+    }
+
+    // nearest-rank percentile of sorted values
+    private static long percentile(long[] sorted, int percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    private static class Result {
+        final Path program;
+        final String output;
+        final boolean failed;
+        final long nanos;
+
+        Result(Path program, String output, boolean failed, long nanos) {
+            this.program = program;
+            this.output = output;
+            this.failed = failed;
+            this.nanos = nanos;
+        }
+    }
+}
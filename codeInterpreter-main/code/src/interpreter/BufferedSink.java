@@ -0,0 +1,69 @@
+package interpreter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Collects the output in one large char buffer and writes it out only when the buffer is full or the sink is
+ * flushed, instead of going through a locked, often flushing PrintStream for every piece of a DISPLAY.
+ */
+public class BufferedSink implements OutputSink {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private final Writer writer;
+    private final char[] buffer;
+    private int count;
+
+    public BufferedSink(OutputStream out) {
+        this(new OutputStreamWriter(out, Charset.defaultCharset()), DEFAULT_CAPACITY);
+    }
+
+    public BufferedSink(Writer writer, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Buffer capacity must be positive: " + capacity);
+        }
+        this.writer = writer;
+        this.buffer = new char[capacity];
+    }
+
+    public void print(String text) {
+        int offset = 0;
+        while (offset < text.length()) {
+            if (count == buffer.length) {
+                writeBuffer();
+            }
+            int length = Math.min(text.length() - offset, buffer.length - count);
+            text.getChars(offset, offset + length, buffer, count);
+            count += length;
+            offset += length;
+        }
+    }
+
+    public void print(char c) {
+        if (count == buffer.length) {
+            writeBuffer();
+        }
+        buffer[count++] = c;
+    }
+
+    public void flush() {
+        writeBuffer();
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new OutputException(e);
+        }
+    }
+
+    private void writeBuffer() {
+        try {
+            writer.write(buffer, 0, count);
+            count = 0;
+        } catch (IOException e) {
+            throw new OutputException(e);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package interpreter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Reads SCAN values from a byte stream through its own buffer and parses INT, FLOAT, BOOL and CHAR values straight
+ * from the bytes, without creating a String for every value as java.util.Scanner does. Spaces and tabs around a
+ * value are ignored.
+ * <p>
+ * A CHAR can be a comma: when nothing but blanks comes before the comma that ends a CHAR value, the comma is the
+ * value, and a separator right after it is skipped. SCAN: c, d reads ',' and 'x' from ",, x" and from ", x".
+ */
+public class ByteInput implements InputSource {
+    private static final int BUFFER_SIZE = 1 << 16;
+    // powers of ten that are exact doubles, for the fast FLOAT path
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final InputStream in;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean eof;
+    // after a '\r', a '\n' is part of the same line break
+    private boolean skipLineFeed;
+
+    // bytes of the current value
+    private byte[] field = new byte[64];
+    private int fieldLength;
+    // the ',' or line break that ended the current value, 0 at the end of the input
+    private byte separator;
+
+    public ByteInput(InputStream in) {
+        this.in = in;
+        this.buffer = new byte[BUFFER_SIZE];
+    }
+
+    public static ByteInput of(String input) {
+        return new ByteInput(new ByteArrayInputStream(input.getBytes(Charset.defaultCharset())));
+    }
+
+    public static ByteInput fromFile(Path path) throws IOException {
+        return new ByteInput(Files.newInputStream(path));
+    }
+
+    public boolean hasNext() {
+        if (skipLineFeed && fill() && buffer[position] == '\n') {
+            position++;
+        }
+        skipLineFeed = false;
+        return fill();
+    }
+
+    public int nextInt() {
+        readField();
+        int start = trimStart();
+        int end = trimEnd(start);
+        int i = start;
+        boolean negative = false;
+        if (i < end && (field[i] == '-' || field[i] == '+')) {
+            negative = field[i] == '-';
+            i++;
+        }
+        if (i == end) {
+            throw invalid();
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = field[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalid();
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw invalid();
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw invalid();
+        }
+        return (int) value;
+    }
+
+    public double nextFloat() {
+        readField();
+        int start = trimStart();
+        int end = trimEnd(start);
+        int i = start;
+        boolean negative = false;
+        if (i < end && (field[i] == '-' || field[i] == '+')) {
+            negative = field[i] == '-';
+            i++;
+        }
+        // plain decimals of up to 15 digits are exact as mantissa / 10^fraction digits
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            byte b = field[i];
+            if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (b >= '0' && b <= '9' && digits < 15) {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else {
+                break;
+            }
+        }
+        if (i == end && digits > 0) {
+            double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+            return negative ? -value : value;
+        }
+        // exponents, long literals and the rest of the Java syntax
+        try {
+            return Double.parseDouble(fieldString());
+        } catch (NumberFormatException e) {
+            throw invalid();
+        }
+    }
+
+    public boolean nextBool() {
+        readField();
+        int start = trimStart();
+        int end = trimEnd(start);
+        if (matches("TRUE", start, end)) {
+            return true;
+        }
+        if (matches("FALSE", start, end)) {
+            return false;
+        }
+        throw invalid();
+    }
+
+    public char nextChar() {
+        readField();
+        if (fieldLength == 1 && field[0] >= 0) {
+            return (char) field[0];
+        }
+        int start = trimStart();
+        int end = trimEnd(start);
+        if (end - start == 1 && field[start] >= 0) {
+            return (char) field[start];
+        }
+        if (start == end && separator == ',') {
+            skipSeparator();
+            return ',';
+        }
+        String value = new String(field, start, end - start, Charset.defaultCharset());
+        if (value.length() != 1) {
+            throw invalid();
+        }
+        return value.charAt(0);
+    }
+
+    // copies the bytes up to the next ',' or line break into field and consumes the separator
+    private void readField() {
+        if (!hasNext()) {
+            throw new IllegalStateException("No more input");
+        }
+        fieldLength = 0;
+        separator = 0;
+        while (fill()) {
+            byte b = buffer[position++];
+            if (b == ',') {
+                separator = b;
+                return;
+            }
+            if (b == '\n' || b == '\r') {
+                separator = b;
+                skipLineFeed = b == '\r';
+                return;
+            }
+            if (fieldLength == field.length) {
+                field = Arrays.copyOf(field, fieldLength * 2);
+            }
+            field[fieldLength++] = b;
+        }
+    }
+
+    // consumes the blanks and the ',' or line break that follow a ',' read as a CHAR value
+    private void skipSeparator() {
+        while (fill() && (buffer[position] == ' ' || buffer[position] == '\t')) {
+            position++;
+        }
+        if (fill() && (buffer[position] == ',' || buffer[position] == '\n' || buffer[position] == '\r')) {
+            skipLineFeed = buffer[position] == '\r';
+            position++;
+        }
+    }
+
+    private boolean fill() {
+        if (position < limit) {
+            return true;
+        }
+        if (eof) {
+            return false;
+        }
+        try {
+            int read;
+            do {
+                read = in.read(buffer, 0, buffer.length);
+            } while (read == 0);
+            if (read < 0) {
+                eof = true;
+                return false;
+            }
+            position = 0;
+            limit = read;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int trimStart() {
+        int start = 0;
+        while (start < fieldLength && (field[start] == ' ' || field[start] == '\t')) {
+            start++;
+        }
+        return start;
+    }
+
+    private int trimEnd(int start) {
+        int end = fieldLength;
+        while (end > start && (field[end - 1] == ' ' || field[end - 1] == '\t')) {
+            end--;
+        }
+        return end;
+    }
+
+    // case-insensitive comparison with an upper-case ASCII word
+    private boolean matches(String word, int start, int end) {
+        if (end - start != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if ((field[start + i] & ~0x20) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String fieldString() {
+        return new String(field, 0, fieldLength, Charset.defaultCharset());
+    }
+
+    private InvalidInputException invalid() {
+        return new InvalidInputException(fieldString());
+    }
+}
@@ -0,0 +1,68 @@
+package interpreter;
+
+import parser.VariableValues;
+
+/**
+ * Storage for the values of the variables of a running program. Values are kept unboxed in one primitive array per
+ * data type and addressed by the slot the parser assigned to the variable.
+ */
+public class Frame implements VariableValues {
+    private final int[] ints;
+    private final double[] floats;
+    private final boolean[] bools;
+    private final char[] chars;
+    // false until the variable is given a value
+    private final boolean[] initialized;
+
+    public Frame(int size) {
+        ints = new int[size];
+        floats = new double[size];
+        bools = new boolean[size];
+        chars = new char[size];
+        initialized = new boolean[size];
+    }
+
+    public boolean isInitialized(int slot) {
+        return initialized[slot];
+    }
+
+    public void clear(int slot) {
+        initialized[slot] = false;
+    }
+
+    public int getInt(int slot) {
+        return ints[slot];
+    }
+
+    public void setInt(int slot, int value) {
+        ints[slot] = value;
+        initialized[slot] = true;
+    }
+
+    public double getFloat(int slot) {
+        return floats[slot];
+    }
+
+    public void setFloat(int slot, double value) {
+        floats[slot] = value;
+        initialized[slot] = true;
+    }
+
+    public boolean getBool(int slot) {
+        return bools[slot];
+    }
+
+    public void setBool(int slot, boolean value) {
+        bools[slot] = value;
+        initialized[slot] = true;
+    }
+
+    public char getChar(int slot) {
+        return chars[slot];
+    }
+
+    public void setChar(int slot, char value) {
+        chars[slot] = value;
+        initialized[slot] = true;
+    }
+}
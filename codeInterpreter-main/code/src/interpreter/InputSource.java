@@ -0,0 +1,26 @@
+package interpreter;
+
+/**
+ * Where SCAN reads its values from. Values are separated by commas or line breaks, so "1, 2" on one line gives the
+ * same two values as two lines. A CHAR can be a comma: ",, 2" gives ',' and 2.
+ */
+public interface InputSource {
+
+    /**
+     * Returns false when the input has no more values
+     */
+    boolean hasNext();
+
+    /**
+     * Reads the next value as an INT
+     *
+     * @throws InvalidInputException if the value is not an INT
+     */
+    int nextInt();
+
+    double nextFloat();
+
+    boolean nextBool();
+
+    char nextChar();
+}
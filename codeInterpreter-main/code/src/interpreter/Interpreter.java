@@ -0,0 +1,439 @@
+package interpreter;
+
+import java.util.*;
+
+import ast.AssignStatement;
+import ast.BlockTable;
+import ast.DeclareStatement;
+import ast.DisplayStatement;
+import ast.Expression;
+import ast.IfStatement;
+import ast.Program;
+import ast.ScanStatement;
+import ast.Statement;
+import ast.StatementType;
+import ast.Variable;
+import ast.WhileStatement;
+import codegen.CompiledLoop;
+import codegen.LoopCompiler;
+import lexer.CodeException;
+import lexer.Token;
+import lexer.TokenType;
+import parser.Calculator;
+import parser.LogicalCalculator;
+import parser.SyntaxAnalyzer;
+
+/**
+ * Executes the {@link Program} tree built by the {@link SyntaxAnalyzer}. Variable values live in a {@link Frame}
+ * and are read and written through the slots resolved by the parser.
+ * <p>
+ * All the state of a run is held by the Interpreter, and the Program is never modified, so one Program can be run
+ * by any number of Interpreters on different threads at the same time.
+ */
+public class Interpreter {
+    private final Program program;
+    private final Frame frame;
+    private final InputSource in;
+    private final OutputSink out;
+    // null unless the run is profiled
+    private final Profiler profiler;
+    // iterations run so far of every WHILE of the block table, by the index of its condition; null when no loop is
+    // compiled
+    private final int[] iterations;
+
+    public Interpreter(Program program) {
+        this(program, new ByteInput(System.in), new BufferedSink(System.out));
+    }
+
+    public Interpreter(Program program, InputSource in, OutputSink out) {
+        this(program, in, out, null);
+    }
+
+    public Interpreter(Program program, InputSource in, OutputSink out, Profiler profiler) {
+        this.program = program;
+        this.frame = new Frame(program.variables.size());
+        this.in = in;
+        this.out = out;
+        this.profiler = profiler;
+        this.iterations = LoopCompiler.ENABLED && profiler == null ? new int[program.blocks.size()] : null;
+    }
+
+    /**
+     * Runs the program and prints "No Error", or the report of the runtime error that stopped it. The output is
+     * flushed when the run ends.
+     *
+     * @return false if the program stopped on a runtime error
+     */
+    public boolean run() {
+        try {
+            if (profiler != null) {
+                profiler.start();
+            }
+            try {
+                if (profiler == null) {
+                    execute(program.blocks);
+                } else {
+                    // statements are timed with the blocks nested in them
+                    execute(program.statements);
+                }
+            } finally {
+                if (profiler != null) {
+                    profiler.stop();
+                }
+            }
+            out.print("\nNo Error" + System.lineSeparator());
+            return true;
+        } catch (CodeException e) {
+            out.print(e.getMessage() + System.lineSeparator());
+            return false;
+        } finally {
+            out.flush();
+        }
+    }
+
+    private void execute(BlockTable table) {
+        int size = table.size();
+        int index = 0;
+        // the entry a compiled loop handed back, which is run here once before the loop is entered again
+        int returned = -1;
+        while (index < size) {
+            switch (table.op(index)) {
+                case BlockTable.STATEMENT:
+                    dispatch(table.statement(index));
+                    index++;
+                    break;
+                case BlockTable.BRANCH:
+                    if (iterations != null && index != returned && table.statement(index).type == StatementType.WHILE) {
+                        CompiledLoop loop = hotLoop(table, index);
+                        if (loop != null) {
+                            int next = loop.run(frame, out);
+                            returned = next < 0 ? -1 - next : -1;
+                            index = next < 0 ? -1 - next : next;
+                            break;
+                        }
+                    }
+                    returned = -1;
+                    index = evaluateLogical(table.condition(index)) ? index + 1 : table.target(index);
+                    break;
+                default:
+                    index = table.target(index);
+                    break;
+            }
+        }
+    }
+
+    // the compiled loop once the WHILE at index has run LoopCompiler.THRESHOLD iterations, null before
+    private CompiledLoop hotLoop(BlockTable table, int index) {
+        if (iterations[index] < LoopCompiler.THRESHOLD) {
+            iterations[index]++;
+            return null;
+        }
+        CompiledLoop loop = LoopCompiler.compile(table, index);
+        if (loop == null) {
+            // never counted again
+            iterations[index] = Integer.MIN_VALUE;
+        }
+        return loop;
+    }
+
+    private void execute(List<Statement> statements) {
+        for (Statement statement : statements) {
+            execute(statement);
+        }
+    }
+
+    private void execute(Statement statement) {
+        if (profiler == null) {
+            dispatch(statement);
+            return;
+        }
+        int previous = profiler.enter(statement.line);
+        long startTime = System.nanoTime();
+        try {
+            dispatch(statement);
+        } finally {
+            profiler.exit(statement.line, previous, System.nanoTime() - startTime);
+        }
+    }
+
+    private void dispatch(Statement statement) {
+        switch (statement.type) {
+            case DECLARE:
+                declareStatement((DeclareStatement) statement);
+                break;
+            case ASSIGN:
+                assignmentStatement((AssignStatement) statement);
+                break;
+            case DISPLAY:
+                displayStatement((DisplayStatement) statement);
+                break;
+            case SCAN:
+                scanStatement((ScanStatement) statement);
+                break;
+            case IF:
+                ifStatement((IfStatement) statement);
+                break;
+            case WHILE:
+                whileStatement((WhileStatement) statement);
+                break;
+        }
+    }
+
+    private void declareStatement(DeclareStatement statement) {
+        for (int i = 0; i < statement.variables.size(); i++) {
+            Variable variable = statement.variables.get(i);
+            Expression initializer = statement.initializers.get(i);
+            frame.clear(variable.slot);
+            if (initializer != null) {
+                store(List.of(variable), initializer);
+            }
+        }
+    }
+
+    private void assignmentStatement(AssignStatement statement) {
+        store(statement.targets, statement.value);
+    }
+
+    private void displayStatement(DisplayStatement statement) {
+        for (Expression part : statement.parts) {
+            out.print(format(part));
+        }
+    }
+
+    private void scanStatement(ScanStatement statement) {
+        // a prompt printed before the SCAN has to be seen
+        out.flush();
+        for (Variable variable : statement.variables) {
+            if (!in.hasNext()) {
+                error("(No input for " + variable + ")");
+            }
+            try {
+                switch (variable.type) {
+                    case INT:
+                        frame.setInt(variable.slot, in.nextInt());
+                        break;
+                    case FLOAT:
+                        frame.setFloat(variable.slot, in.nextFloat());
+                        break;
+                    case BOOL:
+                        frame.setBool(variable.slot, in.nextBool());
+                        break;
+                    case CHAR:
+                        frame.setChar(variable.slot, in.nextChar());
+                        break;
+                }
+            } catch (InvalidInputException e) {
+                error("(" + variable.type + " value is invalid = " + e.getValue() + ")");
+            }
+        }
+    }
+
+    private void ifStatement(IfStatement statement) {
+        for (int i = 0; i < statement.conditions.size(); i++) {
+            if (evaluateLogical(statement.conditions.get(i))) {
+                execute(statement.branches.get(i));
+                return;
+            }
+        }
+        execute(statement.elseBranch);
+    }
+
+    private void whileStatement(WhileStatement statement) {
+        while (evaluateLogical(statement.condition)) {
+            execute(statement.body);
+        }
+    }
+
+    // Evaluates the value once and converts it to the data type of every target
+    private void store(List<Variable> targets, Expression value) {
+        switch (value.resultType) {
+            case BOOL: {
+                boolean result = evaluateLogical(value);
+                for (Variable target : targets)
+                    frame.setBool(target.slot, result);
+                break;
+            }
+            case CHAR: {
+                char result = evaluateChar(value);
+                for (Variable target : targets)
+                    frame.setChar(target.slot, result);
+                break;
+            }
+            default: {
+                double result = evaluateNumber(value);
+                for (Variable target : targets) {
+                    if (target.type == TokenType.INT)
+                        frame.setInt(target.slot, (int) result);
+                    else
+                        frame.setFloat(target.slot, result);
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * Evaluates an INT or FLOAT expression against the current values of the variables
+     */
+    private double evaluateNumber(Expression expression) {
+        if (profiler == null) {
+            return calculate(expression);
+        }
+        long startTime = System.nanoTime();
+        try {
+            return calculate(expression);
+        } finally {
+            profiler.calculator(System.nanoTime() - startTime);
+        }
+    }
+
+    private double calculate(Expression expression) {
+        if (expression.resultType == TokenType.INT) {
+            return calculateInt(expression);
+        }
+        double result = 0;
+        try {
+            result = Calculator.evaluate(expression.tree, frame);
+        } catch (IllegalStateException e) {
+            error(e.getMessage());
+        }
+        return result;
+    }
+
+    // every operand of an INT expression is an INT, so it is evaluated exactly in integer arithmetic
+    private int calculateInt(Expression expression) {
+        int result = 0;
+        try {
+            result = Calculator.toInt(Calculator.evaluateLong(expression.tree, frame));
+        } catch (IllegalStateException e) {
+            error(e.getMessage());
+        } catch (ArithmeticException e) {
+            error(e.getMessage() + ": " + expression);
+        }
+        return result;
+    }
+
+    private char evaluateChar(Expression expression) {
+        Variable variable = expression.variable();
+        if (variable == null) {
+            return expression.tokens.get(0).getValue().charAt(0);
+        }
+        checkInitialized(variable);
+        return frame.getChar(variable.slot);
+    }
+
+    // the time spent in the calculators is counted for the current line when profiling
+    private boolean evaluateLogical(Expression expression) {
+        if (profiler == null) {
+            return calculateLogical(expression);
+        }
+        long startTime = System.nanoTime();
+        try {
+            return calculateLogical(expression);
+        } finally {
+            profiler.calculator(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Evaluates a BOOL expression with its compiled condition. An expression that failed to compile is evaluated on
+     * its tokens instead: each number-operator-number run is folded into its result, then the rest is handed to the
+     * LogicalCalculator, which reports the error.
+     */
+    private boolean calculateLogical(Expression expression) {
+        Variable variable = expression.variable();
+        if (variable != null) {
+            checkInitialized(variable);
+            return frame.getBool(variable.slot);
+        }
+        if (expression.condition != null) {
+            for (int i = 0; i < expression.tokens.size(); i++) {
+                if (expression.variableAt(i) != null) {
+                    checkInitialized(expression.variableAt(i));
+                }
+            }
+            return expression.condition.test(frame);
+        }
+
+        List<Token> tokens = new ArrayList<>();
+        for (int i = 0; i < expression.tokens.size(); i++) {
+            tokens.add(getVariableToken(expression, i));
+        }
+
+        List<Token> logicalTokens = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            if (i < tokens.size() - 2 && SyntaxAnalyzer.isNumberorFloat(tokens.get(i))
+                    && SyntaxAnalyzer.isArithOperator(tokens.get(i + 1))) {
+                List<Token> arithmetic = tokens.subList(i, i + 3);
+                double res = 0;
+                try {
+                    res = Calculator.getResult(arithmetic);
+                } catch (Exception e) {
+                    error("Invalid operation: " + arithmetic);
+                }
+                logicalTokens.add(Token.of(res));
+                i += 2;
+            } else {
+                logicalTokens.add(tokens.get(i));
+            }
+        }
+        try {
+            return new LogicalCalculator().evaluate(logicalTokens);
+        } catch (RuntimeException e) {
+            error("Invalid operation: " + expression);
+            return false;
+        }
+    }
+
+    // The token at index with a variable reference replaced by a token of its current value
+    private Token getVariableToken(Expression expression, int index) {
+        Variable variable = expression.variableAt(index);
+        if (variable == null) {
+            return expression.tokens.get(index);
+        }
+        checkInitialized(variable);
+        switch (variable.type) {
+            case INT:
+                return Token.of(frame.getInt(variable.slot));
+            case FLOAT:
+                return Token.of(frame.getFloat(variable.slot));
+            case BOOL:
+                return Token.of(frame.getBool(variable.slot));
+            default:
+                return Token.of(frame.getChar(variable.slot));
+        }
+    }
+
+    private void checkInitialized(Variable variable) {
+        if (!frame.isInitialized(variable.slot)) {
+            error("Variable: " + variable + " has no value");
+        }
+    }
+
+    // Text printed by DISPLAY for an operand
+    private String format(Expression part) {
+        Variable variable = part.variable();
+        if (variable != null && !frame.isInitialized(variable.slot)) {
+            return "null";
+        }
+        switch (part.resultType) {
+            case STRING: {
+                String value = part.tokens.get(0).getValue();
+                return value.equals("$") ? System.lineSeparator() : value;
+            }
+            case BOOL:
+                return evaluateLogical(part) ? "TRUE" : "FALSE";
+            case CHAR:
+                return String.valueOf(evaluateChar(part));
+            case FLOAT:
+                return Float.toString((float) evaluateNumber(part));
+            default:
+                return Integer.toString((int) evaluateNumber(part));
+        }
+    }
+
+    private void error(String message) {
+        throw new CodeException("\nRuntime Error: " + message);
+    }
+
+}
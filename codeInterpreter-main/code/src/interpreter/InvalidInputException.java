@@ -0,0 +1,20 @@
+package interpreter;
+
+/**
+ * Thrown by an {@link InputSource} for a value that does not fit the data type it was read as. The value is
+ * consumed all the same.
+ */
+public class InvalidInputException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final String value;
+
+    public InvalidInputException(String value) {
+        super("Invalid input value: " + value);
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
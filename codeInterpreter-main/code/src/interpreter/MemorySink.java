@@ -0,0 +1,24 @@
+package interpreter;
+
+/**
+ * Keeps the output in memory, for runs whose output is collected rather than printed, such as batch runs
+ */
+public class MemorySink implements OutputSink {
+    private final StringBuilder output = new StringBuilder();
+
+    public void print(String text) {
+        output.append(text);
+    }
+
+    public void print(char c) {
+        output.append(c);
+    }
+
+    public void flush() {
+    }
+
+    @Override
+    public String toString() {
+        return output.toString();
+    }
+}
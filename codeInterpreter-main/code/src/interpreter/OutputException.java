@@ -0,0 +1,16 @@
+package interpreter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Thrown by an {@link OutputSink} that cannot write its output, so that a failing output device is told apart from
+ * a failing input or source file, which throw a plain UncheckedIOException.
+ */
+public class OutputException extends UncheckedIOException {
+    private static final long serialVersionUID = 1L;
+
+    public OutputException(IOException cause) {
+        super(cause);
+    }
+}
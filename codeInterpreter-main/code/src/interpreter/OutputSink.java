@@ -0,0 +1,24 @@
+package interpreter;
+
+/**
+ * Where the output of DISPLAY and the final report of a run go. A sink may hold on to the text until it is
+ * flushed; the {@link Interpreter} flushes it at END CODE and before it waits for SCAN input.
+ */
+public interface OutputSink {
+
+    void print(String text);
+
+    void print(char c);
+
+    /**
+     * Writes out everything printed so far
+     */
+    void flush();
+
+    /**
+     * Flushes the sink and releases what it holds. Printing to a closed sink is an error.
+     */
+    default void close() {
+        flush();
+    }
+}
@@ -0,0 +1,153 @@
+package interpreter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects, per source line, how often the statement on it was executed, the wall time spent in it including the
+ * statements nested in it, and the part of that time spent in the Calculator and LogicalCalculator.
+ * <p>
+ * The counters are plain arrays indexed by line, so a profiled statement costs two {@link System#nanoTime()} calls
+ * and a few array updates. A Profiler belongs to a single run.
+ */
+public class Profiler {
+    // lines shown by the report, the JSON file has all of them
+    private static final int REPORT_LINES = 20;
+
+    private long[] counts = new long[64];
+    private long[] inclusiveNanos = new long[64];
+    private long[] calculatorNanos = new long[64];
+    // line of the innermost statement being executed
+    private int currentLine;
+    private long startTime;
+    private long totalNanos;
+
+    public void start() {
+        startTime = System.nanoTime();
+    }
+
+    public void stop() {
+        totalNanos = System.nanoTime() - startTime;
+    }
+
+    /**
+     * Counts one execution of the statement on line and makes it the current line
+     *
+     * @return the line that was current before, to be passed to {@link #exit}
+     */
+    int enter(int line) {
+        if (line >= counts.length) {
+            int capacity = Math.max(line + 1, counts.length * 2);
+            counts = Arrays.copyOf(counts, capacity);
+            inclusiveNanos = Arrays.copyOf(inclusiveNanos, capacity);
+            calculatorNanos = Arrays.copyOf(calculatorNanos, capacity);
+        }
+        counts[line]++;
+        int previous = currentLine;
+        currentLine = line;
+        return previous;
+    }
+
+    void exit(int line, int previous, long nanos) {
+        inclusiveNanos[line] += nanos;
+        currentLine = previous;
+    }
+
+    // time spent evaluating an expression of the current line
+    void calculator(long nanos) {
+        calculatorNanos[currentLine] += nanos;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Prints the lines that took the most time, hottest first. sourceLines, if not null, holds the text of every
+     * line of the program and is shown next to its counters.
+     */
+    public void report(OutputSink out, List<String> sourceLines) {
+        List<Integer> lines = sortedLines();
+        out.print(String.format("%nProfile: %.3f ms total%n", totalNanos / 1e6));
+        out.print(String.format("%6s %12s %12s %12s  %s%n", "Line", "Count", "Incl. ms", "Calc. ms", "Source"));
+        for (int i = 0; i < Math.min(lines.size(), REPORT_LINES); i++) {
+            int line = lines.get(i);
+            out.print(String.format("%6d %12d %12.3f %12.3f  %s%n", line, counts[line], inclusiveNanos[line] / 1e6,
+                    calculatorNanos[line] / 1e6, source(sourceLines, line).strip()));
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the counters of every executed line to a JSON file
+     */
+    public void writeJson(Path file, String program, List<String> sourceLines) throws IOException {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"program\": ").append(quote(program)).append(",\n");
+        json.append("  \"totalNanos\": ").append(totalNanos).append(",\n");
+        json.append("  \"lines\": [");
+        List<Integer> lines = sortedLines();
+        for (int i = 0; i < lines.size(); i++) {
+            int line = lines.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    {\"line\": ").append(line)
+                    .append(", \"count\": ").append(counts[line])
+                    .append(", \"inclusiveNanos\": ").append(inclusiveNanos[line])
+                    .append(", \"calculatorNanos\": ").append(calculatorNanos[line])
+                    .append(", \"source\": ").append(quote(source(sourceLines, line).strip())).append('}');
+        }
+        json.append("\n  ]\n}\n");
+        Files.writeString(file, json);
+    }
+
+    // executed lines by inclusive time, longest first
+    private List<Integer> sortedLines() {
+        List<Integer> lines = new ArrayList<>();
+        for (int line = 1; line < counts.length; line++) {
+            if (counts[line] > 0) {
+                lines.add(line);
+            }
+        }
+        lines.sort((a, b) -> Long.compare(inclusiveNanos[b], inclusiveNanos[a]));
+        return lines;
+    }
+
+    private static String source(List<String> sourceLines, int line) {
+        return sourceLines != null && line <= sourceLines.size() ? sourceLines.get(line - 1) : "";
+    }
+
+    private static String quote(String s) {
+        StringBuilder res = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    res.append("\\\"");
+                    break;
+                case '\\':
+                    res.append("\\\\");
+                    break;
+                case '\n':
+                    res.append("\\n");
+                    break;
+                case '\r':
+                    res.append("\\r");
+                    break;
+                case '\t':
+                    res.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        res.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        res.append(c);
+                    }
+            }
+        }
+        return res.append('"').toString();
+    }
+}
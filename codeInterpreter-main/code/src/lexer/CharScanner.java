@@ -0,0 +1,60 @@
+package lexer;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Finds the end of a run of characters, such as the rest of a comment or the text of a string literal, many
+ * characters at a time. The only implementation is {@link VectorScanner}, which needs the jdk.incubator.vector
+ * module; without it, or with -Dlexer.vector=false, {@link #forInput} returns null and the Lexer scans one character
+ * at a time.
+ * <p>
+ * Only memory-mapped ASCII files are scanned this way. A String would first have to be copied into an array, which
+ * costs more than the scan saves.
+ */
+abstract class CharScanner {
+    // shorter inputs are lexed before the vector code is compiled, where it is slower than the scalar loops
+    static final int MIN_LENGTH = 1 << 16;
+
+    private static final MethodHandle FACTORY = factory();
+
+    /**
+     * Returns the first index from from on holding a, b or c, or the length of the input if there is none
+     */
+    abstract int indexOfAny(int from, char a, char b, char c);
+
+    /**
+     * Returns the first index from from on holding neither a nor b, or the length of the input if there is none
+     */
+    abstract int indexOfNone(int from, char a, char b);
+
+    /**
+     * Returns a scanner over the whole input, or null if the input is better scanned by the Lexer itself
+     */
+    static CharScanner forInput(CharSequence input) {
+        if (FACTORY == null || !(input instanceof MappedSource) || input.length() < MIN_LENGTH) {
+            return null;
+        }
+        try {
+            return (CharScanner) FACTORY.invokeExact((MappedSource) input);
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    // VectorScanner is only loaded when the module is there, since loading it fails otherwise
+    private static MethodHandle factory() {
+        if (!Boolean.parseBoolean(System.getProperty("lexer.vector", "true"))
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            Class<?> scanner = Class.forName("lexer.VectorScanner");
+            return MethodHandles.lookup().findStatic(scanner, "of",
+                    MethodType.methodType(CharScanner.class, MappedSource.class));
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
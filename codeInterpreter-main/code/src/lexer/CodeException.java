@@ -0,0 +1,13 @@
+package lexer;
+
+/**
+ * An error in a CODE program found by the Lexer, the SyntaxAnalyzer or the Interpreter. The message is the report
+ * printed for it, so one run can stop at the error without ending the JVM and other runs going on in it.
+ */
+public class CodeException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public CodeException(String message) {
+        super(message);
+    }
+}
@@ -1,19 +1,116 @@
 package lexer;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
 public class Lexer {
 
-    public static List<Token> tokenList = new ArrayList<>();
-    private final String input;
+    private final CharSequence input;
+    // set when the input is streamed: tokens are then copied out of it instead of sliced
+    private final SourceBuffer buffer;
+    // set when comments, strings and whitespace are scanned many characters at a time, see CharScanner
+    private final CharScanner scanner;
     private int position;
+    // tokens are only started before this index, see ParallelLexer
+    private final int end;
+    // set when a comment runs to the end of the input, which then needs no closing NEWLINE
+    private boolean endsInComment;
+    private boolean finished;
+    // line of the position, and of the start of the last token returned
+    private int line = 1;
+    private int tokenLine = 1;
+
+    public Lexer(CharSequence input) {
+        this(input, 0, Integer.MAX_VALUE);
+    }
 
-    public Lexer(String input) {
+    /**
+     * Creates a Lexer for the part of the input from start that ends with the last token starting before end. The
+     * line numbers it reports count from 1 at start.
+     */
+    Lexer(CharSequence input, int start, int end) {
         this.input = input;
+        this.buffer = null;
+        this.scanner = CharScanner.forInput(input);
+        this.position = start;
+        this.end = end;
+    }
+
+    /**
+     * Creates a Lexer that reads the source through a fixed-size buffer as tokens are asked for, instead of holding
+     * the whole source in memory
+     */
+    public Lexer(Reader reader) {
+        this(new SourceBuffer(reader));
+    }
+
+    public Lexer(ReadableByteChannel channel) {
+        this(Channels.newReader(channel, StandardCharsets.UTF_8));
+    }
+
+    public Lexer(SourceBuffer buffer) {
+        this.input = buffer;
+        this.buffer = buffer;
+        this.scanner = null;
         this.position = 0;
+        this.end = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Creates a Lexer over a memory-mapped source file. A plain ASCII file is lexed in place and the text of a
+     * token is only decoded when it is asked for; any other file is decoded as UTF-8 while it is lexed.
+     */
+    public static Lexer fromFile(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        MappedByteBuffer bytes;
+        try {
+            if (channel.size() > Integer.MAX_VALUE) {
+                // too large to map at once: the file is streamed, and the SourceBuffer closes the channel when done
+                SourceBuffer streamed = new SourceBuffer(Channels.newReader(channel, StandardCharsets.UTF_8));
+                channel = null;
+                return new Lexer(streamed);
+            }
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+        MappedSource source = new MappedSource(bytes);
+        return source.isAscii() ? new Lexer(source) : new Lexer(source.decoder());
+    }
+
+    public CharSequence getInput() {
+        return input;
+    }
+
+    /**
+     * Returns the line, counting from 1, on which the last token returned by {@link #getNextToken()} starts
+     */
+    public int getLine() {
+        return tokenLine;
+    }
+
+    // index of the next character to lex
+    int getPosition() {
+        return position;
+    }
+
+    // line of getPosition()
+    int getPositionLine() {
+        return line;
     }
 
     public static List<Token> Tokenize(Lexer lexer) {
+        List<Token> tokenList = new ArrayList<>();
         Token token = lexer.getNextToken();
 
         while (token.getType() != TokenType.EOF) {
@@ -26,189 +123,260 @@ public class Lexer {
         return tokenList;
     }
 
-    // Function to get the next token
-    public Token getNextToken() {
-        if (position >= input.length()) {
-            return new Token(TokenType.EOF, "");
+    // Character classes, indexed by char for the ASCII range. Characters above it are classified with the
+    // java.lang.Character predicates in classOf
+    private static final byte OTHER = 0;
+    private static final byte WHITESPACE = 1;
+    private static final byte LETTER = 2;
+    private static final byte DIGIT = 3;
+    private static final byte UNDERSCORE = 4;
+    private static final byte SIGN = 5;
+    private static final byte OPERATOR = 6;
+    private static final byte EQUALS = 7;
+    private static final byte COMPARISON = 8;
+    private static final byte SINGLE_QUOTE = 9;
+    private static final byte DOUBLE_QUOTE = 10;
+    private static final byte CONCAT = 11;
+    private static final byte DOLLAR = 12;
+    private static final byte OPEN_BRACKET = 13;
+    private static final byte COMMENT = 14;
+    private static final byte NEWLINE = 15;
+    private static final byte DELIMITER = 16;
+    private static final byte[] CHAR_CLASSES = new byte[128];
+
+    static {
+        for (char c = 0; c < CHAR_CLASSES.length; c++) {
+            if (Character.isWhitespace(c))
+                CHAR_CLASSES[c] = WHITESPACE;
+            else if (Character.isLetter(c))
+                CHAR_CLASSES[c] = LETTER;
+            else if (Character.isDigit(c) || c == '.')
+                CHAR_CLASSES[c] = DIGIT;
+            else if (TokenUtils.getDelimiterToken(c) != null)
+                CHAR_CLASSES[c] = DELIMITER;
         }
+        CHAR_CLASSES['_'] = UNDERSCORE;
+        CHAR_CLASSES['+'] = SIGN;
+        CHAR_CLASSES['-'] = SIGN;
+        CHAR_CLASSES['*'] = OPERATOR;
+        CHAR_CLASSES['/'] = OPERATOR;
+        CHAR_CLASSES['%'] = OPERATOR;
+        CHAR_CLASSES['='] = EQUALS;
+        CHAR_CLASSES['<'] = COMPARISON;
+        CHAR_CLASSES['>'] = COMPARISON;
+        CHAR_CLASSES['\''] = SINGLE_QUOTE;
+        CHAR_CLASSES['"'] = DOUBLE_QUOTE;
+        CHAR_CLASSES['&'] = CONCAT;
+        CHAR_CLASSES['$'] = DOLLAR;
+        CHAR_CLASSES['['] = OPEN_BRACKET;
+        CHAR_CLASSES['#'] = COMMENT;
+        CHAR_CLASSES['\n'] = NEWLINE;
+        CHAR_CLASSES['\r'] = NEWLINE;
+    }
 
-        char currentChar = input.charAt(position);
+    private static byte classOf(char c) {
+        if (c < CHAR_CLASSES.length)
+            return CHAR_CLASSES[c];
+        if (Character.isWhitespace(c))
+            return WHITESPACE;
+        if (Character.isLetter(c))
+            return LETTER;
+        if (Character.isDigit(c))
+            return DIGIT;
+        return OTHER;
+    }
 
-        if (Character.isWhitespace(currentChar)) {
-            position++;
-            return getNextToken();
-        }
+    // Function to get the next token
+    public Token getNextToken() {
+        while (position < end && has(position)) {
+            int currentPosition = position;
+            char currentChar = input.charAt(position);
+            if (buffer != null) {
+                // the unary operator check looks one character back
+                buffer.release(position - 1);
+            }
+            tokenLine = line;
 
-        if (Character.isLetter(currentChar)) {
-            return handleIdentifier();
-        }
+            switch (classOf(currentChar)) {
+                case WHITESPACE:
+                    position = indexOfNone(position + 1, ' ', '\t');
+                    break;
 
-        if (Character.isDigit(currentChar) || currentChar == '.') {
-            return handleNumber();
-        }
+                case COMMENT:
+                    skipComment();
+                    break;
 
-        switch (currentChar) {
-            case '-':
-            case '+':
-                if (position + 1 < input.length() && Character.isDigit(input.charAt(position + 1))
-                        && TokenUtils.isOperator(input.charAt(position - 1))) {
-                    return handleUnaryOperator();
-                }
-                return handleOperator();
+                case LETTER:
+                    return handleIdentifier();
 
-            case '*':
-            case '/':
-            case '%':
-                return handleOperator();
+                case DIGIT:
+                    return handleNumber();
 
-            case '=':
-                return handleAssignmentOrComparison();
+                case SIGN:
+                    if (has(position + 1) && classOf(input.charAt(position + 1)) == DIGIT
+                            && input.charAt(position + 1) != '.' && position > 0
+                            && TokenUtils.isOperator(input.charAt(position - 1))) {
+                        return handleUnaryOperator();
+                    }
+                    return handleOperator();
 
-            case '>':
-            case '<':
-                return handleComparison();
+                case OPERATOR:
+                    return handleOperator();
 
-            case '\'':
-                return handleSingleQuote();
+                case EQUALS:
+                    return handleAssignmentOrComparison();
 
-            case '"':
-                return handleDoubleQuote();
+                case COMPARISON:
+                    return handleComparison();
 
-            case '&':
-                position++;
-                return new Token(TokenType.CONCAT, String.valueOf(currentChar));
+                case SINGLE_QUOTE:
+                    return literal(handleSingleQuote(), currentPosition);
 
-            case '$':
-                position++;
-                return new Token(TokenType.STRING, String.valueOf(currentChar));
+                case DOUBLE_QUOTE:
+                    return literal(handleDoubleQuote(), currentPosition);
 
-            case '[':
-                return handleSquareBracketString();
+                case CONCAT:
+                    position++;
+                    return TokenUtils.CONCAT_TOKEN;
 
-            case '#':
-                return handleComment();
+                case DOLLAR:
+                    position++;
+                    return TokenUtils.NEWLINE_STRING_TOKEN;
 
-            case '@':
-                position++;
-                return new Token(TokenType.NEWLINE, String.valueOf(currentChar));
+                case OPEN_BRACKET:
+                    return literal(handleSquareBracketString(), currentPosition);
 
-            default:
-                if (TokenUtils.isDelimiter(currentChar)) {
+                case NEWLINE:
+                    skipLineTerminator();
+                    return TokenUtils.NEWLINE_TOKEN;
+
+                case DELIMITER:
                     position++;
-                    return new Token(TokenType.DELIMITER, String.valueOf(currentChar));
-                } else {
+                    return TokenUtils.getDelimiterToken(currentChar);
+
+                default:
                     position++;
                     return new Token(TokenType.INVALID, String.valueOf(currentChar));
-                }
+            }
+        }
+        tokenLine = line;
+        if (position >= end) {
+            // the rest of the input belongs to the next part
+            return TokenUtils.EOF_TOKEN;
+        }
+        // the last line ends with a NEWLINE even without a line terminator
+        if (!finished) {
+            finished = true;
+            if (position > 0 && !isLineTerminator(input.charAt(position - 1)) && !endsInComment) {
+                return TokenUtils.NEWLINE_TOKEN;
+            }
         }
+        return TokenUtils.EOF_TOKEN;
     }
 
     // ------------------------ Helper Fucntions Section
     // ----------------------------------//
 
+    // Identifiers and literals are returned as slices of the input; their String is only created when asked for
+
     private Token handleIdentifier() {
-        StringBuilder identifierBuilder = new StringBuilder();
-        char currentChar = input.charAt(position);
-        while (position < input.length() && (Character.isLetterOrDigit(currentChar) || currentChar == '_')) {
-            identifierBuilder.append(currentChar);
+        int start = position;
+        // identifiers made only of ASCII letters, digits and '_' are valid by construction
+        boolean ascii = true;
+        while (has(position)) {
+            char currentChar = input.charAt(position);
+            byte charClass = classOf(currentChar);
+            if (charClass != LETTER && charClass != UNDERSCORE && (charClass != DIGIT || currentChar == '.'))
+                break;
+            ascii &= currentChar < CHAR_CLASSES.length;
             position++;
-            if (position < input.length()) {
-                currentChar = input.charAt(position);
-            }
         }
-        String identifier = identifierBuilder.toString();
-        if (TokenUtils.isKeywordOrSpecialToken(identifier))
-            return new Token(TokenType.KEYWORD, identifier);
-        if (TokenUtils.isValidIdentifier(identifier))
-            return new Token(TokenType.IDENTIFIER, identifier);
-        TokenUtils.error("Invalid identifier = " + identifier);
+        Token keyword = TokenUtils.getKeywordToken(input, start, position);
+        if (keyword != null)
+            return keyword;
+        if (ascii || TokenUtils.isValidIdentifier(input, start, position))
+            return slice(TokenType.IDENTIFIER, start, position - start);
+        TokenUtils.error("Invalid identifier = " + input.subSequence(start, position));
         return null;
     }
 
     private Token handleNumber() {
-        StringBuilder numberBuilder = new StringBuilder();
+        int start = position;
         char currentChar = input.charAt(position);
         boolean isFloat = false;
 
-        while (position < input.length() && (Character.isDigit(currentChar) || currentChar == '.')) {
+        while (has(position) && classOf(currentChar) == DIGIT) {
             if (currentChar == '.') {
                 if (isFloat) {
-                    TokenUtils.error("Invalid number = " + numberBuilder.toString());
+                    TokenUtils.error("Invalid number = " + input.subSequence(start, position));
                     return null;
                 }
                 isFloat = true;
             }
-            numberBuilder.append(currentChar);
             position++;
-            if (position < input.length()) {
+            if (has(position)) {
                 currentChar = input.charAt(position);
             }
         }
 
-        return isFloat ? new Token(TokenType.FLOAT, numberBuilder.toString())
-                : new Token(TokenType.INT, numberBuilder.toString());
+        return slice(isFloat ? TokenType.FLOAT : TokenType.INT, start, position - start);
     }
 
     private Token handleUnaryOperator() {
-        StringBuilder numberBuilder = new StringBuilder();
-        char currentChar = input.charAt(position);
-        numberBuilder.append(currentChar);
+        int start = position;
+        boolean isFloat = false;
         position++;
-        currentChar = input.charAt(position);
+        char currentChar = input.charAt(position);
 
-        while (position < input.length() && (Character.isDigit(currentChar) || currentChar == '.')) {
-            numberBuilder.append(currentChar);
+        while (has(position) && classOf(currentChar) == DIGIT) {
+            isFloat |= currentChar == '.';
             position++;
-            if (position < input.length()) {
+            if (has(position)) {
                 currentChar = input.charAt(position);
             }
         }
 
-        String numberLiteral = numberBuilder.toString();
-        if (numberLiteral.equals("-") || numberLiteral.equals("+")) {
-            return new Token(TokenType.OPERATOR, numberLiteral);
-        } else if (numberLiteral.contains(".")) {
-            return new Token(TokenType.FLOAT, numberLiteral);
-        } else {
-            return new Token(TokenType.INT, numberLiteral);
+        if (position - start == 1) {
+            return TokenUtils.getOperatorToken(input.charAt(start));
         }
+        return slice(isFloat ? TokenType.FLOAT : TokenType.INT, start, position - start);
     }
 
     private Token handleOperator() {
         char currentChar = input.charAt(position);
         position++;
-        return new Token(TokenType.OPERATOR, String.valueOf(currentChar));
+        return TokenUtils.getOperatorToken(currentChar);
     }
 
     private Token handleAssignmentOrComparison() {
         position++;
-        if (position < input.length() && input.charAt(position) == '=') {
+        if (has(position) && input.charAt(position) == '=') {
             position++;
-            return new Token(TokenType.OPERATOR, "==");
+            return TokenUtils.getOperatorToken("==");
         } else {
-            return new Token(TokenType.ASSIGNMENT, "=");
+            return TokenUtils.ASSIGNMENT_TOKEN;
         }
     }
 
     private Token handleComparison() {
         char currentChar = input.charAt(position);
         position++;
-        if (position < input.length() && input.charAt(position) == '=') {
+        if (has(position) && input.charAt(position) == '=') {
             position++;
-            return new Token(TokenType.OPERATOR, String.valueOf(currentChar) + "=");
-        } else if (currentChar == '<' && position < input.length() && input.charAt(position) == '>') {
+            return TokenUtils.getOperatorToken(currentChar == '<' ? "<=" : ">=");
+        } else if (currentChar == '<' && has(position) && input.charAt(position) == '>') {
             position++;
-            return new Token(TokenType.OPERATOR, "<>");
+            return TokenUtils.getOperatorToken("<>");
         } else {
-            return new Token(TokenType.OPERATOR, String.valueOf(currentChar));
+            return TokenUtils.getOperatorToken(currentChar);
         }
     }
 
     private Token handleSingleQuote() {
-        if (position + 2 < input.length() && input.charAt(position + 2) == '\'') {
-            char charLiteral = input.charAt(position + 1);
+        if (has(position + 2) && input.charAt(position + 2) == '\'') {
+            int start = position + 1;
             position += 3;
-            return new Token(TokenType.CHAR, String.valueOf(charLiteral));
+            return slice(TokenType.CHAR, start, 1);
         } else {
             position++;
             TokenUtils.error("Invalid character or not enclosed");
@@ -218,19 +386,25 @@ public class Lexer {
 
     private Token handleDoubleQuote() {
         position++;
+
+        // a literal without escapes or [] is returned as a slice of the input
+        int end = indexOfAny(position, '"', '[', '\\');
+        if (has(end) && input.charAt(end) == '"') {
+            int start = position;
+            position = end + 1;
+            Token bool = TokenUtils.getBooleanToken(input, start, end);
+            return bool != null ? bool : slice(TokenType.STRING, start, end - start);
+        }
+
         StringBuilder stringLiteralBuilder = new StringBuilder();
         char currentChar = input.charAt(position);
 
-        while (position < input.length() && currentChar != '"') {
+        while (has(position) && currentChar != '"') {
             if (currentChar == '[') {
-                position++;
-                StringBuilder bracketContent = new StringBuilder();
-                while (position < input.length() && input.charAt(position) != ']') {
-                    bracketContent.append(input.charAt(position));
-                    position++;
-                }
-                if (position < input.length() && input.charAt(position) == ']') {
-                    stringLiteralBuilder.append(bracketContent.toString());
+                int start = position + 1;
+                position = indexOfAny(start, ']', ']', ']');
+                if (has(position) && input.charAt(position) == ']') {
+                    stringLiteralBuilder.append(input, start, position);
                     position++;
                 } else {
                     TokenUtils.error("Invalid bracket content or not enclosed");
@@ -239,7 +413,7 @@ public class Lexer {
             } else {
                 if (currentChar == '\\') {
                     position++;
-                    if (position < input.length()) {
+                    if (has(position)) {
                         char escapeChar = input.charAt(position);
                         switch (escapeChar) {
                             case 'n':
@@ -257,17 +431,19 @@ public class Lexer {
                 stringLiteralBuilder.append(currentChar);
                 position++;
             }
-            if (position < input.length()) {
+            if (has(position)) {
                 currentChar = input.charAt(position);
             }
         }
 
-        if (position < input.length() && input.charAt(position) == '"') {
+        if (has(position) && input.charAt(position) == '"') {
             position++;
-            if (TokenUtils.isBooleanLiteral(stringLiteralBuilder.toString())) {
-                return new Token(TokenType.BOOL, stringLiteralBuilder.toString());
+            String literal = stringLiteralBuilder.toString();
+            Token bool = TokenUtils.getBooleanToken(literal, 0, literal.length());
+            if (bool != null) {
+                return bool;
             }
-            return new Token(TokenType.STRING, stringLiteralBuilder.toString());
+            return new Token(TokenType.STRING, literal);
         } else {
             TokenUtils.error("Invalid String content or not enclosed");
             return null;
@@ -275,36 +451,97 @@ public class Lexer {
     }
 
     private Token handleSquareBracketString() {
-        StringBuilder stringLiteralBuilder = new StringBuilder();
         position++;
-        while (position < input.length() && input.charAt(position) != ']') {
-            stringLiteralBuilder.append(input.charAt(position));
+        int start = position;
+        position = indexOfAny(position, ']', ']', ']');
+        if (has(position) && input.charAt(position) == ']') {
             position++;
-        }
-        if (position < input.length() && input.charAt(position) == ']') {
-            position++;
-            return new Token(TokenType.STRING, stringLiteralBuilder.toString());
+            return slice(TokenType.STRING, start, position - 1 - start);
         } else {
             TokenUtils.error("Invalid String not enclosed");
             return null;
         }
     }
 
-    private Token handleComment() {
-        char currentChar = input.charAt(position);
-        while (position < input.length() && currentChar != '\n' && currentChar != '\r') {
-            position++;
-            if (position < input.length()) {
-                currentChar = input.charAt(position);
+    // first index from from on holding a, b or c, or the end of the input
+    private int indexOfAny(int from, char a, char b, char c) {
+        if (scanner != null) {
+            return scanner.indexOfAny(from, a, b, c);
+        }
+        while (has(from)) {
+            char currentChar = input.charAt(from);
+            if (currentChar == a || currentChar == b || currentChar == c) {
+                break;
             }
+            from++;
+        }
+        return from;
+    }
+
+    // first index from from on holding neither a nor b, or the end of the input
+    private int indexOfNone(int from, char a, char b) {
+        if (scanner != null) {
+            return scanner.indexOfNone(from, a, b);
         }
-        while (position < input.length() && (currentChar == '\n' || currentChar == '\r')) {
+        while (has(from)) {
+            char currentChar = input.charAt(from);
+            if (currentChar != a && currentChar != b) {
+                break;
+            }
+            from++;
+        }
+        return from;
+    }
+
+    private boolean has(int index) {
+        return index < input.length() || buffer != null && buffer.has(index);
+    }
+
+    // a token whose value is [start, start + length) of the input; streamed input is reused, so it is copied
+    private Token slice(TokenType type, int start, int length) {
+        if (buffer != null) {
+            return new Token(type, input.subSequence(start, start + length).toString());
+        }
+        return new Token(type, input, start, length);
+    }
+
+    // Skips the comment up to and including the line terminator, so a comment line produces no NEWLINE
+    private void skipComment() {
+        position = indexOfAny(position, '\n', '\r', '\r');
+        if (has(position)) {
+            skipLineTerminator();
+        } else {
+            endsInComment = true;
+        }
+    }
+
+    // "\r\n" is a single line terminator
+    private void skipLineTerminator() {
+        if (input.charAt(position) == '\r' && has(position + 1) && input.charAt(position + 1) == '\n') {
             position++;
-            if (position < input.length()) {
-                currentChar = input.charAt(position);
+        }
+        position++;
+        line++;
+    }
+
+    // a literal may span lines
+    private Token literal(Token token, int start) {
+        countLines(start, position);
+        return token;
+    }
+
+    // counts the line breaks in [from, to) of the input
+    private void countLines(int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = input.charAt(i);
+            if (c == '\r' || c == '\n' && (i == from || input.charAt(i - 1) != '\r')) {
+                line++;
             }
         }
-        return getNextToken();
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r';
     }
 
     public static ArrayList<Token> getMathTokens(String input) throws Exception {
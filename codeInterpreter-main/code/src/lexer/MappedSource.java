@@ -0,0 +1,79 @@
+package lexer;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The bytes of a memory-mapped source file seen as characters. Every byte of an ASCII file is one character, so the
+ * file is read in place; Strings are only created for the slices that are asked for.
+ */
+class MappedSource implements CharSequence {
+    private final ByteBuffer bytes;
+
+    MappedSource(ByteBuffer bytes) {
+        this.bytes = bytes;
+    }
+
+    ByteBuffer bytes() {
+        return bytes;
+    }
+
+    boolean isAscii() {
+        for (int i = 0; i < bytes.limit(); i++) {
+            if (bytes.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the file decoded as UTF-8 while it is read, for files that are not plain ASCII
+     */
+    SourceBuffer decoder() {
+        ByteBuffer remaining = bytes.duplicate();
+        ReadableByteChannel channel = new ReadableByteChannel() {
+            public int read(ByteBuffer dst) {
+                if (!remaining.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(dst.remaining(), remaining.remaining());
+                dst.put(remaining.slice().limit(count));
+                remaining.position(remaining.position() + count);
+                return count;
+            }
+
+            public boolean isOpen() {
+                return true;
+            }
+
+            public void close() {
+            }
+        };
+        return new SourceBuffer(Channels.newReader(channel, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) bytes.get(index);
+    }
+
+    @Override
+    public int length() {
+        return bytes.limit();
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        byte[] slice = new byte[end - start];
+        bytes.get(start, slice);
+        return new String(slice, StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length()).toString();
+    }
+}
@@ -0,0 +1,141 @@
+package lexer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Tokenizes a large source on a ForkJoin pool. The source is cut into chunks right after a '\n', each chunk is lexed
+ * on its own as if it started a line, and the chunks are joined in order into one {@link TokenStream}.
+ * <p>
+ * A cut can fall inside a string literal or a [] literal that spans lines. This is found when the chunks are
+ * joined: the lexer of the previous chunk then stops past the cut instead of exactly at it, and the chunk is lexed
+ * again from where it really starts. The result, errors included, is always the same as that of
+ * {@link TokenStream#tokenize(Lexer)}.
+ */
+public class ParallelLexer {
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    public ParallelLexer(ForkJoinPool pool) {
+        this(pool, DEFAULT_CHUNK_SIZE);
+    }
+
+    public ParallelLexer(ForkJoinPool pool, int chunkSize) {
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Tokenizes the input of the lexer, which has not been read from yet. A streaming Lexer is read to the end on
+     * the calling thread, since its input is only seen a window at a time.
+     */
+    public TokenStream tokenize(Lexer lexer) {
+        if (lexer.getInput() instanceof SourceBuffer || lexer.getPosition() != 0) {
+            return TokenStream.tokenize(lexer);
+        }
+        return tokenize(lexer.getInput());
+    }
+
+    public TokenStream tokenize(CharSequence input) {
+        List<Integer> starts = chunkStarts(input);
+        List<ForkJoinTask<Chunk>> tasks = new ArrayList<>();
+        for (int i = 0; i < starts.size(); i++) {
+            int start = starts.get(i);
+            int end = i + 1 < starts.size() ? starts.get(i + 1) : Integer.MAX_VALUE;
+            tasks.add(i == 0 ? null : pool.submit(() -> lex(input, start, end)));
+        }
+
+        TokenStream[] parts = new TokenStream[starts.size()];
+        int[] counts = new int[parts.length];
+        int[] lineOffsets = new int[parts.length];
+        int position = 0;
+        int lineOffset = 0;
+        for (int i = 0; i < starts.size(); i++) {
+            int end = i + 1 < starts.size() ? starts.get(i + 1) : Integer.MAX_VALUE;
+            // the first chunk is lexed here while the others are lexed on the pool
+            Chunk chunk = i == 0 ? lex(input, 0, end) : tasks.get(i).join();
+            if (chunk.start != position) {
+                // the previous chunk ended inside a token that runs past the cut
+                chunk = lex(input, position, end);
+            }
+            if (chunk.error != null) {
+                cancel(tasks, i + 1);
+                throw chunk.error;
+            }
+            parts[i] = chunk.tokens;
+            // only the EOF of the last chunk is the end of the input
+            counts[i] = i == parts.length - 1 ? chunk.tokens.size() : chunk.tokens.size() - 1;
+            lineOffsets[i] = lineOffset;
+            lineOffset += chunk.lines;
+            position = chunk.stop;
+        }
+        return TokenStream.join(input, parts, counts, lineOffsets, pool);
+    }
+
+    // index 0 and the index after the first '\n' following every multiple of the chunk size
+    private List<Integer> chunkStarts(CharSequence input) {
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        int length = input.length();
+        int next = chunkSize;
+        while (next < length) {
+            int cut = next;
+            while (cut < length && input.charAt(cut - 1) != '\n') {
+                cut++;
+            }
+            if (cut >= length) {
+                break;
+            }
+            starts.add(cut);
+            next = cut + chunkSize;
+        }
+        return starts;
+    }
+
+    // lexes the tokens that start in [start, end)
+    private static Chunk lex(CharSequence input, int start, int end) {
+        Lexer lexer = new Lexer(input, start, end);
+        // about one token per five characters of source
+        int capacity = end == Integer.MAX_VALUE ? input.length() - start : end - start;
+        TokenStream tokens = new TokenStream(input, Math.max(capacity / 5, 64));
+        try {
+            Token token;
+            do {
+                token = lexer.getNextToken();
+                tokens.add(token, lexer.getLine());
+            } while (token.getType() != TokenType.EOF);
+        } catch (RuntimeException e) {
+            // not an error yet if the chunk was cut inside a literal
+            return new Chunk(start, tokens, lexer.getPosition(), 0, e);
+        }
+        return new Chunk(start, tokens, lexer.getPosition(), lexer.getPositionLine() - 1, null);
+    }
+
+    private static void cancel(List<ForkJoinTask<Chunk>> tasks, int from) {
+        for (int i = from; i < tasks.size(); i++) {
+            tasks.get(i).cancel(false);
+        }
+    }
+
+    private static class Chunk {
+        final int start;
+        final TokenStream tokens;
+        // where the lexer stopped, and the number of lines it passed
+        final int stop;
+        final int lines;
+        // set when the chunk does not lex; only reported if the chunk really starts at start
+        final RuntimeException error;
+
+        Chunk(int start, TokenStream tokens, int stop, int lines, RuntimeException error) {
+            this.start = start;
+            this.tokens = tokens;
+            this.stop = stop;
+            this.lines = lines;
+            this.error = error;
+        }
+    }
+}
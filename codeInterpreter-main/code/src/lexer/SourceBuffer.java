@@ -0,0 +1,155 @@
+package lexer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Source text read through a fixed-size window instead of held in memory as a whole. Indexes are absolute positions
+ * in the source; characters before the position passed to {@link #release(int)} may be dropped to make room for new
+ * ones, so only the current token has to fit in the window. A token longer than the window grows it.
+ * <p>
+ * As a CharSequence it stands for the source read so far: {@link #length()} counts every character read, but only
+ * the window can be looked at. {@link #charAt(int)}, {@link #subSequence(int, int)} and {@link #toString()} throw
+ * for a position that is already dropped, instead of answering with a different part of the source.
+ * <p>
+ * The SourceBuffer owns its reader: it closes it once the source is read to the end or a read fails. A reader left
+ * before its end is closed with {@link #close()}.
+ */
+public class SourceBuffer implements CharSequence, Closeable {
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    private final Reader reader;
+    private char[] chars;
+    // absolute position of chars[0]
+    private int offset;
+    private int count;
+    // absolute position of the first character that must be kept
+    private int keep;
+    private boolean eof;
+
+    public SourceBuffer(Reader reader) {
+        this(reader, DEFAULT_CAPACITY);
+    }
+
+    public SourceBuffer(Reader reader, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Buffer capacity must be positive: " + capacity);
+        }
+        this.reader = reader;
+        this.chars = new char[capacity];
+    }
+
+    /**
+     * Reads ahead until the character at index is in the window, returns false if the source ends before it
+     */
+    public boolean has(int index) {
+        while (index >= offset + count) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Allows the characters before index to be dropped from the window
+     */
+    public void release(int index) {
+        keep = Math.max(keep, index);
+    }
+
+    @Override
+    public char charAt(int index) {
+        checkKept(index);
+        if (!has(index)) {
+            throw new IndexOutOfBoundsException("Position " + index + " is past the end of the source");
+        }
+        return chars[index - offset];
+    }
+
+    /**
+     * Returns the number of characters read from the source so far
+     */
+    @Override
+    public int length() {
+        return offset + count;
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start > end) {
+            throw new IndexOutOfBoundsException("Range " + start + ".." + end + " is reversed");
+        }
+        checkKept(start);
+        if (end > start && !has(end - 1)) {
+            throw new IndexOutOfBoundsException("Range " + start + ".." + end + " is past the end of the source");
+        }
+        return new String(chars, start - offset, end - start);
+    }
+
+    /**
+     * Closes the reader, the characters already in the window can still be read
+     */
+    @Override
+    public void close() throws IOException {
+        eof = true;
+        reader.close();
+    }
+
+    public int getCapacity() {
+        return chars.length;
+    }
+
+    /**
+     * Returns the source read so far, which can only be done while none of it has been dropped
+     */
+    @Override
+    public String toString() {
+        checkKept(0);
+        return new String(chars, 0, count);
+    }
+
+    private void checkKept(int index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Position " + index + " is negative");
+        }
+        if (index < offset) {
+            throw new IndexOutOfBoundsException("Position " + index + " is released, the buffer starts at " + offset);
+        }
+    }
+
+    private boolean fill() {
+        if (eof) {
+            return false;
+        }
+        if (count == chars.length) {
+            int released = Math.min(keep - offset, count);
+            if (released > 0) {
+                System.arraycopy(chars, released, chars, 0, count - released);
+                offset += released;
+                count -= released;
+            } else {
+                chars = Arrays.copyOf(chars, chars.length * 2);
+            }
+        }
+        try {
+            int read = reader.read(chars, count, chars.length - count);
+            if (read < 0) {
+                close();
+                return false;
+            }
+            count += read;
+            return true;
+        } catch (IOException e) {
+            try {
+                close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new UncheckedIOException(e);
+        }
+    }
+}
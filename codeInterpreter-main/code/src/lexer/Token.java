@@ -1,119 +1,190 @@
 package lexer;
 
+import java.nio.CharBuffer;
+
+/**
+ * A token of the source or a value made while evaluating. A Token never changes once made, apart from the String of
+ * its value being created when it is first asked for, so the same Token can be shared by any number of programs and
+ * threads.
+ */
 public class Token {
 
-    private TokenType type;
+    private final TokenType type;
+    // the String of the value, created from source or val when it is first asked for
     private String value;
-    private double val;
+    private final double val;
+    // the exact value of an INT math token, which a double only keeps up to 2^53
+    private final long integer;
+    private final boolean integral;
+    // for tokens made from a value: val holds the INT, FLOAT, BOOL (1 or 0) or CHAR, and value is only formatted from
+    // it when it is asked for
+    private final boolean typed;
+    // for tokens cut out of the source: value is only materialized from here when it is asked for
+    private final CharSequence source;
+    private final int start;
+    private final int length;
 
     public Token(TokenType type, String value) {
-        this.type = type;
-        this.value = value;
+        this(type, value, Double.NaN, 0, false, false, null, 0, 0);
+    }
+
+    /**
+     * Creates a token whose value is the slice [start, start + length) of the source. No String is created until
+     * {@link #getValue()} is called.
+     */
+    public Token(TokenType type, CharSequence source, int start, int length) {
+        this(type, source, start, length, Double.NaN);
+    }
+
+    /**
+     * Creates a numeric literal token whose value is a slice of the source and whose number is already known
+     */
+    public Token(TokenType type, CharSequence source, int start, int length, double val) {
+        this(type, null, val, 0, false, false, source, start, length);
     }
 
     public Token(TokenType type, double value) {
-        this.type = type;
-        this.val = value;
+        this(type, null, value, 0, false, false, null, 0, 0);
+    }
+
+    /**
+     * Creates an INT math token with the exact value of an integer literal
+     */
+    public Token(TokenType type, long integer) {
+        this(type, null, integer, integer, true, false, null, 0, 0);
     }
 
     public Token(TokenType type) {
+        this(type, null, Double.NaN, 0, false, false, null, 0, 0);
+    }
+
+    private Token(TokenType type, double val, boolean typed) {
+        this(type, null, val, 0, false, typed, null, 0, 0);
+    }
+
+    private Token(TokenType type, String value, double val, long integer, boolean integral, boolean typed,
+            CharSequence source, int start, int length) {
         this.type = type;
-        this.val = Double.NaN;
+        this.value = value;
+        this.val = val;
+        this.integer = integer;
+        this.integral = integral;
+        this.typed = typed;
+        this.source = source;
+        this.start = start;
+        this.length = length;
     }
 
-    public void setValue(String value) {
-        switch (type) {
-            case CHAR:
-                if (value.length() == 1) {
-                    this.value = value;
-                } else {
-                    throw new IllegalArgumentException("(Character value is invalid = " + value + ")");
-                }
-                break;
-            case FLOAT:
-                try {
-                    Float.parseFloat(value);
-                    this.value = value;
-                } catch (NumberFormatException e) {
-                    throw new NumberFormatException("(Float value is invalid = " + value + ")");
-                }
-                break;
-            case BOOL:
-                if (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false")) {
-                    this.value = value;
-                } else {
-                    throw new IllegalArgumentException("(Boolean value is invalid = " + value + ")");
-                }
-                break;
-            case INT:
-                try {
-                    Integer.parseInt(value);
-                    this.value = value;
-                } catch (NumberFormatException e) {
-                    try {
-                        Float.parseFloat(value);
-                        this.value = value;
-                    } catch (NumberFormatException ex) {
-                        throw new NumberFormatException("(Integer value is invalid = " + value + ")");
-                    }
-                }
-                break;
-            default:
-                throw new UnsupportedOperationException("(Data Type does not exist = " + value + ")");
-        }
+    public static Token of(int value) {
+        return new Token(TokenType.INT, value, true);
+    }
+
+    public static Token of(double value) {
+        return new Token(TokenType.FLOAT, value, true);
+    }
+
+    public static Token of(boolean value) {
+        return new Token(TokenType.BOOL, value ? 1 : 0, true);
+    }
+
+    public static Token of(char value) {
+        return new Token(TokenType.CHAR, value, true);
     }
 
     public TokenType getType() {
         return type;
     }
 
-    public void setType(TokenType type) {
-        this.type = type;
+    public String getValue() {
+        // the source is kept: a thread reading a shared token at the same time always finds one of the two
+        String value = this.value;
+        if (value == null && source != null) {
+            value = source.subSequence(start, start + length).toString();
+            this.value = value;
+        } else if (value == null && typed) {
+            value = format();
+            this.value = value;
+        }
+        return value;
     }
 
-    public String getValue() {
+    private String format() {
+        switch (type) {
+            case INT:
+                return Integer.toString((int) val);
+            case FLOAT:
+                return Double.toString(val);
+            case BOOL:
+                return Boolean.toString(val != 0);
+            default:
+                return String.valueOf((char) val);
+        }
+    }
+
+    /**
+     * Returns the value as a view of the source when the token still refers to it, without creating a String
+     */
+    public CharSequence getText() {
+        if (value == null && source != null) {
+            return CharBuffer.wrap(source, start, start + length);
+        }
         return value;
     }
 
+    /**
+     * Returns the number of a math token or of a numeric literal, NaN when the token does not carry one
+     */
     public double getVal() {
         return val;
     }
 
-    public Object getDataType() {
-        switch (type) {
-            case CHAR:
-                if (value.length() == 1) {
-                    return value.charAt(0);
-                } else {
-                    throw new IllegalArgumentException("(Character value is invalid = " + value + ")");
-                }
-            case FLOAT:
-                return Float.parseFloat(value);
-            case BOOL:
-                if (value != null) {
-                    return Boolean.parseBoolean(value);
-                } else {
-                    return null;
-                }
-            case INT:
-                try {
-                    return Integer.parseInt(value);
-                } catch (NumberFormatException e) {
-                    throw new NumberFormatException("(Integer value is invalid = " + value + ")");
-                }
-            case DELIMITER:
-                if (value.equals("(") || value.equals(")")) {
-                    return null; // Or another appropriate indicator
-                } else {
-                    throw new UnsupportedOperationException("Unsupported delimiter: " + value);
-                }
-            default:
-                throw new UnsupportedOperationException(toString());
+    /**
+     * Returns the exact value of an INT literal or math token, parsed from the text of a literal
+     *
+     * @throws NumberFormatException if the literal does not fit in a long
+     */
+    public long getInteger() {
+        if (integral) {
+            return integer;
+        }
+        CharSequence text = getText();
+        if (text == null) {
+            // a token made from its number
+            return (long) val;
         }
+        return Long.parseLong(text, 0, text.length(), 10);
+    }
+
+    // Checks if the value is still the unmaterialized slice of the given source
+    boolean isSliceOf(CharSequence source) {
+        return value == null && this.source == source;
+    }
+
+    int getStart() {
+        return start;
+    }
+
+    int getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the number of an INT or FLOAT value, parsing the text only for a token that was not made from one
+     */
+    public double getNumber() {
+        return typed ? val : Double.parseDouble(getValue());
+    }
+
+    public boolean getBool() {
+        return typed ? val != 0 : Boolean.parseBoolean(getValue());
+    }
+
+    public char getChar() {
+        return typed ? (char) val : getValue().charAt(0);
     }
 
     @Override
     public String toString() {
-        return "(" + type + " = \"" + value + "\")";
+        return "(" + type + " = \"" + getValue() + "\")";
     }
 }
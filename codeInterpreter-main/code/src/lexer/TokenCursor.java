@@ -0,0 +1,36 @@
+package lexer;
+
+/**
+ * Sequential read access to tokens with one token of lookahead, as used by the parser. Past the last token every
+ * query answers as if positioned on EOF.
+ */
+public interface TokenCursor {
+
+    /**
+     * Returns the number of tokens advanced over so far
+     */
+    int index();
+
+    void advance();
+
+    TokenType type();
+
+    TokenType peekType();
+
+    /**
+     * Returns the source line of the current token, 0 when it is not known
+     */
+    int line();
+
+    String value();
+
+    boolean valueEquals(String s);
+
+    boolean peekValueEquals(String s);
+
+    default boolean is(TokenType type, String value) {
+        return type() == type && valueEquals(value);
+    }
+
+    Token token();
+}
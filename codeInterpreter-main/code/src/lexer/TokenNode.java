@@ -4,6 +4,12 @@ public class TokenNode {
     public final TokenType type;
     public final TokenNode operand1, operand2;
     public double nodeValue;
+    // for INT nodes: the exact value of the literal, read by Calculator.evaluateLong
+    public final long integer;
+    // for IDENTIFIER nodes: the variable read when the tree is evaluated
+    public final String name;
+    public final int slot;
+    public final TokenType valueType;
     private boolean negative = false; //keeps track of whether a - has been added to negate the value held in this node
  
     /**
@@ -12,7 +18,24 @@ public class TokenNode {
     public TokenNode(Token token) {
         this.type = TokenType.INT;
         this.nodeValue = token.getVal();
+        this.integer = token.getInteger();
         operand1 = operand2 = null;
+        this.name = null;
+        this.slot = -1;
+        this.valueType = null;
+    }
+
+    /**
+     * Creates an IDENTIFIER TokenNode that refers to the INT or FLOAT variable stored at slot.
+     */
+    public TokenNode(String name, int slot, TokenType valueType) {
+        this.type = TokenType.IDENTIFIER;
+        this.nodeValue = Double.NaN;
+        this.integer = 0;
+        operand1 = operand2 = null;
+        this.name = name;
+        this.slot = slot;
+        this.valueType = valueType;
     }
  
     /**
@@ -23,6 +46,10 @@ public class TokenNode {
         this.operand1 = operand1;
         this.operand2 = operand2;
         this.nodeValue = Double.NaN;
+        this.integer = 0;
+        this.name = null;
+        this.slot = -1;
+        this.valueType = null;
     }
  
     /**
@@ -44,6 +71,8 @@ public class TokenNode {
         StringBuilder res = new StringBuilder();
         if (this.type == TokenType.INT) {
             res.append(this.nodeValue);
+        } else if (this.type == TokenType.IDENTIFIER) {
+            res.append(this.name);
         } else {
             String format = "%s %c % s";
             String logicFormat = "%s %s %s";
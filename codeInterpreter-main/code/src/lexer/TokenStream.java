@@ -0,0 +1,327 @@
+package lexer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Compact replacement for a List of Tokens. Each token is one entry in parallel arrays (type ordinal, start and
+ * length of its value in the source) instead of an object. Values that are not a slice of the source, such as
+ * literals with escapes, are kept once in a string pool and referenced with a negative start. Numeric literals are
+ * parsed once into a side table.
+ */
+public class TokenStream {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final CharSequence source;
+    private byte[] types;
+    private int[] starts;
+    private int[] lengths;
+    // source line of every token, 0 when it is not known
+    private int[] lines;
+    private int size;
+
+    private final List<String> pool;
+    private final Map<String, Integer> poolIndexes;
+
+    // token indexes of the numeric literals in increasing order, and their values
+    private int[] numberIndexes;
+    private double[] numbers;
+    private int numberCount;
+
+    public TokenStream(CharSequence source) {
+        this(source, 64);
+    }
+
+    TokenStream(CharSequence source, int capacity) {
+        this.source = source;
+        this.types = new byte[capacity];
+        this.starts = new int[capacity];
+        this.lengths = new int[capacity];
+        this.lines = new int[capacity];
+        this.pool = new ArrayList<>();
+        this.poolIndexes = new HashMap<>();
+        this.numberIndexes = new int[Math.max(capacity / 4, 16)];
+        this.numbers = new double[numberIndexes.length];
+    }
+
+    /**
+     * Runs the lexer to the end of its input and collects every token, EOF included
+     */
+    public static TokenStream tokenize(Lexer lexer) {
+        TokenStream stream = new TokenStream(lexer.getInput());
+        Token token;
+        do {
+            token = lexer.getNextToken();
+            stream.add(token, lexer.getLine());
+        } while (token.getType() != TokenType.EOF);
+        return stream;
+    }
+
+    public static TokenStream of(List<Token> tokens) {
+        TokenStream stream = new TokenStream("");
+        for (Token token : tokens) {
+            stream.add(token);
+        }
+        return stream;
+    }
+
+    public void add(Token token) {
+        add(token, 0);
+    }
+
+    public void add(Token token, int line) {
+        ensureCapacity(size + 1);
+
+        types[size] = (byte) token.getType().ordinal();
+        lines[size] = line;
+        if (token.isSliceOf(source)) {
+            starts[size] = token.getStart();
+            lengths[size] = token.getLength();
+        } else {
+            String value = token.getValue() == null ? "" : token.getValue();
+            starts[size] = -1 - intern(value);
+            lengths[size] = value.length();
+        }
+
+        if (token.getType() == TokenType.INT || token.getType() == TokenType.FLOAT) {
+            addNumber(size, parseNumber(size));
+        }
+        size++;
+    }
+
+    /**
+     * Joins the first counts[i] tokens of every part, all streams over source, adding lineOffsets[i] to their lines.
+     * The parts are copied into the result on the pool.
+     */
+    static TokenStream join(CharSequence source, TokenStream[] parts, int[] counts, int[] lineOffsets,
+            ForkJoinPool pool) {
+        int[] tokenOffsets = new int[parts.length];
+        int[] numberOffsets = new int[parts.length];
+        int[] poolOffsets = new int[parts.length];
+        int[] numberCounts = new int[parts.length];
+        int size = 0;
+        int numberCount = 0;
+        TokenStream stream = new TokenStream(source, 0);
+        for (int i = 0; i < parts.length; i++) {
+            tokenOffsets[i] = size;
+            numberOffsets[i] = numberCount;
+            poolOffsets[i] = stream.pool.size();
+            int numbers = Arrays.binarySearch(parts[i].numberIndexes, 0, parts[i].numberCount, counts[i]);
+            numberCounts[i] = numbers < 0 ? -1 - numbers : numbers;
+            size += counts[i];
+            numberCount += numberCounts[i];
+            // the pools are only concatenated, a value in two of them is kept twice
+            for (String value : parts[i].pool) {
+                stream.poolIndexes.putIfAbsent(value, stream.pool.size());
+                stream.pool.add(value);
+            }
+        }
+        stream.ensureCapacity(size);
+        stream.numberIndexes = new int[Math.max(numberCount, 16)];
+        stream.numbers = new double[stream.numberIndexes.length];
+
+        List<ForkJoinTask<?>> copies = new ArrayList<>();
+        for (int i = 0; i < parts.length; i++) {
+            int part = i;
+            copies.add(pool.submit(() -> stream.copy(parts[part], counts[part], tokenOffsets[part],
+                    lineOffsets[part], poolOffsets[part], numberCounts[part], numberOffsets[part])));
+        }
+        for (ForkJoinTask<?> copy : copies) {
+            copy.join();
+        }
+        stream.size = size;
+        stream.numberCount = numberCount;
+        return stream;
+    }
+
+    private void copy(TokenStream part, int count, int offset, int lineOffset, int poolOffset, int numberCount,
+            int numberOffset) {
+        System.arraycopy(part.types, 0, types, offset, count);
+        System.arraycopy(part.lengths, 0, lengths, offset, count);
+        for (int i = 0; i < count; i++) {
+            int start = part.starts[i];
+            starts[offset + i] = start < 0 ? start - poolOffset : start;
+            lines[offset + i] = part.lines[i] + lineOffset;
+        }
+        for (int i = 0; i < numberCount; i++) {
+            numberIndexes[numberOffset + i] = part.numberIndexes[i] + offset;
+        }
+        System.arraycopy(part.numbers, 0, numbers, numberOffset, numberCount);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > types.length) {
+            capacity = Math.max(capacity, types.length * 2);
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+        }
+    }
+
+    private void addNumber(int index, double value) {
+        if (numberCount == numbers.length) {
+            numberIndexes = Arrays.copyOf(numberIndexes, numberCount * 2);
+            numbers = Arrays.copyOf(numbers, numberCount * 2);
+        }
+        numberIndexes[numberCount] = index;
+        numbers[numberCount] = value;
+        numberCount++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public TokenType type(int index) {
+        return index < size ? TYPES[types[index]] : TokenType.EOF;
+    }
+
+    public int line(int index) {
+        return size == 0 ? 0 : lines[Math.min(index, size - 1)];
+    }
+
+    public String value(int index) {
+        int start = starts[index];
+        if (start < 0) {
+            return pool.get(-1 - start);
+        }
+        return source.subSequence(start, start + lengths[index]).toString();
+    }
+
+    /**
+     * Compares the value of the token with s without creating a String
+     */
+    public boolean valueEquals(int index, String s) {
+        if (index >= size || lengths[index] != s.length()) {
+            return false;
+        }
+        int start = starts[index];
+        if (start < 0) {
+            return pool.get(-1 - start).equals(s);
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (source.charAt(start + i) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the value of the INT or FLOAT literal at index
+     */
+    public double number(int index) {
+        int i = Arrays.binarySearch(numberIndexes, 0, numberCount, index);
+        if (i < 0) {
+            throw new IllegalArgumentException("Not a numeric literal: " + index);
+        }
+        return numbers[i];
+    }
+
+    /**
+     * Creates a Token for the entry at index, for the parts of the program that keep tokens
+     */
+    public Token token(int index) {
+        TokenType type = type(index);
+        int start = starts[index];
+        CharSequence text = start < 0 ? pool.get(-1 - start) : source;
+        int offset = start < 0 ? 0 : start;
+        if (type == TokenType.INT || type == TokenType.FLOAT) {
+            return new Token(type, text, offset, lengths[index], number(index));
+        }
+        return new Token(type, text, offset, lengths[index]);
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    private int intern(String value) {
+        Integer index = poolIndexes.get(value);
+        if (index == null) {
+            index = pool.size();
+            pool.add(value);
+            poolIndexes.put(value, index);
+        }
+        return index;
+    }
+
+    // integer literals are accumulated directly, anything else goes through Double.parseDouble
+    private double parseNumber(int index) {
+        int start = starts[index];
+        int length = lengths[index];
+        CharSequence text = start < 0 ? pool.get(-1 - start) : source;
+        int offset = start < 0 ? 0 : start;
+
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(offset) == '-' || text.charAt(offset) == '+')) {
+            negative = text.charAt(offset) == '-';
+            i++;
+        }
+        if (length - i > 0 && length - i <= 18) {
+            long value = 0;
+            for (; i < length; i++) {
+                char c = text.charAt(offset + i);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                value = value * 10 + (c - '0');
+            }
+            if (i == length) {
+                return negative ? -value : value;
+            }
+        }
+        String literal = text.subSequence(offset, offset + length).toString();
+        return literal.equals(".") ? 0 : Double.parseDouble(literal);
+    }
+
+    /**
+     * Reads the stream one token at a time
+     */
+    public class Cursor implements TokenCursor {
+        private int index;
+
+        public int index() {
+            return index;
+        }
+
+        public void advance() {
+            index++;
+        }
+
+        public TokenType type() {
+            return TokenStream.this.type(index);
+        }
+
+        public TokenType peekType() {
+            return TokenStream.this.type(index + 1);
+        }
+
+        public int line() {
+            return TokenStream.this.line(index);
+        }
+
+        public String value() {
+            return index < size ? TokenStream.this.value(index) : "";
+        }
+
+        public boolean valueEquals(String s) {
+            return TokenStream.this.valueEquals(index, s);
+        }
+
+        public boolean peekValueEquals(String s) {
+            return TokenStream.this.valueEquals(index + 1, s);
+        }
+
+        public Token token() {
+            return index < size ? TokenStream.this.token(index) : TokenUtils.EOF_TOKEN;
+        }
+    }
+}
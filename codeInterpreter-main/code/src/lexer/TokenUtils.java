@@ -1,5 +1,6 @@
 package lexer;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -9,10 +10,24 @@ public class TokenUtils {
 
     private static final Set<String> keywordsAndSpecialTokens = new HashSet<>();
     private static final Set<String> booleanLiterals = new HashSet<>();
-    private static final Set<Character> delimiters = new HashSet<>();
     private static final Map<Character, TokenType> operationChars = new HashMap<>();
     private static final Map<String, TokenType> logicalOperationChars = new HashMap<>();
 
+    // Shared tokens for the lexemes that always produce the same token. They are handed out by every Lexer and
+    // must never be modified
+    public static final Token EOF_TOKEN = new Token(TokenType.EOF, "");
+    public static final Token NEWLINE_TOKEN = new Token(TokenType.NEWLINE, "@");
+    public static final Token CONCAT_TOKEN = new Token(TokenType.CONCAT, "&");
+    public static final Token NEWLINE_STRING_TOKEN = new Token(TokenType.STRING, "$");
+    public static final Token ASSIGNMENT_TOKEN = new Token(TokenType.ASSIGNMENT, "=");
+    private static final Map<String, Token> operatorTokens = new HashMap<>();
+    private static final Token[] singleCharOperatorTokens = new Token[128];
+    // keyword and boolean tokens grouped by the length of their lexeme, so a lookup only compares candidates of the
+    // right length character by character
+    private static final Token[][] keywordTokens = new Token[8][0];
+    private static final Token[][] booleanTokens = new Token[8][0];
+    private static final Token[] delimiterTokens = new Token[128];
+
     static {
         // Keywords and Special Tokens
         keywordsAndSpecialTokens.add("IF");
@@ -38,15 +53,6 @@ public class TokenUtils {
         booleanLiterals.add("TRUE");
         booleanLiterals.add("FALSE");
 
-        // Delimiters
-        delimiters.add('(');
-        delimiters.add(')');
-        delimiters.add('{');
-        delimiters.add('}');
-        delimiters.add(',');
-        delimiters.add(';');
-        delimiters.add(':');
-
         // Mathematical Operators
         operationChars.put('+', TokenType.PLUS);
         operationChars.put('-', TokenType.MINUS);
@@ -66,22 +72,95 @@ public class TokenUtils {
         logicalOperationChars.put("||", TokenType.OR);
         logicalOperationChars.put("!", TokenType.NOT);
         logicalOperationChars.put("!=", TokenType.NOT_EQUAL);
+
+        for (String operator : new String[] { "+", "-", "*", "/", "%", "==", "<", ">", "<=", ">=", "<>" }) {
+            operatorTokens.put(operator, new Token(TokenType.OPERATOR, operator));
+            if (operator.length() == 1) {
+                singleCharOperatorTokens[operator.charAt(0)] = operatorTokens.get(operator);
+            }
+        }
+        for (String keyword : keywordsAndSpecialTokens) {
+            addByLength(keywordTokens, new Token(TokenType.KEYWORD, keyword));
+        }
+        for (String literal : booleanLiterals) {
+            addByLength(booleanTokens, new Token(TokenType.BOOL, literal));
+        }
+        // Delimiters
+        for (char delimiter : "(){},;:".toCharArray()) {
+            delimiterTokens[delimiter] = new Token(TokenType.DELIMITER, String.valueOf(delimiter));
+        }
     }
 
-    public static boolean isKeywordOrSpecialToken(String identifier) {
-        return keywordsAndSpecialTokens.contains(identifier);
+    private static void addByLength(Token[][] tokens, Token token) {
+        int length = token.getValue().length();
+        tokens[length] = Arrays.copyOf(tokens[length], tokens[length].length + 1);
+        tokens[length][tokens[length].length - 1] = token;
     }
 
     public static boolean isBooleanLiteral(String identifier) {
         return booleanLiterals.contains(identifier);
     }
 
-    public static boolean isDelimiter(char c) {
-        return delimiters.contains(c);
+    /**
+     * Checks that the slice [start, end) of the input is an identifier, a letter or '_' followed by letters, digits
+     * and '_', without copying it
+     */
+    public static boolean isValidIdentifier(CharSequence input, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = input.charAt(i);
+            boolean letter = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+            if (!letter && (i == start || c < '0' || c > '9')) {
+                return false;
+            }
+        }
+        return end > start;
+    }
+
+    /**
+     * Returns the shared token of an operator lexeme such as "+" or "<=", null if it is not an operator
+     */
+    public static Token getOperatorToken(String operator) {
+        return operatorTokens.get(operator);
+    }
+
+    public static Token getOperatorToken(char operator) {
+        return operator < singleCharOperatorTokens.length ? singleCharOperatorTokens[operator] : null;
+    }
+
+    /**
+     * Returns the shared token of the keyword in the slice [start, end) of the input, null if it is not a keyword
+     */
+    public static Token getKeywordToken(CharSequence input, int start, int end) {
+        return findToken(keywordTokens, input, start, end);
+    }
+
+    /**
+     * Returns the shared BOOL token of the literal ("TRUE" or "FALSE") in the slice [start, end) of the input
+     */
+    public static Token getBooleanToken(CharSequence input, int start, int end) {
+        return findToken(booleanTokens, input, start, end);
+    }
+
+    private static Token findToken(Token[][] tokens, CharSequence input, int start, int end) {
+        int length = end - start;
+        if (length >= tokens.length) {
+            return null;
+        }
+        for (Token token : tokens[length]) {
+            String value = token.getValue();
+            int i = 0;
+            while (i < length && input.charAt(start + i) == value.charAt(i)) {
+                i++;
+            }
+            if (i == length) {
+                return token;
+            }
+        }
+        return null;
     }
 
-    public static boolean isValidIdentifier(String identifier) {
-        return identifier.matches("[a-zA-Z_][a-zA-Z0-9_]*");
+    public static Token getDelimiterToken(char c) {
+        return c < delimiterTokens.length ? delimiterTokens[c] : null;
     }
 
     public static boolean isOperator(char c) {
@@ -97,8 +176,7 @@ public class TokenUtils {
     }
 
     public static void error(String message) {
-        System.out.println("Lexer Error: " + message);
-        System.exit(0);
+        throw new CodeException("Lexer Error: " + message);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package lexer;
+
+/**
+ * Pulls tokens from a {@link Lexer} only when the parser asks for them. The current token and the lookahead are kept
+ * in a small ring, so parsing from a streaming Lexer never holds the token list of the whole program.
+ */
+public class TokenWindow implements TokenCursor {
+    private static final int LOOKAHEAD = 1;
+
+    private final Lexer lexer;
+    private final Token[] window = new Token[LOOKAHEAD + 1];
+    private final int[] lines = new int[LOOKAHEAD + 1];
+    // ring position of the current token and number of tokens read into the ring
+    private int first;
+    private int count;
+    private int index;
+
+    public TokenWindow(Lexer lexer) {
+        this.lexer = lexer;
+    }
+
+    public int index() {
+        return index;
+    }
+
+    public void advance() {
+        fill(0);
+        window[first] = null;
+        first = (first + 1) % window.length;
+        count--;
+        index++;
+    }
+
+    public TokenType type() {
+        return peek(0).getType();
+    }
+
+    public TokenType peekType() {
+        return peek(1).getType();
+    }
+
+    public int line() {
+        fill(0);
+        return lines[first];
+    }
+
+    public String value() {
+        return peek(0).getValue();
+    }
+
+    public boolean valueEquals(String s) {
+        return s.equals(peek(0).getValue());
+    }
+
+    public boolean peekValueEquals(String s) {
+        return s.equals(peek(1).getValue());
+    }
+
+    public Token token() {
+        return peek(0);
+    }
+
+    private Token peek(int offset) {
+        fill(offset);
+        return window[(first + offset) % window.length];
+    }
+
+    // reads tokens until the one at offset from the current token is in the ring
+    private void fill(int offset) {
+        while (count <= offset) {
+            Token last = count > 0 ? window[(first + count - 1) % window.length] : null;
+            // the Lexer keeps answering EOF, but there is no need to ask it again
+            Token token = last != null && last.getType() == TokenType.EOF ? last : lexer.getNextToken();
+            window[(first + count) % window.length] = token;
+            lines[(first + count) % window.length] = lexer.getLine();
+            count++;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package lexer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link CharScanner} on the Vector API: 32 bytes of a memory-mapped ASCII file, one byte per character, are
+ * compared in one step. The 256-bit species is used even where wider vectors exist, since most runs are short.
+ * <p>
+ * Only loaded through {@link CharScanner#forInput}, and only when the jdk.incubator.vector module is present (run
+ * with --add-modules jdk.incubator.vector).
+ */
+final class VectorScanner {
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_256;
+
+    private VectorScanner() {
+    }
+
+    static CharScanner of(MappedSource input) {
+        return new Bytes(input.bytes());
+    }
+
+    private static final class Bytes extends CharScanner {
+        private final ByteBuffer bytes;
+        private final int length;
+
+        Bytes(ByteBuffer bytes) {
+            this.bytes = bytes;
+            this.length = bytes.limit();
+        }
+
+        @Override
+        int indexOfAny(int from, char a, char b, char c) {
+            int i = from;
+            for (int bound = length - BYTES.length(); i <= bound; i += BYTES.length()) {
+                ByteVector chunk = ByteVector.fromByteBuffer(BYTES, bytes, i, ByteOrder.nativeOrder());
+                VectorMask<Byte> found = chunk.eq((byte) a).or(chunk.eq((byte) b)).or(chunk.eq((byte) c));
+                if (found.anyTrue()) {
+                    return i + found.firstTrue();
+                }
+            }
+            for (; i < length; i++) {
+                char ch = (char) bytes.get(i);
+                if (ch == a || ch == b || ch == c) {
+                    return i;
+                }
+            }
+            return length;
+        }
+
+        @Override
+        int indexOfNone(int from, char a, char b) {
+            int i = from;
+            for (int bound = length - BYTES.length(); i <= bound; i += BYTES.length()) {
+                ByteVector chunk = ByteVector.fromByteBuffer(BYTES, bytes, i, ByteOrder.nativeOrder());
+                VectorMask<Byte> other = chunk.eq((byte) a).or(chunk.eq((byte) b)).not();
+                if (other.anyTrue()) {
+                    return i + other.firstTrue();
+                }
+            }
+            for (; i < length; i++) {
+                char ch = (char) bytes.get(i);
+                if (ch != a && ch != b) {
+                    return i;
+                }
+            }
+            return length;
+        }
+    }
+}
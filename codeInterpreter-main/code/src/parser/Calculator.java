@@ -1,24 +1,93 @@
 package parser;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 
+import ast.Variable;
 import lexer.Lexer;
 import lexer.Token;
 import lexer.TokenNode;
 import lexer.TokenType;
+import lexer.TokenUtils;
 
 public class Calculator {
       /**
    * Calls the Tokenizer and Parser, and returns the evaluated result of the parsed token tree
    */
   public static double getResult(String inputString) throws Exception {
-    TokenNode expressionTree = Parser.parseTokens(Lexer.getMathTokens(inputString));
-    return evaluateExpressionTree(expressionTree);
+    TokenNode expressionTree = new Parser(Map.of()).parseTokens(Lexer.getMathTokens(inputString));
+    return evaluateExpressionTree(expressionTree, null);
+}
+
+/**
+ * Evaluates an expression that was already split into tokens by the Lexer, without formatting it back into a String
+ */
+public static double getResult(List<Token> tokens) throws Exception {
+    return evaluateExpressionTree(parseTokens(tokens, Map.of()), null);
+}
+
+/**
+ * Builds the token tree of an expression that was already split into tokens by the Lexer. IDENTIFIER tokens become
+ * references to the given variables, so the tree can be built once and evaluated many times with {@link #evaluate}.
+ */
+public static TokenNode parseTokens(List<Token> tokens, Map<String, Variable> variables) throws Exception {
+    ArrayList<Token> mathTokens = new ArrayList<>();
+    for (Token token : tokens) {
+        switch (token.getType()) {
+            case INT:
+                // exactly, an INT literal above 2^53 is not rounded to a double
+                mathTokens.add(new Token(TokenType.INT, token.getInteger()));
+                break;
+            case FLOAT:
+                double number = Double.isNaN(token.getVal()) ? Double.parseDouble(token.getValue()) : token.getVal();
+                mathTokens.add(new Token(TokenType.INT, number));
+                break;
+            case IDENTIFIER:
+                if (!variables.containsKey(token.getValue()))
+                    throw new Exception();
+                mathTokens.add(token);
+                break;
+            case OPERATOR:
+            case DELIMITER: {
+                TokenType tokenType = token.getValue().length() == 1
+                        ? TokenUtils.getOperationToken(token.getValue().charAt(0))
+                        : null;
+                if (tokenType == null)
+                    throw new Exception();
+                mathTokens.add(new Token(tokenType));
+                break;
+            }
+            default:
+                throw new Exception();
+        }
+    }
+    return new Parser(variables).parseTokens(mathTokens);
+}
+
+/**
+ * Evaluates a token tree built by {@link #parseTokens(List, Map)} against the current values of its variables
+ *
+ * @throws IllegalStateException if a variable in the tree has no value yet
+ */
+public static double evaluate(TokenNode expressionTree, VariableValues values) {
+    return evaluateExpressionTree(expressionTree, values);
+}
+
+/**
+ * Evaluates the tree of an INT expression in exact 64-bit integer arithmetic: / truncates and % keeps the sign of the
+ * dividend, as for Java longs. Only for trees whose literals and variables are all INT.
+ *
+ * @throws IllegalStateException if a variable in the tree has no value yet
+ * @throws ArithmeticException on a division by zero, or when a result does not fit in a long
+ */
+public static long evaluateLong(TokenNode expressionTree, VariableValues values) {
+    return evaluateLongTree(expressionTree, values);
 }
 
 public static boolean getLogicalResult(String inputString) throws Exception {
-    TokenNode expressionTree = Parser.parseTokens(Lexer.getMathTokens(inputString));
+    TokenNode expressionTree = new Parser(Map.of()).parseTokens(Lexer.getMathTokens(inputString));
     return evaluateLogicalExpressionTree(expressionTree);
 }
 
@@ -28,31 +97,134 @@ public static boolean getLogicalResult(String inputString) throws Exception {
  *
  * @return the result of the mathematical expression
  */
-private static double evaluateExpressionTree(TokenNode node) {
+private static double evaluateExpressionTree(TokenNode node, VariableValues values) {
+    double result;
+    switch (node.type) {
+        case INT: {
+            result = node.nodeValue;
+            break;
+        }
+        case IDENTIFIER: {
+            if (!values.isInitialized(node.slot))
+                throw new IllegalStateException("Variable: " + node.name + " has no value");
+            result = node.valueType == TokenType.INT ? values.getInt(node.slot) : values.getFloat(node.slot);
+            break;
+        }
+        case MULTIPLY: {
+            result = evaluateExpressionTree(node.operand1, values) * evaluateExpressionTree(node.operand2, values);
+            break;
+        }
+        case DIVIDE: {
+            result = evaluateExpressionTree(node.operand1, values) / evaluateExpressionTree(node.operand2, values);
+            break;
+        }
+        case PLUS: {
+            result = evaluateExpressionTree(node.operand1, values) + evaluateExpressionTree(node.operand2, values);
+            break;
+        }
+        case MINUS: {
+            result = evaluateExpressionTree(node.operand1, values) - evaluateExpressionTree(node.operand2, values);
+            break;
+        }
+        case MODULO: {
+            result = evaluateExpressionTree(node.operand1, values) % evaluateExpressionTree(node.operand2, values);
+            break;
+        }
+        default: {
+            // if somehow an invalid token gets processed by the Parser/Tokenizer
+            throw new InternalError("Unknown Error Encountered");
+        }
+    }
+    return node.isNegative() ? -result : result;
+}
+
+private static long evaluateLongTree(TokenNode node, VariableValues values) {
+    long result;
     switch (node.type) {
         case INT: {
-            return node.isNegative() ? -node.nodeValue : node.nodeValue;
+            result = node.integer;
+            break;
+        }
+        case IDENTIFIER: {
+            if (!values.isInitialized(node.slot))
+                throw new IllegalStateException("Variable: " + node.name + " has no value");
+            result = values.getInt(node.slot);
+            break;
         }
         case MULTIPLY: {
-            return evaluateExpressionTree(node.operand1) * evaluateExpressionTree(node.operand2);
+            result = multiply(evaluateLongTree(node.operand1, values), evaluateLongTree(node.operand2, values));
+            break;
         }
         case DIVIDE: {
-            return evaluateExpressionTree(node.operand1) / evaluateExpressionTree(node.operand2);
+            result = divide(evaluateLongTree(node.operand1, values), evaluateLongTree(node.operand2, values));
+            break;
         }
         case PLUS: {
-            return evaluateExpressionTree(node.operand1) + evaluateExpressionTree(node.operand2);
+            result = add(evaluateLongTree(node.operand1, values), evaluateLongTree(node.operand2, values));
+            break;
         }
         case MINUS: {
-            return evaluateExpressionTree(node.operand1) - evaluateExpressionTree(node.operand2);
+            result = add(evaluateLongTree(node.operand1, values), negate(evaluateLongTree(node.operand2, values)));
+            break;
         }
         case MODULO: {
-            return evaluateExpressionTree(node.operand1) % evaluateExpressionTree(node.operand2);
+            result = modulo(evaluateLongTree(node.operand1, values), evaluateLongTree(node.operand2, values));
+            break;
         }
         default: {
             // if somehow an invalid token gets processed by the Parser/Tokenizer
             throw new InternalError("Unknown Error Encountered");
         }
     }
+    return node.isNegative() ? negate(result) : result;
+}
+
+// The operations of the integer arithmetic, also called by the code that codegen.LoopCompiler generates
+
+public static long add(long a, long b) {
+    long result = a + b;
+    // the sum overflowed if its sign differs from the signs of both operands
+    if (((a ^ result) & (b ^ result)) < 0)
+        throw new ArithmeticException("Integer overflow");
+    return result;
+}
+
+public static long negate(long a) {
+    if (a == Long.MIN_VALUE)
+        throw new ArithmeticException("Integer overflow");
+    return -a;
+}
+
+public static long multiply(long a, long b) {
+    long high = Math.multiplyHigh(a, b);
+    long result = a * b;
+    // the product fits in a long if the high half is only the sign extension of the low half
+    if (high != (result >> 63))
+        throw new ArithmeticException("Integer overflow");
+    return result;
+}
+
+public static long divide(long dividend, long divisor) {
+    if (divisor == 0)
+        throw new ArithmeticException("Division by zero");
+    if (dividend == Long.MIN_VALUE && divisor == -1)
+        throw new ArithmeticException("Integer overflow");
+    return dividend / divisor;
+}
+
+public static long modulo(long dividend, long divisor) {
+    if (divisor == 0)
+        throw new ArithmeticException("Division by zero");
+    return dividend % divisor;
+}
+
+/**
+ * Narrows the result of an INT expression to the INT it is stored as
+ */
+public static int toInt(long value) {
+    if (value != (int) value)
+        throw new ArithmeticException("Integer overflow");
+    return (int) value;
 }
 
 private static boolean evaluateLogicalExpressionTree(TokenNode node){
@@ -65,17 +237,26 @@ private static boolean evaluateLogicalExpressionTree(TokenNode node){
         } 
     }
 }
-    private class Parser
+    /**
+     * Parses one expression; a new Parser is used for every expression, so parsing is safe from any thread
+     */
+    private static class Parser
      {
         // to iterate over all tokens in the token list passed from the lexer
-        private static ListIterator<Token> tokenIter;
+        private ListIterator<Token> tokenIter;
+        // variables that IDENTIFIER tokens may refer to
+        private final Map<String, Variable> variables;
+
+        Parser(Map<String, Variable> variables) {
+            this.variables = variables;
+        }
 
         /**
          * Parse the list of tokens passed in and build a tree to evaluate results
          *
          * @param tokenList ArrayList of all the valid tokens to be parsed
          */
-        public static TokenNode parseTokens(ArrayList<Token> tokenList) throws Exception {
+        public TokenNode parseTokens(ArrayList<Token> tokenList) throws Exception {
             tokenIter = tokenList.listIterator();
             TokenNode result = expression(tokenIter.next());
     
@@ -88,7 +269,7 @@ private static boolean evaluateLogicalExpressionTree(TokenNode node){
         /**
          * Create an expression from the generated tokens of the input
          */
-        static TokenNode expression(Token current) throws Exception {
+        TokenNode expression(Token current) throws Exception {
             TokenNode currentExpr = term(current);
     
             while (tokenIter.hasNext()) {
@@ -117,7 +298,7 @@ private static boolean evaluateLogicalExpressionTree(TokenNode node){
         /**
          * Create terms from the factors in the expression
          */
-        static TokenNode term(Token current) throws Exception {
+        TokenNode term(Token current) throws Exception {
             TokenNode currentTerm = factor(current);
     
             while (tokenIter.hasNext()) {
@@ -144,7 +325,7 @@ private static boolean evaluateLogicalExpressionTree(TokenNode node){
         /**
          * Create a tokenNode for the factors in the terms of the expression
          */
-        static TokenNode factor(Token current) throws Exception {
+        TokenNode factor(Token current) throws Exception {
             switch (current.getType()) {
                 // an bracket enclosed expression found.
                 case PAREN_OPEN: {
@@ -170,6 +351,11 @@ private static boolean evaluateLogicalExpressionTree(TokenNode node){
                 case INT: {
                     return new TokenNode(current);
                 }
+                // a variable found
+                case IDENTIFIER: {
+                    Variable variable = variables.get(current.getValue());
+                    return new TokenNode(variable.name, variable.slot, variable.type);
+                }
 
                 // unexpected token at start
                 default: {
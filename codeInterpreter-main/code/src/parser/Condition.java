@@ -0,0 +1,288 @@
+package parser;
+
+/**
+ * A BOOL expression compiled by {@link LogicalCalculator#compile}. It is evaluated on primitive values read from the
+ * variables, without creating tokens, and AND and OR skip their right operand when the left one decides the result.
+ * <p>
+ * The tree is built once, when the expression is parsed, and holds no state of a run. Its nodes can be walked with a
+ * {@link Visitor}.
+ */
+public abstract class Condition {
+    static final Condition TRUE = constant(true);
+    static final Condition FALSE = constant(false);
+
+    public abstract boolean test(VariableValues values);
+
+    public abstract void accept(Visitor visitor);
+
+    /**
+     * Receives the node a Condition is made of, with its operands
+     */
+    public interface Visitor {
+        void constant(boolean value);
+
+        void variable(int slot);
+
+        void not(Condition operand);
+
+        void and(Condition left, Condition right);
+
+        void or(Condition left, Condition right);
+
+        void notEqual(Condition left, Condition right);
+
+        /**
+         * left operator right for one of > < >= <= == <>
+         */
+        void compare(String operator, Operand left, Operand right);
+    }
+
+    static Condition constant(boolean value) {
+        return new Condition() {
+            public boolean test(VariableValues values) {
+                return value;
+            }
+
+            public void accept(Visitor visitor) {
+                visitor.constant(value);
+            }
+        };
+    }
+
+    static Condition variable(int slot) {
+        return new Condition() {
+            public boolean test(VariableValues values) {
+                return values.getBool(slot);
+            }
+
+            public void accept(Visitor visitor) {
+                visitor.variable(slot);
+            }
+        };
+    }
+
+    static Condition not(Condition operand) {
+        return new Condition() {
+            public boolean test(VariableValues values) {
+                return !operand.test(values);
+            }
+
+            public void accept(Visitor visitor) {
+                visitor.not(operand);
+            }
+        };
+    }
+
+    static Condition and(Condition left, Condition right) {
+        return new Condition() {
+            public boolean test(VariableValues values) {
+                return left.test(values) && right.test(values);
+            }
+
+            public void accept(Visitor visitor) {
+                visitor.and(left, right);
+            }
+        };
+    }
+
+    static Condition or(Condition left, Condition right) {
+        return new Condition() {
+            public boolean test(VariableValues values) {
+                return left.test(values) || right.test(values);
+            }
+
+            public void accept(Visitor visitor) {
+                visitor.or(left, right);
+            }
+        };
+    }
+
+    static Condition notEqual(Condition left, Condition right) {
+        return new Condition() {
+            public boolean test(VariableValues values) {
+                return left.test(values) != right.test(values);
+            }
+
+            public void accept(Visitor visitor) {
+                visitor.notEqual(left, right);
+            }
+        };
+    }
+
+    /**
+     * Compares two numbers with one of > < >= <= == <>
+     */
+    static Condition compare(String operator, Operand left, Operand right) {
+        switch (operator) {
+            case ">":
+                return new Comparison(operator, left, right) {
+                    public boolean test(VariableValues values) {
+                        return left.value(values) > right.value(values);
+                    }
+                };
+            case "<":
+                return new Comparison(operator, left, right) {
+                    public boolean test(VariableValues values) {
+                        return left.value(values) < right.value(values);
+                    }
+                };
+            case ">=":
+                return new Comparison(operator, left, right) {
+                    public boolean test(VariableValues values) {
+                        return left.value(values) >= right.value(values);
+                    }
+                };
+            case "<=":
+                return new Comparison(operator, left, right) {
+                    public boolean test(VariableValues values) {
+                        return left.value(values) <= right.value(values);
+                    }
+                };
+            case "==":
+                return new Comparison(operator, left, right) {
+                    public boolean test(VariableValues values) {
+                        return left.value(values) == right.value(values);
+                    }
+                };
+            case "<>":
+                return new Comparison(operator, left, right) {
+                    public boolean test(VariableValues values) {
+                        return left.value(values) != right.value(values);
+                    }
+                };
+            default:
+                throw new IllegalArgumentException("Not a comparison: " + operator);
+        }
+    }
+
+    private abstract static class Comparison extends Condition {
+        final String operator;
+        final Operand left, right;
+
+        Comparison(String operator, Operand left, Operand right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        public void accept(Visitor visitor) {
+            visitor.compare(operator, left, right);
+        }
+    }
+
+    /**
+     * A number compared by a Condition
+     */
+    public abstract static class Operand {
+        abstract double value(VariableValues values);
+
+        public abstract void accept(Visitor visitor);
+
+        /**
+         * Receives the node an Operand is made of, with its operands
+         */
+        public interface Visitor {
+            void constant(double value);
+
+            void intVariable(int slot);
+
+            void floatVariable(int slot);
+
+            /**
+             * left operator right for one of + - * / %
+             */
+            void arithmetic(char operator, Operand left, Operand right);
+        }
+
+        static Operand constant(double value) {
+            return new Operand() {
+                double value(VariableValues values) {
+                    return value;
+                }
+
+                public void accept(Visitor visitor) {
+                    visitor.constant(value);
+                }
+            };
+        }
+
+        static Operand intVariable(int slot) {
+            return new Operand() {
+                double value(VariableValues values) {
+                    return values.getInt(slot);
+                }
+
+                public void accept(Visitor visitor) {
+                    visitor.intVariable(slot);
+                }
+            };
+        }
+
+        static Operand floatVariable(int slot) {
+            return new Operand() {
+                double value(VariableValues values) {
+                    return values.getFloat(slot);
+                }
+
+                public void accept(Visitor visitor) {
+                    visitor.floatVariable(slot);
+                }
+            };
+        }
+
+        /**
+         * left operator right for one of + - * / %
+         */
+        static Operand arithmetic(char operator, Operand left, Operand right) {
+            switch (operator) {
+                case '+':
+                    return new Arithmetic(operator, left, right) {
+                        double value(VariableValues values) {
+                            return left.value(values) + right.value(values);
+                        }
+                    };
+                case '-':
+                    return new Arithmetic(operator, left, right) {
+                        double value(VariableValues values) {
+                            return left.value(values) - right.value(values);
+                        }
+                    };
+                case '*':
+                    return new Arithmetic(operator, left, right) {
+                        double value(VariableValues values) {
+                            return left.value(values) * right.value(values);
+                        }
+                    };
+                case '/':
+                    return new Arithmetic(operator, left, right) {
+                        double value(VariableValues values) {
+                            return left.value(values) / right.value(values);
+                        }
+                    };
+                case '%':
+                    return new Arithmetic(operator, left, right) {
+                        double value(VariableValues values) {
+                            return left.value(values) % right.value(values);
+                        }
+                    };
+                default:
+                    throw new IllegalArgumentException("Not an arithmetic operator: " + operator);
+            }
+        }
+    }
+
+    private abstract static class Arithmetic extends Operand {
+        final char operator;
+        final Operand left, right;
+
+        Arithmetic(char operator, Operand left, Operand right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        public void accept(Operand.Visitor visitor) {
+            visitor.arithmetic(operator, left, right);
+        }
+    }
+}
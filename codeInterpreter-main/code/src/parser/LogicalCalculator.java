@@ -2,58 +2,150 @@ package parser;
 
 import java.util.*;
 
+import ast.Variable;
 import lexer.Token;
 import lexer.TokenType;
 
+/**
+ * Compiles a BOOL expression into a {@link Condition}. Operands and operators are ordered by a shunting-yard pass
+ * over the tokens, and every operator becomes a node of the tree instead of being applied to a stack of tokens.
+ * <p>
+ * The compiled tree gives the same results the token evaluation always has: a number used where a BOOL is expected
+ * is false, NOT of a number is true, and an operator that does not apply to its operands is false.
+ */
 public class LogicalCalculator {
-    private Stack<Token> operandStack;
-    private Stack<Token> operatorStack;
-
-    public LogicalCalculator() {
-        operandStack = new Stack<>();
-        operatorStack = new Stack<>();
-    }
 
     public boolean evaluate(List<Token> tokens) {
+        List<Object> operands = new ArrayList<>(tokens.size());
         for (Token token : tokens) {
-            // Visualize token being processed
+            operands.add(operand(token));
+        }
+        // a tree of constants reads no variables
+        return build(tokens, operands).test(null);
+    }
+
+    /**
+     * Compiles an expression of the parser, where references[i] is the variable of tokens.get(i). Every
+     * number-operator-number run is folded into one operand first, as the Interpreter does with the values.
+     *
+     * @return the compiled expression, or null if evaluating it fails; the Interpreter then evaluates the tokens to
+     *         report the error
+     */
+    public static Condition compile(List<Token> tokens, Variable[] references) {
+        // build only reads the type of an operand token
+        List<Token> folded = new ArrayList<>(tokens.size());
+        List<Object> operands = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            Variable variable = references[i];
+            if (variable != null && variable.type == TokenType.CHAR) {
+                // its value could be an arithmetic operator
+                return null;
+            }
+            Token token = tokens.get(i);
+            if (i < tokens.size() - 2 && isNumber(token, variable) && SyntaxAnalyzer.isArithOperator(tokens.get(i + 1))) {
+                Token operator = tokens.get(i + 1);
+                if (operator.getType() != TokenType.OPERATOR && operator.getType() != TokenType.DELIMITER
+                        || !isNumber(tokens.get(i + 2), references[i + 2])) {
+                    return null;
+                }
+                Object left = operand(token, variable);
+                Object right = operand(tokens.get(i + 2), references[i + 2]);
+                if (!(left instanceof Condition.Operand) || !(right instanceof Condition.Operand)) {
+                    return null;
+                }
+                folded.add(new Token(TokenType.FLOAT, token.getValue()));
+                operands.add(Condition.Operand.arithmetic(operator.getValue().charAt(0), (Condition.Operand) left,
+                        (Condition.Operand) right));
+                i += 2;
+            } else {
+                folded.add(variable != null ? new Token(variable.type, variable.name) : token);
+                operands.add(operand(token, variable));
+            }
+        }
+        try {
+            return build(folded, operands);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean isNumber(Token token, Variable variable) {
+        TokenType type = variable != null ? variable.type : token.getType();
+        return type == TokenType.INT || type == TokenType.FLOAT;
+    }
+
+    private static Object operand(Token token, Variable variable) {
+        if (variable == null) {
+            return operand(token);
+        }
+        switch (variable.type) {
+            case INT:
+                return Condition.Operand.intVariable(variable.slot);
+            case FLOAT:
+                return Condition.Operand.floatVariable(variable.slot);
+            default:
+                return Condition.variable(variable.slot);
+        }
+    }
 
-            if (token.getType() == TokenType.BOOL || token.getType() == TokenType.INT
-                    || token.getType() == TokenType.FLOAT) {
-                operandStack.push(token);
-            } else if (token.getType() == TokenType.OPERATOR || token.getType() == TokenType.KEYWORD) {
+    // the operand of a BOOL, INT or FLOAT literal; a number that does not parse is kept as its token
+    private static Object operand(Token token) {
+        switch (token.getType()) {
+            case BOOL:
+                return token.getBool() ? Condition.TRUE : Condition.FALSE;
+            case INT:
+            case FLOAT:
+                try {
+                    return Condition.Operand.constant(token.getNumber());
+                } catch (NumberFormatException e) {
+                    return token;
+                }
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Builds the tree of the tokens, where operands.get(i) is the operand of tokens.get(i): a Condition for a BOOL,
+     * an Operand or a Token for a number, null for anything else
+     */
+    private static Condition build(List<Token> tokens, List<Object> operands) {
+        Deque<Object> operandStack = new ArrayDeque<>();
+        Deque<Token> operatorStack = new ArrayDeque<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            TokenType type = token.getType();
+            if (type == TokenType.BOOL || type == TokenType.INT || type == TokenType.FLOAT) {
+                operandStack.push(operands.get(i));
+            } else if (type == TokenType.OPERATOR || type == TokenType.KEYWORD) {
                 while (!operatorStack.isEmpty() && hasPrecedence(operatorStack.peek(), token)) {
-                    performOperation();
+                    apply(operatorStack.pop(), operandStack);
                 }
                 operatorStack.push(token);
-            } else if (token.getType() == TokenType.DELIMITER && token.getValue().equals("(")) {
+            } else if (type == TokenType.DELIMITER && token.getValue().equals("(")) {
                 operatorStack.push(token);
-            } else if (token.getType() == TokenType.DELIMITER && token.getValue().equals(")")) {
+            } else if (type == TokenType.DELIMITER && token.getValue().equals(")")) {
                 while (!operatorStack.isEmpty() && operatorStack.peek().getType() != TokenType.DELIMITER) {
-                    performOperation();
+                    apply(operatorStack.pop(), operandStack);
                 }
-                if (!operatorStack.isEmpty() && operatorStack.peek().getType() == TokenType.DELIMITER) {
-                    operatorStack.pop(); // Remove the "("
-                } else {
+                if (operatorStack.isEmpty()) {
                     throw new IllegalArgumentException("Mismatched parentheses");
                 }
+                operatorStack.pop(); // Remove the "("
             }
-
         }
 
         while (!operatorStack.isEmpty()) {
-            performOperation();
+            apply(operatorStack.pop(), operandStack);
         }
 
-        if (operandStack.size() != 1 || operatorStack.size() != 0) {
+        if (operandStack.size() != 1) {
             throw new IllegalArgumentException("Invalid expression");
         }
-
-        Token resultToken = operandStack.pop();
-        return Boolean.parseBoolean(resultToken.getValue());
+        return bool(operandStack.pop());
     }
 
-    private boolean hasPrecedence(Token op1, Token op2) {
+    private static boolean hasPrecedence(Token op1, Token op2) {
         if ((op2.getType() == TokenType.KEYWORD && op2.getValue().equalsIgnoreCase("NOT")) ||
                 (op1.getType() == TokenType.KEYWORD
                         && (op1.getValue().equalsIgnoreCase("AND") || op1.getValue().equalsIgnoreCase("OR")))) {
@@ -67,62 +159,61 @@ public class LogicalCalculator {
         return false;
     }
 
-    private void performOperation() {
-        Token operator = operatorStack.pop();
-
+    private static void apply(Token operator, Deque<Object> operandStack) {
         if (operator.getType() == TokenType.KEYWORD && operator.getValue().equals("NOT")) {
-            Token operand = operandStack.pop();
-            boolean operandValue = Boolean.parseBoolean(operand.getValue());
-            operandStack.push(new Token(TokenType.BOOL, String.valueOf(!operandValue)));
-        } else {
-            Token operand2 = operandStack.pop();
-            Token operand1 = operandStack.pop();
-            boolean result = false;
-
-            if (operand1.getType() == TokenType.BOOL || operand2.getType() == TokenType.BOOL) {
-                boolean operand1Value = Boolean.parseBoolean(operand1.getValue());
-                boolean operand2Value = Boolean.parseBoolean(operand2.getValue());
-
-                // Apply logical operator
-                switch (operator.getValue()) {
-                    case "AND":
-                        result = operand1Value && operand2Value;
-                        break;
-                    case "OR":
-                        result = operand1Value || operand2Value;
-                        break;
-                    case "<>":
-                        result = operand1Value != operand2Value;
-                        break;
-                }
-            } else {
-                double operand1Num = Double.parseDouble(operand1.getValue());
-                double operand2Num = Double.parseDouble(operand2.getValue());
-
-                // Apply Compare operator
-                switch (operator.getValue()) {
-                    case ">":
-                        result = operand1Num > operand2Num;
-                        break;
-                    case "<":
-                        result = operand1Num < operand2Num;
-                        break;
-                    case ">=":
-                        result = operand1Num >= operand2Num;
-                        break;
-                    case "<=":
-                        result = operand1Num <= operand2Num;
-                        break;
-                    case "==":
-                        result = operand1Num == operand2Num;
-                        break;
-                    case "<>":
-                        result = operand1Num != operand2Num;
-                        break;
-                    default:
-                }
+            Object operand = pop(operandStack);
+            operandStack.push(operand instanceof Condition ? Condition.not((Condition) operand) : Condition.TRUE);
+            return;
+        }
+        Object operand2 = pop(operandStack);
+        Object operand1 = pop(operandStack);
+
+        if (operand1 instanceof Condition || operand2 instanceof Condition) {
+            Condition left = bool(operand1);
+            Condition right = bool(operand2);
+            switch (operator.getValue()) {
+                case "AND":
+                    operandStack.push(Condition.and(left, right));
+                    return;
+                case "OR":
+                    operandStack.push(Condition.or(left, right));
+                    return;
+                case "<>":
+                    operandStack.push(Condition.notEqual(left, right));
+                    return;
+                default:
+                    operandStack.push(Condition.FALSE);
+                    return;
             }
-            operandStack.push(new Token(TokenType.BOOL, String.valueOf(result)));
         }
+
+        if (!(operand1 instanceof Condition.Operand) || !(operand2 instanceof Condition.Operand)) {
+            throw new IllegalArgumentException("Not a number: " + (operand1 instanceof Token ? operand1 : operand2));
+        }
+        switch (operator.getValue()) {
+            case ">":
+            case "<":
+            case ">=":
+            case "<=":
+            case "==":
+            case "<>":
+                operandStack.push(Condition.compare(operator.getValue(), (Condition.Operand) operand1,
+                        (Condition.Operand) operand2));
+                return;
+            default:
+                operandStack.push(Condition.FALSE);
+        }
+    }
+
+    private static Object pop(Deque<Object> operandStack) {
+        if (operandStack.isEmpty()) {
+            throw new IllegalArgumentException("Missing operand");
+        }
+        return operandStack.pop();
+    }
+
+    // a number is false where a BOOL is expected
+    private static Condition bool(Object operand) {
+        return operand instanceof Condition ? (Condition) operand : Condition.FALSE;
     }
 }
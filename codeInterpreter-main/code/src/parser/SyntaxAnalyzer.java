@@ -2,644 +2,410 @@ package parser;
 
 import java.util.*;
 
+import ast.AssignStatement;
+import ast.DeclareStatement;
+import ast.DisplayStatement;
+import ast.Expression;
+import ast.IfStatement;
+import ast.Program;
+import ast.ScanStatement;
+import ast.Statement;
+import ast.Variable;
+import ast.WhileStatement;
+import lexer.CodeException;
 import lexer.Token;
+import lexer.TokenCursor;
+import lexer.TokenNode;
+import lexer.TokenStream;
 import lexer.TokenType;
 
+/**
+ * Front end of the interpreter. Walks the token stream exactly once and builds the {@link Program} tree that the
+ * {@link interpreter.Interpreter} executes.
+ */
 public class SyntaxAnalyzer {
-    private List<Token> tokens;
-    private int tokenIndex;
-    private boolean begin_code;
-    private Map<String, Token> variables;
-    Scanner scanner;
+    private TokenCursor cursor;
+    // declared variables by name, each resolved to the next free slot
+    private Map<String, Variable> variables;
+
+    public SyntaxAnalyzer(TokenStream tokens) {
+        this(tokens.cursor());
+    }
+
+    /**
+     * Parses the tokens as the cursor hands them out, e.g. from a {@link lexer.TokenWindow} over a streaming Lexer
+     */
+    public SyntaxAnalyzer(TokenCursor cursor) {
+        this.cursor = cursor;
+        this.variables = new LinkedHashMap<>();
+    }
 
     public SyntaxAnalyzer(List<Token> tokens) {
-        this.tokens = tokens;
-        this.tokenIndex = 0;
-        this.begin_code = false;
-        this.variables = new HashMap<>();
-        this.scanner = new Scanner(System.in);
-        ;
+        this(TokenStream.of(tokens));
     }
 
     private Token currentToken() {
-        if (tokenIndex < tokens.size()) {
-            return tokens.get(tokenIndex);
-        } else {
-            return null; // No more tokens left
-        }
+        return cursor.token();
     }
 
     private TokenType currentTokenType() {
-        return currentToken().getType();
+        return cursor.type();
     }
 
     private String currentTokenValue() {
-        return currentToken().getValue();
-    }
-
-    private Token nextToken() {
-        if (tokenIndex < tokens.size()) {
-            return tokens.get(tokenIndex + 1);
-        } else {
-            return null; // No more tokens left
-        }
+        return cursor.value();
     }
 
     private TokenType nextTokenType() {
-        return nextToken().getType();
-    }
-
-    private String nextTokenValue() {
-        return nextToken().getValue();
+        return cursor.peekType();
     }
 
     private void eat() {
-        tokenIndex++;
+        cursor.advance();
     }
 
     private void matchToken(TokenType type) {
-        if (tokenIndex < tokens.size()) {
-            Token currentToken = tokens.get(tokenIndex);
-            if (currentToken.getType() == type) {
-                eat();
-            } else {
-                error("Mismatch Token: Expected = " + type + " || Current = " + currentToken.getType());
-            }
+        if (cursor.type() == type) {
+            eat();
+        } else {
+            error("Mismatch Token: Expected = " + type + " || Current = " + cursor.type());
         }
     }
 
     private void matchToken(TokenType type, String value) {
-        if (tokenIndex < tokens.size()) {
-            Token currentToken = tokens.get(tokenIndex);
-            if (currentToken.getType() == type && currentToken.getValue().equals(value)) {
-                eat();
-            } else {
-                error("Mismatch Token: Expected Type = " + type + " Expected Value = " + value + " || Current type = "
-                        + currentToken.getType() + " Current value = " + currentToken.getValue());
-            }
+        if (cursor.is(type, value)) {
+            eat();
+        } else {
+            error("Mismatch Token: Expected Type = " + type + " Expected Value = " + value + " || Current type = "
+                    + cursor.type() + " Current value = " + cursor.value());
         }
     }
 
-    public void parse() {
-        while (tokenIndex < tokens.size()) {
-            statement();
+    public Program parse() {
+        // everything before BEGIN CODE is ignored
+        while (!isKeyword("BEGIN") || !cursor.peekValueEquals("CODE")) {
+            if (currentTokenType() == TokenType.EOF) {
+                error("Expected BEGIN CODE");
+            }
+            eat();
         }
-        if (tokenIndex < tokens.size()) {
-            error("Exceeded expected tokens: Max amount = " + tokens.size() + " || Current Amount = " + tokenIndex);
+        matchToken(TokenType.KEYWORD, "BEGIN");
+        matchToken(TokenType.KEYWORD, "CODE");
+        if (currentTokenType() != TokenType.NEWLINE) {
+            error("Expected a NEWLINE");
         }
-    }
 
-    public int countNewline(int from, int to) {
-        int count = 0;
-        for (int i = from; i < to + 1; i++) {
-            if (tokens.get(i).getType() == TokenType.NEWLINE)
-                count++;
+        List<Statement> statements = block("CODE");
+
+        skipNewlines();
+        if (currentTokenType() != TokenType.EOF) {
+            error("Expected a EOF");
         }
-        return count;
+        return new Program(statements, new ArrayList<>(variables.values()));
     }
 
-    private void statement() {
-        if (!begin_code && !tokens.get(tokenIndex).getValue().equals("BEGIN")
-                && !tokens.get(tokenIndex).getValue().equals("CODE")) {
-            eat();
-            return;
+    // Parses statements up to and including END <endKeyword>
+    private List<Statement> block(String endKeyword) {
+        List<Statement> statements = new ArrayList<>();
+        while (true) {
+            skipNewlines();
+            if (currentTokenType() == TokenType.EOF) {
+                error("Expected END " + endKeyword);
+            }
+            if (isKeyword("END")) {
+                break;
+            }
+            statements.add(statement());
         }
+        matchToken(TokenType.KEYWORD, "END");
+        matchToken(TokenType.KEYWORD, endKeyword);
+        return statements;
+    }
 
-        if (tokenIndex < tokens.size()) {
-            Token currentToken = tokens.get(tokenIndex);
-            if (currentToken.getType() == TokenType.IDENTIFIER) {
-                assignmentStatement();
-            } else if (currentToken.getType() == TokenType.NEWLINE) {
-                eat();
-            } else if (currentToken.getType() == TokenType.KEYWORD) {
-                switch (currentToken.getValue()) {
-                    case "BEGIN":
-                        eat();
-                        beginStatement();
-                        break;
-                    case "END":
-                        eat();
-                        endStatement();
-                        break;
-                    case "INT":
-                    case "CHAR":
-                    case "BOOL":
-                    case "FLOAT":
-                        eat();
-                        declareStatement(currentToken.getValue());
-                        break;
-                    case "DISPLAY":
-                        eat();
-                        matchToken(TokenType.DELIMITER, ":");
-                        displayStatement();
-                        break;
-                    case "SCAN":
-                        eat();
-                        matchToken(TokenType.DELIMITER, ":");
-                        scanStatement();
-                        break;
-                    case "IF":
-                        eat();
-                        ifStatement();
-                        break;
-                    case "WHILE":
-                        eat();
-                        whileStatement();
-                        break;
-                }
-            } else {
-                error("Invalid statement:" + currentToken);
+    private Statement statement() {
+        int line = cursor.line();
+        if (currentTokenType() == TokenType.IDENTIFIER) {
+            return assignmentStatement(line);
+        } else if (currentTokenType() == TokenType.KEYWORD) {
+            String keyword = currentTokenValue();
+            switch (keyword) {
+                case "INT":
+                case "CHAR":
+                case "BOOL":
+                case "FLOAT":
+                    eat();
+                    return declareStatement(keyword, line);
+                case "DISPLAY":
+                    eat();
+                    matchToken(TokenType.DELIMITER, ":");
+                    return displayStatement(line);
+                case "SCAN":
+                    eat();
+                    matchToken(TokenType.DELIMITER, ":");
+                    return scanStatement(line);
+                case "IF":
+                    eat();
+                    return ifStatement(line);
+                case "WHILE":
+                    eat();
+                    return whileStatement(line);
             }
         }
+        error("Invalid statement:" + currentToken());
+        return null;
     }
 
-    private void assignmentStatement() {
-        ArrayList<Token> identifiers = new ArrayList<>();
+    // ex. x = y = 4 + z
+    private Statement assignmentStatement(int line) {
+        List<String> identifiers = new ArrayList<>();
 
-        identifiers.add(currentToken());
+        identifiers.add(currentTokenValue());
         matchToken(TokenType.IDENTIFIER);
         matchToken(TokenType.ASSIGNMENT, "=");
 
-        List<Token> tokens = new LinkedList<>();
-
-        while (currentTokenType() != TokenType.NEWLINE) {
-            if (currentTokenType() == TokenType.ASSIGNMENT) {
-                eat(); // eat the ASSIGNMENT token
-            } else if (currentTokenType() == TokenType.IDENTIFIER
-                    && !isNextType(TokenType.OPERATOR, TokenType.NEWLINE, TokenType.DELIMITER)) {
-                identifiers.add(currentToken());
-                eat(); // eat the IDENTIFIER token
-            } else if (isCurrentType(TokenType.INT, TokenType.FLOAT, TokenType.DELIMITER, TokenType.BOOL,
-                    TokenType.CHAR, TokenType.IDENTIFIER)) {
-                while (currentTokenType() != TokenType.NEWLINE) {
-                    if (isLogicalOperator(nextTokenValue())) {
-                        tokens.add(new Token(TokenType.DELIMITER, "("));
-                        tokens.add(getVariableToken());
-                        eat();
-                        tokens.add(currentToken());
-                        eat();
-                        tokens.add(getVariableToken());
-                        eat();
-                        tokens.add(new Token(TokenType.DELIMITER, ")"));
-                    } else {
-                        tokens.add(getVariableToken());
-                        eat();
-                    }
-                }
-            }
+        while (currentTokenType() == TokenType.IDENTIFIER && nextTokenType() == TokenType.ASSIGNMENT) {
+            identifiers.add(currentTokenValue());
+            eat(); // eat the IDENTIFIER token
+            eat(); // eat the ASSIGNMENT token
         }
 
-        for (Token var : identifiers) {
-            if (variables.containsKey(var.getValue())) {
-                StringBuilder tokenValuesBuilder = new StringBuilder();
-                for (Token token : tokens) {
-                    if (token.getType() == TokenType.IDENTIFIER)
-                        tokenValuesBuilder.append(variables.get(token.getValue()));
-                    else
-                        tokenValuesBuilder.append(token.getValue());
-                }
-                if (isLogicalStatement(tokens)) {
-                    LogicalCalculator logicalCalculator = new LogicalCalculator();
-                    variables.get(var.getValue()).setValue(Boolean.toString(logicalCalculator.evaluate(tokens)));
-                } else if (containsFloat(tokens)) {
-                    try {
-                        variables.get(var.getValue())
-                                .setValue(Double.toString(Calculator.getResult(tokenValuesBuilder.toString())));
-                    } catch (Exception ignored) {
-                        System.out.println("Invalid Input");
-                    }
-                } else if (containsChar(tokens)) {
-                    // Handle CHAR datatype assignment
-                    String charValue = tokens.stream()
-                            .filter(t -> t.getType() == TokenType.CHAR)
-                            .findFirst()
-                            .map(Token::getValue)
-                            .orElseThrow(() -> new IllegalArgumentException("CHAR value missing"));
-                    variables.get(var.getValue()).setValue(charValue);
-                } else {
-                    try {
-                        variables.get(var.getValue())
-                                .setValue(Integer.toString((int) Calculator.getResult(tokenValuesBuilder.toString())));
-                    } catch (Exception ignored) {
-                        System.out.println("Invalid Input");
-                    }
-                }
-            } else
+        Expression value = expression(collectTokens(false));
+        List<Variable> targets = new ArrayList<>();
+        for (String var : identifiers) {
+            if (!variables.containsKey(var))
                 error("Variable: " + var + " must be declared first");
+            checkDataType(variables.get(var).type, value);
+            targets.add(variables.get(var));
         }
-        matchToken(TokenType.NEWLINE);
-    }
-
-    // Helper method to check if tokens contain CHAR type
-    private boolean containsChar(List<Token> tokens) {
-        return tokens.stream().anyMatch(t -> t.getType() == TokenType.CHAR);
-    }
-
-    private void beginStatement() {
-        if (tokens.get(tokenIndex).getValue().equals("CODE")) {
-            eat();
-            if (begin_code) {
-                error("Code has already started");
-            }
-            begin_code = true;
-            if (currentTokenType() == TokenType.NEWLINE) {
-                eat();
-            } else {
-                error("Expected a NEWLINE");
-            }
-        }
+        endOfStatement();
+        return new AssignStatement(targets, value, line);
     }
 
-    private void endStatement() {
-        if (tokens.get(tokenIndex).getValue().equals("CODE")) {
-            eat();
-            begin_code = false;
-            if (currentTokenType() == TokenType.NEWLINE) {
-                eat();
-            } else {
-                error("Expected a NEWLINE");
-            }
-
-            if (currentTokenType() == TokenType.EOF) {
-                eat();
-            } else {
-                error("Expected a EOF");
-            }
-            System.out.println("\nNo Error");
-        }
-    }
-
-    private void declareStatement(String value) {
+    private Statement declareStatement(String value, int line) {
         TokenType type = getVariableType(value);
+        List<String> names = new ArrayList<>();
+        List<Expression> initializers = new ArrayList<>();
 
-        while (currentTokenType() != TokenType.NEWLINE) {
-            if (currentTokenValue().equals(",")) {
-                matchToken(TokenType.DELIMITER);
+        while (currentTokenType() != TokenType.NEWLINE && currentTokenType() != TokenType.EOF) {
+            if (!names.isEmpty()) {
+                matchToken(TokenType.DELIMITER, ",");
             }
 
             String varname = currentTokenValue();
             matchToken(TokenType.IDENTIFIER);
+            if (variables.containsKey(varname) || names.contains(varname)) {
+                error("Variable name: " + varname + " is already declared");
+            }
 
-            if (currentTokenValue() == "=") {
+            Expression initializer = null;
+            if (currentTokenType() == TokenType.ASSIGNMENT) {
                 eat();
-                checkVariableDeclaration(varname, type);
-
-                if (nextTokenType() != TokenType.OPERATOR && currentTokenType() != TokenType.IDENTIFIER
-                        && currentTokenType() != TokenType.DELIMITER && currentTokenType() != TokenType.BOOL) {
-                    if (type == TokenType.INT) {
-                        currentToken().setValue(Integer.toString((int) currentToken().getDataType()));
-                    }
-                    variables.put(varname, currentToken());
-                    eat();
-                } else {
-                    StringBuilder tokenValuesBuilder = new StringBuilder();
-                    List<Token> logicalTokens = new LinkedList<>();
-                    while (currentTokenType() != TokenType.NEWLINE && !currentTokenValue().equals(",")) {
-                        logicalTokens.add(currentToken());
-                        if (currentTokenType() == TokenType.IDENTIFIER) {
-                            tokenValuesBuilder.append(variables.get(currentTokenValue()).getDataType());
-                        } else
-                            tokenValuesBuilder.append(currentTokenValue());
-                        eat();
-                    }
-                    try {
-                        if (type == TokenType.INT) {
-                            variables.put(varname, new Token(type,
-                                    Integer.toString((int) Calculator.getResult(tokenValuesBuilder.toString()))));
-                        } else if (type == TokenType.FLOAT)
-                            variables.put(varname, new Token(type,
-                                    Double.toString(Calculator.getResult(tokenValuesBuilder.toString()))));
-                        else if (type == TokenType.BOOL) {
-                            Object res = expression(logicalTokens);
-                            variables.put(varname, new Token(type, res.toString()));
-                        }
-                    } catch (Exception e) {
-                        throw new RuntimeException(e);
-                    }
-                }
-            } else if (currentTokenValue().equals(",")) {
-                eat(); // eat DELIMITER token
-                variables.put(varname, new Token(type, null));
-            } else if (currentTokenType() == TokenType.NEWLINE) {
-                variables.put(varname, new Token(type, null));
-            } else
+                initializer = expression(collectTokens(true));
+                checkDataType(type, initializer);
+            } else if (currentTokenType() != TokenType.NEWLINE && !cursor.valueEquals(",")) {
                 error("Unexpected token type: " + currentToken());
-        }
-        matchToken(TokenType.NEWLINE);
-    }
-
-    // ex. DISPLAY: x
-    // Token: DISPLAY (KEYWORD)
-    // Token: x (IDENTIFIER)
-    private void displayStatement() {
-        while (currentTokenType() != TokenType.NEWLINE) {
-            List<Token> tokens = new LinkedList<>();
-            while (currentTokenType() != TokenType.CONCAT) {
-                tokens.add(currentToken());
+            }
+            names.add(varname);
+            initializers.add(initializer);
+        }
+        if (names.isEmpty()) {
+            error("Expected a variable name after " + value);
+        }
+        List<Variable> declared = new ArrayList<>();
+        for (String name : names) {
+            Variable variable = new Variable(name, type, variables.size());
+            variables.put(name, variable);
+            declared.add(variable);
+        }
+        endOfStatement();
+        return new DeclareStatement(type, declared, initializers, line);
+    }
+
+    // ex. DISPLAY: x & " " & $
+    // every operand of & is parsed as its own expression
+    private Statement displayStatement(int line) {
+        List<Expression> parts = new ArrayList<>();
+        while (currentTokenType() != TokenType.NEWLINE && currentTokenType() != TokenType.EOF) {
+            List<Token> partTokens = new ArrayList<>();
+            while (currentTokenType() != TokenType.CONCAT && currentTokenType() != TokenType.NEWLINE
+                    && currentTokenType() != TokenType.EOF) {
+                partTokens.add(currentToken());
                 eat();
-                if (currentTokenType() == TokenType.NEWLINE)
-                    break;
             }
+            parts.add(expression(partTokens));
 
-            if (currentTokenType() != TokenType.NEWLINE) {
+            if (currentTokenType() == TokenType.CONCAT) {
                 matchToken(TokenType.CONCAT);
-            }
-
-            // for (Token token : tokens) {
-            // System.out.println(token);
-            // }
-
-            if (tokens.size() == 1) {
-                if (tokens.get(0).getType() == TokenType.IDENTIFIER) {
-                    
-                    try {
-
-                        if (variables.get(tokens.get(0).getValue()).getDataType() instanceof Boolean) {
-
-                            System.out.print(
-                                    variables.get(tokens.get(0).getValue()).getDataType().toString().toUpperCase());
-                        } else {
-                            System.out.print(variables.get(tokens.get(0).getValue()).getDataType());
-                        }
-                    } catch (NullPointerException e) {
-                        if (variables.containsKey(tokens.get(0).getValue()))
-                            System.out.print("null");
-                        else
-                            throw new RuntimeException("Variable: " + tokens.get(0) + " is not yet declared");
-                    }
-                } else if (tokens.get(0).getType() == TokenType.STRING) {
-                    if (tokens.get(0).getValue().equals("$"))
-                        System.out.println("");
-                    else
-                        System.out.print(tokens.get(0).getValue());
+                if (currentTokenType() == TokenType.NEWLINE) {
+                    error("Expected an expression after &");
                 }
-            } else {
-                System.out.print(expression(tokens));
             }
-            tokens.clear();
         }
-        matchToken(TokenType.NEWLINE);
+        endOfStatement();
+        return new DisplayStatement(parts, line);
     }
 
-    // [Collect Condition Tokens] -> [Match Tokens] -> [Find End of While Block] ->
-    // [Execute While Loop] -> [Restore Token Index]
-    private void whileStatement() {
-        List<Token> expressionTokens = new LinkedList<>();
-        while (currentTokenType() != TokenType.NEWLINE) {
-            expressionTokens.add(currentToken());
+    // ex. SCAN: x, y
+    private Statement scanStatement(int line) {
+        List<Variable> targets = new ArrayList<>();
+        while (currentTokenType() == TokenType.IDENTIFIER || currentTokenType() == TokenType.DELIMITER) {
+            if (currentTokenType() == TokenType.IDENTIFIER) {
+                if (!variables.containsKey(currentTokenValue()))
+                    error("Variable: " + currentTokenValue() + " is not yet declared");
+                targets.add(variables.get(currentTokenValue()));
+            } else if (!cursor.valueEquals(",")) {
+                error("Unexpected Token in Scan:" + currentToken());
+            }
             eat();
         }
+        if (targets.isEmpty()) {
+            error("Expected a variable to SCAN");
+        }
+        endOfStatement();
+        return new ScanStatement(targets, line);
+    }
 
-        matchToken(TokenType.NEWLINE);
-        matchToken(TokenType.KEYWORD, "BEGIN");
-        matchToken(TokenType.KEYWORD, "WHILE");
-        matchToken(TokenType.NEWLINE);
+    // [Condition] -> [BEGIN IF ... END IF] -> any number of [ELSE IF (condition) BEGIN IF ... END IF] ->
+    // optional [ELSE BEGIN IF ... END IF]
+    private Statement ifStatement(int line) {
+        List<Expression> conditions = new ArrayList<>();
+        List<List<Statement>> branches = new ArrayList<>();
+        List<Statement> elseBranch = new ArrayList<>();
 
-        int startwhileIndex = tokenIndex;
-        int nestedCount = 0;
+        conditions.add(condition());
+        branches.add(blockOf("IF"));
 
         while (true) {
-            if (currentTokenValue().equals("BEGIN") && nextTokenValue().equals("WHILE"))
-                nestedCount++;
-            if (currentTokenValue().equals("END") && nextTokenValue().equals("WHILE"))
-                nestedCount--;
-            if (nestedCount == -1) {
+            skipNewlines();
+            if (!isKeyword("ELSE")) {
                 break;
             }
             eat();
-        }
-
-        int endwhileIndex = tokenIndex;
-
-        while (Boolean.parseBoolean(expression(expressionTokens).toString())) {
-            tokenIndex = startwhileIndex;
-            while (tokenIndex < tokens.size() && tokenIndex <= endwhileIndex) {
-                statement();
+            if (isKeyword("IF")) {
+                eat();
+                conditions.add(condition());
+                branches.add(blockOf("IF"));
+            } else {
+                elseBranch = blockOf("IF");
+                break;
             }
         }
+        return new IfStatement(conditions, branches, elseBranch, line);
+    }
 
-        tokenIndex = endwhileIndex;
+    // [Condition] -> [BEGIN WHILE ... END WHILE]
+    private Statement whileStatement(int line) {
+        Expression condition = condition();
+        return new WhileStatement(condition, blockOf("WHILE"), line);
     }
 
-    private void scanStatement() {
-        while (currentTokenType() == TokenType.IDENTIFIER || currentTokenType() == TokenType.DELIMITER) {
-            if (currentTokenType() == TokenType.IDENTIFIER) {
-                try {
-                    if (variables.containsKey(currentTokenValue())) {
-                        String newValue = scanner.nextLine();
-                        variables.get(currentTokenValue()).setValue(newValue);
-                    } else
-                        throw new RuntimeException("Variable: " + currentTokenValue() + " is not yet declared");
-                } catch (NullPointerException e) {
-                }
-                eat();
-            } else if (currentTokenType() == TokenType.DELIMITER) {
-                eat();
-            } else
-                error("Unexpected Token in Scan:" + currentToken());
+    private Expression condition() {
+        Expression condition = expression(collectTokens(false));
+        if (!condition.isLogical()) {
+            error("Expected a logical condition: " + condition);
         }
-        matchToken(TokenType.NEWLINE);
+        return condition;
     }
 
-    private void ifStatement() {
-        matchToken(TokenType.DELIMITER, "(");
-        Boolean parseStatement = ifExpression();
-        matchToken(TokenType.DELIMITER, ")");
-
-        while (currentTokenType().equals(TokenType.NEWLINE)) {
-            eat();
-        }
+    // BEGIN <keyword> NEWLINE ... END <keyword>
+    private List<Statement> blockOf(String keyword) {
+        skipNewlines();
         matchToken(TokenType.KEYWORD, "BEGIN");
-        matchToken(TokenType.KEYWORD, "IF");
-        eat();
-        if (parseStatement) {
-            while (currentTokenType() != TokenType.KEYWORD || !currentTokenValue().equals("END")) {
-                statement();
-            }
-        } else {
-            int nestedCount = 0;
-            while (true) {
-                // System.out.println("Concomed: " + currentToken() + " Count: " + nestedCount);
-                if (currentTokenValue().equals("BEGIN") && nextTokenValue().equals("IF"))
-                    nestedCount++;
-                if (currentTokenValue().equals("END") && nextTokenValue().equals("IF"))
-                    nestedCount--;
-                if (nestedCount == -1) {
-                    break;
-                }
-                eat();
-            }
+        matchToken(TokenType.KEYWORD, keyword);
+        if (currentTokenType() != TokenType.NEWLINE) {
+            error("Expected a NEWLINE");
         }
-        matchToken(TokenType.KEYWORD, "END");
-        matchToken(TokenType.KEYWORD, "IF"); // first if statement finished
-        eat();
-        List<Boolean> ifelseResult = new LinkedList<>();
-        ifelseResult.add(parseStatement);
-        // check for multiple alternatives
-
-        while (true) {
-            if (currentTokenType() == TokenType.KEYWORD && currentTokenValue().equals("ELSE")) { // if else keyword
-                // encountered
-                eat();
-                if (currentTokenType() == TokenType.KEYWORD && currentTokenValue().equals("IF")) { // should keep
-                                                                                                   // checking for
-                    // else ifs
-                    eat();
-                    matchToken(TokenType.DELIMITER, "(");
-                    Boolean parseStatement2 = ifExpression();
-                    matchToken(TokenType.DELIMITER, ")");
-                    eat();
-                    matchToken(TokenType.KEYWORD, "BEGIN");
-                    matchToken(TokenType.KEYWORD, "IF");
-                    eat();
-                    if (parseStatement2 && !ifelseResult.contains(true)) {
-                        while (currentTokenType() != TokenType.KEYWORD || !currentTokenValue().equals("END")) {
-                            statement();
-                        }
-                    } else {
-                        int nestedCount = 0;
-                        while (true) {
-                            if (currentTokenValue().equals("BEGIN") && nextTokenValue().equals("IF"))
-                                nestedCount++;
-                            if (currentTokenValue().equals("END") && nextTokenValue().equals("IF"))
-                                nestedCount--;
-                            if (nestedCount == -1) {
-                                break;
-                            }
-                            eat();
-                        }
-                    }
-                    ifelseResult.add(parseStatement2);
-                    matchToken(TokenType.KEYWORD, "END");
-                    matchToken(TokenType.KEYWORD, "IF");
-                    eat();
-                } else {
-                    eat();
-                    matchToken(TokenType.KEYWORD, "BEGIN");
-                    matchToken(TokenType.KEYWORD, "IF");
-                    eat();
+        return block(keyword);
+    }
 
-                    if (ifelseResult.contains(true)) {
-                        int nestedCount = 0;
-                        while (true) {
-                            if (currentTokenValue().equals("BEGIN") && nextTokenValue().equals("IF"))
-                                nestedCount++;
-                            if (currentTokenValue().equals("END") && nextTokenValue().equals("IF"))
-                                nestedCount--;
-                            if (nestedCount == -1) {
-                                break;
-                            }
-                            eat();
-                        }
-                    } else {
-                        while (currentTokenType() != TokenType.KEYWORD || !currentTokenValue().equals("END")) {
-                            statement();
-                        }
-                    }
-                    matchToken(TokenType.KEYWORD, "END");
-                    matchToken(TokenType.KEYWORD, "IF");
-                    eat();
-                    break;
-                }
-            } else {
-                break;
-            }
+    // Collects the tokens of an expression up to the end of the line (or the next ',' inside a declaration)
+    private List<Token> collectTokens(boolean stopAtComma) {
+        List<Token> expressionTokens = new ArrayList<>();
+        while (currentTokenType() != TokenType.NEWLINE && currentTokenType() != TokenType.EOF
+                && !(stopAtComma && cursor.valueEquals(","))) {
+            expressionTokens.add(currentToken());
+            eat();
         }
-
+        return expressionTokens;
     }
 
-    private Object expression(List<Token> expressionTokens) {
-        List<Token> tokens = new LinkedList<>();
-        for (Token token : expressionTokens) {
-            if (token.getType() == TokenType.IDENTIFIER) {
-                Token tok = variables.get(token.getValue());
-                if (tok != null)
-                    tokens.add(variables.get(token.getValue()));
-                else
-                    error(token + " is not declared");
-            } else
-                tokens.add(token);
+    /**
+     * Validates the tokens of an expression and classifies it by the data type of its result
+     */
+    private Expression expression(List<Token> expressionTokens) {
+        if (expressionTokens.isEmpty()) {
+            error("Expected an expression");
         }
-
-        StringBuilder tokenValuesBuilder = new StringBuilder();
-        for (Token token : tokens) {
-            tokenValuesBuilder.append(token.getValue());
+        Variable[] references = new Variable[expressionTokens.size()];
+        if (expressionTokens.size() == 1 && expressionTokens.get(0).getType() == TokenType.STRING) {
+            return new Expression(expressionTokens, references, TokenType.STRING);
         }
 
-        Object result = null;
-        if (isLogicalStatement(tokens)) {
-            LogicalCalculator logicalCalculator = new LogicalCalculator();
-            List<Token> logicalTokens = new LinkedList<>();
-            for (int i = 0; i < tokens.size(); i++) {
-                if (i < tokens.size() - 1) {
-                    if (isNumberorFloat(tokens.get(i)) && isArithOperator(tokens.get(i + 1))) {
-                        StringBuilder arithmeticBuilder = new StringBuilder();
-                        arithmeticBuilder.append(tokens.get(i).getValue());
-                        arithmeticBuilder.append(tokens.get(i + 1).getValue());
-                        arithmeticBuilder.append(tokens.get(i + 2).getValue());
-                        // System.out.println(arithmeticBuilder.toString() + "result");
-                        double res = 0;
-                        try {
-                            res = Calculator.getResult(arithmeticBuilder.toString());
-                        } catch (Exception e) {
-                            // throw new RuntimeException("ERRORRRRRRRRRRRRRRRRRRRRRRRRRRR");
-                            error("Invalid operation: " + arithmeticBuilder.toString());
-                        }
-                        Token newToken = new Token(TokenType.FLOAT, Double.toString(res));
-                        logicalTokens.add(newToken);
-                        i += 2;
-                    } else {
-                        logicalTokens.add(tokens.get(i));
-                    }
-                }
-                if (i == tokens.size() - 1)
-                    logicalTokens.add(tokens.get(i));
+        boolean logical = false;
+        boolean floating = false;
+        boolean character = false;
+        for (int i = 0; i < expressionTokens.size(); i++) {
+            Token token = expressionTokens.get(i);
+            TokenType type = token.getType();
+            if (type == TokenType.IDENTIFIER) {
+                references[i] = variables.get(token.getValue());
+                if (references[i] == null)
+                    error(token + " is not declared");
+                type = references[i].type;
+            }
+            if (type == TokenType.BOOL || (type == TokenType.OPERATOR || type == TokenType.KEYWORD)
+                    && (isLogicalOperator(token.getValue()) || token.getValue().equals("NOT"))) {
+                logical = true;
+            } else if (type == TokenType.FLOAT) {
+                floating = true;
+            } else if (type == TokenType.CHAR) {
+                character = true;
+            } else if (type != TokenType.INT && type != TokenType.OPERATOR && type != TokenType.DELIMITER) {
+                error("Invalid operation: " + token);
             }
+        }
 
-            result = Boolean.toString(logicalCalculator.evaluate(logicalTokens));
-        } else if (containsFloat(tokens)) {
-            try {
-                result = Double.toString(Calculator.getResult(tokenValuesBuilder.toString()));
-            } catch (Exception e) {
-                System.err.println("Invalid operation: " + tokenValuesBuilder.toString());
+        Expression expression;
+        if (logical) {
+            expression = new Expression(expressionTokens, references,
+                    LogicalCalculator.compile(expressionTokens, references));
+        } else if (character) {
+            expression = new Expression(expressionTokens, references, TokenType.CHAR);
+            if (expressionTokens.size() != 1) {
+                error("Invalid operation: " + expression);
             }
         } else {
+            TokenNode tree = null;
             try {
-                result = Integer.toString((int) Calculator.getResult(tokenValuesBuilder.toString()));
+                tree = Calculator.parseTokens(expressionTokens, variables);
+            } catch (NumberFormatException e) {
+                error("Integer literal out of range: " + new Expression(expressionTokens, references, TokenType.INT));
             } catch (Exception e) {
-                System.err.println("Invalid operation: " + tokenValuesBuilder.toString());
+                error("Invalid operation: " + new Expression(expressionTokens, references, TokenType.INT));
             }
+            expression = new Expression(expressionTokens, references, floating ? TokenType.FLOAT : TokenType.INT,
+                    tree);
         }
-        return result;
+        return expression;
     }
 
     // ----------------------------- Helper Functions -----------------------------
     // //
 
-    // Assingment Statment
-    private boolean isCurrentType(TokenType... types) {
-        for (TokenType type : types) {
-            if (currentTokenType() == type) {
-                return true;
-            }
-        }
-        return false;
+    private boolean isKeyword(String value) {
+        return cursor.is(TokenType.KEYWORD, value);
     }
 
-    private boolean isNextType(TokenType... types) {
-        for (TokenType type : types) {
-            if (currentTokenType() == type) {
-                return true;
-            }
+    private void skipNewlines() {
+        while (currentTokenType() == TokenType.NEWLINE) {
+            eat();
         }
-        return false;
     }
 
-    private Token getVariableToken() {
-        if (currentTokenType() == TokenType.IDENTIFIER) {
-            return variables.get(currentTokenValue());
+    private void endOfStatement() {
+        if (currentTokenType() != TokenType.EOF) {
+            matchToken(TokenType.NEWLINE);
         }
-        return currentToken();
     }
 
     // Declaration Statement
@@ -658,57 +424,24 @@ public class SyntaxAnalyzer {
         }
     }
 
-    private void checkVariableDeclaration(String varname, TokenType type) {
-        if (variables.containsKey(varname)) {
-            error("Variable name: " + varname + " is already declared");
-        }
-
-        if (currentTokenType() != type) {
-            validateTokenType(type, varname);
+    private void checkDataType(TokenType type, Expression value) {
+        boolean numeric = value.resultType == TokenType.INT || value.resultType == TokenType.FLOAT;
+        boolean result;
+        switch (type) {
+            case INT:
+            case FLOAT:
+                result = numeric;
+                break;
+            default:
+                result = value.resultType == type;
+                break;
         }
-    }
-
-    private void validateTokenType(TokenType type, String varname) {
-        if (currentTokenType() == TokenType.IDENTIFIER) {
-            TokenType varDataType = variables.get(varname).getType();
-            boolean result;
-            switch (type) {
-                case CHAR:
-                    result = type == TokenType.CHAR;
-                case INT:
-                case FLOAT:
-                    result = type != TokenType.CHAR && type != TokenType.BOOL;
-                case BOOL:
-                    result = type == TokenType.BOOL;
-                default:
-                    result = false;
-            }
-            if (!result) {
-                error("Unmatched datatype Expected datatype: " + type + " Defined datatype: " + varDataType + " "
-                        + currentToken());
-            }
-        } else if (isMismatchedType(type)) {
-            throw new IllegalArgumentException(
-                    "Unmatched datatype Expected datatype: " + type + " Defined datatype: " + currentTokenType());
+        if (!result) {
+            error("Unmatched datatype Expected datatype: " + type + " Defined datatype: " + value.resultType + " "
+                    + value);
         }
     }
 
-    private boolean isMismatchedType(TokenType type) {
-        return (type == TokenType.CHAR || type == TokenType.BOOL)
-                && (currentTokenType() == TokenType.INT || currentTokenType() == TokenType.FLOAT)
-                || (currentTokenType() == TokenType.CHAR || currentTokenType() == TokenType.BOOL)
-                        && (type == TokenType.INT || type == TokenType.FLOAT);
-    }
-
-    private boolean ifExpression() {
-        List<Token> tokensForIf = new LinkedList<>();
-        while (nextTokenType() != TokenType.NEWLINE && currentTokenValue() != ")") {
-            tokensForIf.add(currentToken());
-            eat();
-        }
-        return Boolean.parseBoolean(expression(tokensForIf).toString());
-    }
-
     public static boolean containsFloat(List<Token> tokens) {
         for (Token token : tokens) {
             if (token.getType() == TokenType.FLOAT) {
@@ -738,21 +471,8 @@ public class SyntaxAnalyzer {
                 value.equals("AND") || value.equals("OR");
     }
 
-    private boolean isLogicalStatement(List<Token> tokens) {
-        for (Token token : tokens) {
-            if (token.getValue().equals("==") || token.getValue().equals("<>") || token.getValue().equals(">=")
-                    || token.getValue().equals("<=") || token.getValue().equals(">") || token.getValue().equals("<")
-                    || token.getValue().equals("AND") || token.getValue().equals("OR") || token.getValue().equals("NOT")
-                    || token.getType() == TokenType.BOOL) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     private void error(String message) {
-        System.out.println("\nSyntax Analyzer Error: " + message);
-        System.exit(0);
+        throw new CodeException("\nSyntax Analyzer Error: " + message);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,16 @@
+package parser;
+
+/**
+ * Read access to the current values of the variables of a running program, addressed by slot.
+ */
+public interface VariableValues {
+    boolean isInitialized(int slot);
+
+    int getInt(int slot);
+
+    double getFloat(int slot);
+
+    boolean getBool(int slot);
+
+    char getChar(int slot);
+}
@@ -0,0 +1,38 @@
+package vm;
+
+/**
+ * A program compiled by {@link BytecodeCompiler} for the {@link VirtualMachine}: the code, the strings it refers to,
+ * and the initial contents of the two register files, which hold the constants of the program after its variables.
+ * <p>
+ * Bytecode is never modified once compiled, so it can be run by any number of VirtualMachines at the same time.
+ */
+public final class Bytecode {
+    final int[] code;
+    final String[] strings;
+    final long[] ints;
+    final double[] floats;
+    // the name of every variable, by slot
+    final String[] variables;
+    // the constants of each register file, after the variables
+    final int intConstants;
+    final int floatConstants;
+
+    Bytecode(int[] code, String[] strings, long[] ints, double[] floats, String[] variables, int intConstants,
+            int floatConstants) {
+        this.code = code;
+        this.strings = strings;
+        this.ints = ints;
+        this.floats = floats;
+        this.variables = variables;
+        this.intConstants = intConstants;
+        this.floatConstants = floatConstants;
+    }
+
+    /**
+     * Returns the listing of the code, as written by the {@link Disassembler}
+     */
+    @Override
+    public String toString() {
+        return Disassembler.disassemble(this);
+    }
+}
@@ -0,0 +1,638 @@
+package vm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ast.AssignStatement;
+import ast.DeclareStatement;
+import ast.DisplayStatement;
+import ast.Expression;
+import ast.IfStatement;
+import ast.Program;
+import ast.ScanStatement;
+import ast.Statement;
+import ast.Variable;
+import ast.WhileStatement;
+import lexer.TokenNode;
+import lexer.TokenType;
+import parser.Calculator;
+import parser.Condition;
+
+/**
+ * Lowers the statements of a {@link Program} to {@link Bytecode}. Every expression is evaluated into registers: a
+ * variable is read from its own register, a constant from the register it was given when the program was compiled,
+ * and every intermediate result goes to a temporary register of the statement. The errors of the Interpreter are
+ * kept, in the same order: a variable is checked where the Interpreter reads it, and the variables of a compiled
+ * BOOL condition all before it is evaluated.
+ */
+public final class BytecodeCompiler implements Condition.Visitor, Condition.Operand.Visitor {
+    // temporaries are numbered from here while compiling, and moved after the constants once their number is known
+    private static final int TEMPORARY = 1 << 24;
+
+    private final Program program;
+    private int[] code = new int[64];
+    private int size;
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIndexes = new HashMap<>();
+    // the register of every constant, by value; float constants by the bits of their value
+    private final Map<Long, Integer> intConstants = new LinkedHashMap<>();
+    private final Map<Long, Integer> floatConstants = new LinkedHashMap<>();
+    private int intTemporaries;
+    private int floatTemporaries;
+    private int maxIntTemporaries;
+    private int maxFloatTemporaries;
+    // the register of the condition or operand visited last
+    private int result;
+    // the variables known to have a value where the next instruction goes, which are not checked again; every jump
+    // target forgets them
+    private final BitSet checked = new BitSet();
+
+    private BytecodeCompiler(Program program) {
+        this.program = program;
+    }
+
+    /**
+     * Returns the bytecode of the program, or null if it has an expression that is only evaluated by the Interpreter
+     */
+    public static Bytecode compile(Program program) {
+        try {
+            return new BytecodeCompiler(program).compile();
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private Bytecode compile() {
+        block(program.statements);
+        emit(Opcode.HALT);
+        int variables = program.variables.size();
+        relocateTemporaries(variables);
+
+        long[] ints = new long[variables + intConstants.size() + maxIntTemporaries];
+        for (Map.Entry<Long, Integer> constant : intConstants.entrySet()) {
+            ints[constant.getValue()] = constant.getKey();
+        }
+        double[] floats = new double[variables + floatConstants.size() + maxFloatTemporaries];
+        for (Map.Entry<Long, Integer> constant : floatConstants.entrySet()) {
+            floats[constant.getValue()] = Double.longBitsToDouble(constant.getKey());
+        }
+        String[] names = new String[variables];
+        for (Variable variable : program.variables) {
+            names[variable.slot] = variable.name;
+        }
+        return new Bytecode(Arrays.copyOf(code, size), strings.toArray(new String[0]), ints, floats, names,
+                intConstants.size(), floatConstants.size());
+    }
+
+    private void relocateTemporaries(int variables) {
+        int pc = 0;
+        while (pc < size) {
+            String operands = Opcode.OPERANDS[code[pc]];
+            for (int i = 0; i < operands.length(); i++) {
+                int operand = code[pc + 1 + i];
+                if (operand >= TEMPORARY && operands.charAt(i) == 'r') {
+                    code[pc + 1 + i] = variables + intConstants.size() + operand - TEMPORARY;
+                } else if (operand >= TEMPORARY && operands.charAt(i) == 'f') {
+                    code[pc + 1 + i] = variables + floatConstants.size() + operand - TEMPORARY;
+                }
+            }
+            pc += Opcode.length(code[pc]);
+        }
+    }
+
+    private void block(List<Statement> statements) {
+        for (Statement statement : statements) {
+            // nothing is kept in a temporary from one statement to the next
+            intTemporaries = 0;
+            floatTemporaries = 0;
+            switch (statement.type) {
+                case DECLARE:
+                    declare((DeclareStatement) statement);
+                    break;
+                case ASSIGN: {
+                    AssignStatement assign = (AssignStatement) statement;
+                    assign(assign.targets, assign.value);
+                    break;
+                }
+                case DISPLAY:
+                    display((DisplayStatement) statement);
+                    break;
+                case SCAN:
+                    scan((ScanStatement) statement);
+                    break;
+                case IF:
+                    ifStatement((IfStatement) statement);
+                    break;
+                case WHILE:
+                    whileStatement((WhileStatement) statement);
+                    break;
+            }
+        }
+    }
+
+    private void declare(DeclareStatement statement) {
+        for (int i = 0; i < statement.variables.size(); i++) {
+            Variable variable = statement.variables.get(i);
+            emit(Opcode.CLEAR, variable.slot);
+            checked.clear(variable.slot);
+            if (statement.initializers.get(i) != null) {
+                assign(List.of(variable), statement.initializers.get(i));
+            }
+        }
+    }
+
+    // evaluates the value once and converts it to the data type of every target
+    private void assign(List<Variable> targets, Expression value) {
+        for (Variable target : targets) {
+            if (!isAssignable(target, value.resultType)) {
+                throw new UnsupportedOperationException("Not assignable: " + target);
+            }
+        }
+        switch (value.resultType) {
+            case BOOL:
+            case CHAR: {
+                int register = value.resultType == TokenType.BOOL ? bool(value) : character(value);
+                for (Variable target : targets) {
+                    emit(Opcode.SET, target.slot, register);
+                }
+                break;
+            }
+            case INT: {
+                int register = integer(value);
+                for (Variable target : targets) {
+                    if (target.type == TokenType.FLOAT) {
+                        int converted = floatTemporary();
+                        emit(Opcode.ITOF, converted, register);
+                        emit(Opcode.FSET, target.slot, converted);
+                    } else {
+                        emit(Opcode.SET, target.slot, register);
+                    }
+                }
+                break;
+            }
+            default: {
+                int register = floating(value);
+                for (Variable target : targets) {
+                    if (target.type == TokenType.INT) {
+                        int converted = intTemporary();
+                        emit(Opcode.FTOI, converted, register);
+                        emit(Opcode.SET, target.slot, converted);
+                    } else {
+                        emit(Opcode.FSET, target.slot, register);
+                    }
+                }
+                break;
+            }
+        }
+        for (Variable target : targets) {
+            checked.set(target.slot);
+        }
+    }
+
+    // the Interpreter stores a BOOL or CHAR only in a variable of its type, and a number in an INT or a FLOAT
+    private static boolean isAssignable(Variable target, TokenType valueType) {
+        switch (valueType) {
+            case BOOL:
+            case CHAR:
+                return target.type == valueType;
+            case INT:
+            case FLOAT:
+                return target.type == TokenType.INT || target.type == TokenType.FLOAT;
+            default:
+                return false;
+        }
+    }
+
+    // every part is printed as soon as it is evaluated, a variable without a value as null
+    private void display(DisplayStatement statement) {
+        for (Expression part : statement.parts) {
+            Variable variable = part.variable();
+            if (part.resultType == TokenType.STRING) {
+                String value = part.tokens.get(0).getValue();
+                emit(Opcode.PRINT, string(value.equals("$") ? System.lineSeparator() : value));
+            } else if (variable == null) {
+                print(part);
+            } else {
+                int isNull = emitJump(Opcode.JUNSET, variable.slot);
+                checked.set(variable.slot);
+                print(part);
+                int end = emitJump(Opcode.JUMP);
+                patch(isNull);
+                emit(Opcode.PRINT, string("null"));
+                patch(end);
+            }
+        }
+    }
+
+    private void print(Expression part) {
+        switch (part.resultType) {
+            case BOOL:
+                emit(Opcode.PRINTB, bool(part));
+                break;
+            case CHAR:
+                emit(Opcode.PRINTC, character(part));
+                break;
+            case FLOAT:
+                emit(Opcode.PRINTF, floating(part));
+                break;
+            default:
+                emit(Opcode.PRINTI, integer(part));
+                break;
+        }
+    }
+
+    private void scan(ScanStatement statement) {
+        // a prompt printed before the SCAN has to be seen
+        emit(Opcode.FLUSH);
+        for (Variable variable : statement.variables) {
+            int name = string(variable.name);
+            switch (variable.type) {
+                case INT:
+                    emit(Opcode.SCANI, variable.slot, name);
+                    break;
+                case FLOAT:
+                    emit(Opcode.SCANF, variable.slot, name);
+                    break;
+                case BOOL:
+                    emit(Opcode.SCANB, variable.slot, name);
+                    break;
+                default:
+                    emit(Opcode.SCANC, variable.slot, name);
+                    break;
+            }
+            checked.set(variable.slot);
+        }
+    }
+
+    private void ifStatement(IfStatement statement) {
+        int branches = statement.conditions.size();
+        // the last branch falls through to the end when there is no ELSE
+        int[] exits = new int[statement.elseBranch.isEmpty() ? branches - 1 : branches];
+        for (int i = 0; i < branches; i++) {
+            int next = emitJump(Opcode.JUMPF, bool(statement.conditions.get(i)));
+            block(statement.branches.get(i));
+            if (i < exits.length) {
+                exits[i] = emitJump(Opcode.JUMP);
+            }
+            patch(next);
+        }
+        block(statement.elseBranch);
+        for (int exit : exits) {
+            patch(exit);
+        }
+    }
+
+    private void whileStatement(WhileStatement statement) {
+        int condition = size;
+        checked.clear();
+        int exit = emitJump(Opcode.JUMPF, bool(statement.condition));
+        block(statement.body);
+        emit(Opcode.JUMP, condition);
+        patch(exit);
+    }
+
+    // an INT expression, into an int register
+    private int integer(Expression expression) {
+        TokenNode tree = expression.tree;
+        if (tree == null) {
+            throw new UnsupportedOperationException("Not compiled: " + expression);
+        }
+        if (tree.type == TokenType.IDENTIFIER && !tree.isNegative()) {
+            // an INT variable already holds an INT
+            check(tree.slot, tree.name);
+            return tree.slot;
+        }
+        if (!hasVariables(tree)) {
+            try {
+                return intConstant(Calculator.toInt(Calculator.evaluateLong(tree, null)));
+            } catch (ArithmeticException e) {
+                // reported when the expression is evaluated
+            }
+        }
+        int text = string(expression.toString());
+        int register = intTemporary();
+        emit(Opcode.TOINT, register, integerTree(expression.tree, text), text);
+        return register;
+    }
+
+    // a FLOAT expression, into a float register
+    private int floating(Expression expression) {
+        if (expression.tree == null) {
+            throw new UnsupportedOperationException("Not compiled: " + expression);
+        }
+        if (!hasVariables(expression.tree)) {
+            return floatConstant(Calculator.evaluate(expression.tree, null));
+        }
+        return floatTree(expression.tree);
+    }
+
+    // a BOOL expression, into an int register as 1 or 0
+    private int bool(Expression expression) {
+        Variable variable = expression.variable();
+        if (variable != null) {
+            check(variable.slot, variable.name);
+            return variable.slot;
+        }
+        if (expression.condition == null) {
+            throw new UnsupportedOperationException("Not compiled: " + expression);
+        }
+        for (int i = 0; i < expression.tokens.size(); i++) {
+            Variable reference = expression.variableAt(i);
+            if (reference != null) {
+                check(reference.slot, reference.name);
+            }
+        }
+        expression.condition.accept(this);
+        return result;
+    }
+
+    private int character(Expression expression) {
+        Variable variable = expression.variable();
+        if (variable != null) {
+            check(variable.slot, variable.name);
+            return variable.slot;
+        }
+        return intConstant(expression.tokens.get(0).getValue().charAt(0));
+    }
+
+    private static boolean hasVariables(TokenNode node) {
+        if (node.type == TokenType.IDENTIFIER) {
+            return true;
+        }
+        return node.operand1 != null && (hasVariables(node.operand1) || hasVariables(node.operand2));
+    }
+
+    private void check(int slot, String name) {
+        if (checked.get(slot)) {
+            return;
+        }
+        checked.set(slot);
+        emit(Opcode.CHECK, slot, string("Variable: " + name + " has no value"));
+    }
+
+    // the operations of Calculator.evaluateLong
+    private int integerTree(TokenNode node, int text) {
+        int register;
+        switch (node.type) {
+            case INT:
+                register = intConstant(node.integer);
+                break;
+            case IDENTIFIER:
+                check(node.slot, node.name);
+                register = node.slot;
+                break;
+            case MULTIPLY:
+                register = integerOperation(Opcode.MUL, node, text);
+                break;
+            case DIVIDE:
+                register = integerOperation(Opcode.DIV, node, text);
+                break;
+            case PLUS:
+                register = integerOperation(Opcode.ADD, node, text);
+                break;
+            case MINUS:
+                register = integerOperation(Opcode.SUB, node, text);
+                break;
+            case MODULO:
+                register = integerOperation(Opcode.MOD, node, text);
+                break;
+            default:
+                throw new UnsupportedOperationException("Unknown node " + node.type);
+        }
+        if (node.isNegative()) {
+            int negated = intTemporary();
+            emit(Opcode.NEG, negated, register, text);
+            register = negated;
+        }
+        return register;
+    }
+
+    private int integerOperation(int opcode, TokenNode node, int text) {
+        int left = integerTree(node.operand1, text);
+        int right = integerTree(node.operand2, text);
+        int register = intTemporary();
+        emit(opcode, register, left, right, text);
+        return register;
+    }
+
+    // the operations of Calculator.evaluate
+    private int floatTree(TokenNode node) {
+        int register;
+        switch (node.type) {
+            case INT:
+                register = floatConstant(node.nodeValue);
+                break;
+            case IDENTIFIER:
+                check(node.slot, node.name);
+                if (node.valueType == TokenType.INT) {
+                    register = floatTemporary();
+                    emit(Opcode.ITOF, register, node.slot);
+                } else {
+                    register = node.slot;
+                }
+                break;
+            case MULTIPLY:
+                register = floatOperation(Opcode.FMUL, node);
+                break;
+            case DIVIDE:
+                register = floatOperation(Opcode.FDIV, node);
+                break;
+            case PLUS:
+                register = floatOperation(Opcode.FADD, node);
+                break;
+            case MINUS:
+                register = floatOperation(Opcode.FSUB, node);
+                break;
+            case MODULO:
+                register = floatOperation(Opcode.FMOD, node);
+                break;
+            default:
+                throw new UnsupportedOperationException("Unknown node " + node.type);
+        }
+        if (node.isNegative()) {
+            int negated = floatTemporary();
+            emit(Opcode.FNEG, negated, register);
+            register = negated;
+        }
+        return register;
+    }
+
+    private int floatOperation(int opcode, TokenNode node) {
+        int left = floatTree(node.operand1);
+        int right = floatTree(node.operand2);
+        int register = floatTemporary();
+        emit(opcode, register, left, right);
+        return register;
+    }
+
+    // Condition.Visitor: the condition into an int register
+
+    public void constant(boolean value) {
+        result = intConstant(value ? 1 : 0);
+    }
+
+    public void variable(int slot) {
+        result = slot;
+    }
+
+    public void not(Condition operand) {
+        operand.accept(this);
+        int register = intTemporary();
+        emit(Opcode.NOT, register, result);
+        result = register;
+    }
+
+    public void and(Condition left, Condition right) {
+        shortCircuit(left, right, Opcode.JUMPF);
+    }
+
+    public void or(Condition left, Condition right) {
+        shortCircuit(left, right, Opcode.JUMPT);
+    }
+
+    // right is only evaluated when left does not decide the result
+    private void shortCircuit(Condition left, Condition right, int jump) {
+        int register = intTemporary();
+        left.accept(this);
+        emit(Opcode.MOVE, register, result);
+        int decided = emitJump(jump, register);
+        right.accept(this);
+        emit(Opcode.MOVE, register, result);
+        patch(decided);
+        result = register;
+    }
+
+    public void notEqual(Condition left, Condition right) {
+        left.accept(this);
+        int leftRegister = result;
+        right.accept(this);
+        int register = intTemporary();
+        emit(Opcode.XOR, register, leftRegister, result);
+        result = register;
+    }
+
+    public void compare(String operator, Condition.Operand left, Condition.Operand right) {
+        left.accept(this);
+        int leftRegister = result;
+        right.accept(this);
+        int register = intTemporary();
+        switch (operator) {
+            case ">":
+                emit(Opcode.GT, register, leftRegister, result);
+                break;
+            case "<":
+                emit(Opcode.LT, register, leftRegister, result);
+                break;
+            case ">=":
+                emit(Opcode.GE, register, leftRegister, result);
+                break;
+            case "<=":
+                emit(Opcode.LE, register, leftRegister, result);
+                break;
+            case "==":
+                emit(Opcode.EQ, register, leftRegister, result);
+                break;
+            default:
+                emit(Opcode.NE, register, leftRegister, result);
+                break;
+        }
+        result = register;
+    }
+
+    // Condition.Operand.Visitor: the operand into a float register
+
+    public void constant(double value) {
+        result = floatConstant(value);
+    }
+
+    public void intVariable(int slot) {
+        result = floatTemporary();
+        emit(Opcode.ITOF, result, slot);
+    }
+
+    public void floatVariable(int slot) {
+        result = slot;
+    }
+
+    public void arithmetic(char operator, Condition.Operand left, Condition.Operand right) {
+        left.accept(this);
+        int leftRegister = result;
+        right.accept(this);
+        int register = floatTemporary();
+        switch (operator) {
+            case '+':
+                emit(Opcode.FADD, register, leftRegister, result);
+                break;
+            case '-':
+                emit(Opcode.FSUB, register, leftRegister, result);
+                break;
+            case '*':
+                emit(Opcode.FMUL, register, leftRegister, result);
+                break;
+            case '/':
+                emit(Opcode.FDIV, register, leftRegister, result);
+                break;
+            default:
+                emit(Opcode.FMOD, register, leftRegister, result);
+                break;
+        }
+        result = register;
+    }
+
+    private int intConstant(long value) {
+        return intConstants.computeIfAbsent(value, v -> program.variables.size() + intConstants.size());
+    }
+
+    private int floatConstant(double value) {
+        return floatConstants.computeIfAbsent(Double.doubleToRawLongBits(value),
+                v -> program.variables.size() + floatConstants.size());
+    }
+
+    private int intTemporary() {
+        maxIntTemporaries = Math.max(maxIntTemporaries, intTemporaries + 1);
+        return TEMPORARY + intTemporaries++;
+    }
+
+    private int floatTemporary() {
+        maxFloatTemporaries = Math.max(maxFloatTemporaries, floatTemporaries + 1);
+        return TEMPORARY + floatTemporaries++;
+    }
+
+    private int string(String value) {
+        Integer index = stringIndexes.get(value);
+        if (index == null) {
+            index = strings.size();
+            strings.add(value);
+            stringIndexes.put(value, index);
+        }
+        return index;
+    }
+
+    private void emit(int opcode, int... operands) {
+        if (size + operands.length + 1 > code.length) {
+            code = Arrays.copyOf(code, Math.max(code.length * 2, size + operands.length + 1));
+        }
+        code[size++] = opcode;
+        for (int operand : operands) {
+            code[size++] = operand;
+        }
+    }
+
+    // emits a jump whose target is set by patch, and returns where the target goes
+    private int emitJump(int opcode, int... operands) {
+        int[] withTarget = Arrays.copyOf(operands, operands.length + 1);
+        emit(opcode, withTarget);
+        return size - 1;
+    }
+
+    // the jump at position goes to the next instruction emitted
+    private void patch(int position) {
+        code[position] = size;
+        checked.clear();
+    }
+}
@@ -0,0 +1,90 @@
+package vm;
+
+/**
+ * Writes the listing of {@link Bytecode}, one instruction a line: its index, its name and its operands. A register
+ * is written as the name of its variable, the value of its constant, or r and f followed by the number of a
+ * temporary; a string is quoted and a jump target is written as @ followed by the index of the instruction.
+ */
+public final class Disassembler {
+
+    private Disassembler() {
+    }
+
+    public static String disassemble(Bytecode bytecode) {
+        StringBuilder listing = new StringBuilder();
+        int[] code = bytecode.code;
+        int pc = 0;
+        while (pc < code.length) {
+            int opcode = code[pc];
+            String operands = Opcode.OPERANDS[opcode];
+            // the name is padded only when operands follow it, so no line ends in blanks
+            listing.append(String.format(operands.isEmpty() ? "%5d  %s" : "%5d  %-7s", pc, Opcode.NAMES[opcode]));
+            for (int i = 0; i < operands.length(); i++) {
+                listing.append(i == 0 ? " " : ", ");
+                operand(listing, bytecode, operands.charAt(i), code[pc + 1 + i]);
+            }
+            listing.append(System.lineSeparator());
+            pc += Opcode.length(opcode);
+        }
+        return listing.toString();
+    }
+
+    private static void operand(StringBuilder listing, Bytecode bytecode, char kind, int value) {
+        int variables = bytecode.variables.length;
+        switch (kind) {
+            case 'v':
+                listing.append(bytecode.variables[value]);
+                break;
+            case 'r':
+                if (value < variables) {
+                    listing.append(bytecode.variables[value]);
+                } else if (value < variables + bytecode.intConstants) {
+                    listing.append(bytecode.ints[value]);
+                } else {
+                    listing.append('r').append(value - variables - bytecode.intConstants);
+                }
+                break;
+            case 'f':
+                if (value < variables) {
+                    listing.append(bytecode.variables[value]);
+                } else if (value < variables + bytecode.floatConstants) {
+                    listing.append(bytecode.floats[value]);
+                } else {
+                    listing.append('f').append(value - variables - bytecode.floatConstants);
+                }
+                break;
+            case 's':
+                quote(listing, bytecode.strings[value]);
+                break;
+            default:
+                listing.append('@').append(value);
+                break;
+        }
+    }
+
+    // the string between double quotes, with its quotes, backslashes and line breaks escaped
+    private static void quote(StringBuilder listing, String value) {
+        listing.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    listing.append("\\\"");
+                    break;
+                case '\\':
+                    listing.append("\\\\");
+                    break;
+                case '\n':
+                    listing.append("\\n");
+                    break;
+                case '\r':
+                    listing.append("\\r");
+                    break;
+                default:
+                    listing.append(c);
+                    break;
+            }
+        }
+        listing.append('"');
+    }
+}
@@ -0,0 +1,85 @@
+package vm;
+
+/**
+ * The instructions of the {@link VirtualMachine}. An instruction is its opcode followed by its operands, all ints of
+ * the code array. The operands of every opcode are listed in {@link #OPERANDS}, one letter each:
+ * <ul>
+ * <li>v: the slot of a variable</li>
+ * <li>r: an int register, holding an INT, BOOL (0 or 1) or CHAR value, or an INT intermediate result</li>
+ * <li>f: a float register</li>
+ * <li>s: the index of a string of the {@link Bytecode}</li>
+ * <li>j: the index of the instruction to jump to</li>
+ * </ul>
+ * The first registers of both files are the variables, by slot, followed by the constants of the program.
+ * Arithmetic on int registers is exact 64-bit arithmetic, as for {@link parser.Calculator#evaluateLong}; its last
+ * operand is the text of the expression, reported when it overflows or divides by zero.
+ */
+final class Opcode {
+    // stops the run with the error s when variable v has no value
+    static final int CHECK = 0;
+    // v has no value, after a DECLARE
+    static final int CLEAR = 1;
+    // variable v = r, or f, and v has a value
+    static final int SET = 2;
+    static final int FSET = 3;
+    static final int MOVE = 4;
+    static final int ADD = 5;
+    static final int SUB = 6;
+    static final int MUL = 7;
+    static final int DIV = 8;
+    static final int MOD = 9;
+    static final int NEG = 10;
+    // the result of an INT expression narrowed to an INT
+    static final int TOINT = 11;
+    static final int ITOF = 12;
+    static final int FTOI = 13;
+    static final int FADD = 14;
+    static final int FSUB = 15;
+    static final int FMUL = 16;
+    static final int FDIV = 17;
+    static final int FMOD = 18;
+    static final int FNEG = 19;
+    // r = 1 if the float registers compare so, 0 otherwise
+    static final int GT = 20;
+    static final int LT = 21;
+    static final int GE = 22;
+    static final int LE = 23;
+    static final int EQ = 24;
+    static final int NE = 25;
+    static final int NOT = 26;
+    static final int XOR = 27;
+    static final int JUMP = 28;
+    static final int JUMPF = 29;
+    static final int JUMPT = 30;
+    // jumps when variable v has no value
+    static final int JUNSET = 31;
+    static final int PRINT = 32;
+    static final int PRINTI = 33;
+    static final int PRINTF = 34;
+    static final int PRINTB = 35;
+    static final int PRINTC = 36;
+    static final int FLUSH = 37;
+    // variable v = the next value of the input; s is the name of the variable
+    static final int SCANI = 38;
+    static final int SCANF = 39;
+    static final int SCANB = 40;
+    static final int SCANC = 41;
+    static final int HALT = 42;
+
+    static final String[] NAMES = { "CHECK", "CLEAR", "SET", "FSET", "MOVE", "ADD", "SUB", "MUL", "DIV", "MOD", "NEG",
+            "TOINT", "ITOF", "FTOI", "FADD", "FSUB", "FMUL", "FDIV", "FMOD", "FNEG", "GT", "LT", "GE", "LE", "EQ", "NE",
+            "NOT", "XOR", "JUMP", "JUMPF", "JUMPT", "JUNSET", "PRINT", "PRINTI", "PRINTF", "PRINTB", "PRINTC", "FLUSH",
+            "SCANI", "SCANF", "SCANB", "SCANC", "HALT" };
+
+    static final String[] OPERANDS = { "vs", "v", "vr", "vf", "rr", "rrrs", "rrrs", "rrrs", "rrrs", "rrrs", "rrs",
+            "rrs", "fr", "rf", "fff", "fff", "fff", "fff", "fff", "ff", "rff", "rff", "rff", "rff", "rff", "rff", "rr",
+            "rrr", "j", "rj", "rj", "vj", "s", "r", "f", "r", "r", "", "vs", "vs", "vs", "vs", "" };
+
+    private Opcode() {
+    }
+
+    // the number of ints the instruction takes, with its opcode
+    static int length(int opcode) {
+        return 1 + OPERANDS[opcode].length();
+    }
+}
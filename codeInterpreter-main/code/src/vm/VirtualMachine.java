@@ -0,0 +1,281 @@
+package vm;
+
+import interpreter.InputSource;
+import interpreter.InvalidInputException;
+import interpreter.OutputSink;
+import lexer.CodeException;
+import parser.Calculator;
+
+/**
+ * Runs {@link Bytecode}, with the output and errors of the {@link interpreter.Interpreter}. The registers are the
+ * state of one run, so a VirtualMachine runs its program once; nothing is allocated while it runs, but for the text
+ * of a FLOAT printed and the errors.
+ */
+public final class VirtualMachine {
+    // the data types read by SCANI, SCANF, SCANB and SCANC
+    private static final String[] TYPES = { "INT", "FLOAT", "BOOL", "CHAR" };
+
+    private final Bytecode bytecode;
+    private final InputSource in;
+    private final OutputSink out;
+    private final long[] ints;
+    private final double[] floats;
+    private final boolean[] initialized;
+    // the digits of an INT printed, from the end; an int has at most 10 digits and a sign
+    private final char[] digits = new char[11];
+
+    public VirtualMachine(Bytecode bytecode, InputSource in, OutputSink out) {
+        this.bytecode = bytecode;
+        this.in = in;
+        this.out = out;
+        this.ints = bytecode.ints.clone();
+        this.floats = bytecode.floats.clone();
+        this.initialized = new boolean[bytecode.variables.length];
+    }
+
+    /**
+     * Runs the program and prints "No Error", or the report of the runtime error that stopped it, as
+     * {@link interpreter.Interpreter#run} does. The output is flushed when the run ends.
+     *
+     * @return false if the program stopped on a runtime error
+     */
+    public boolean run() {
+        try {
+            execute();
+            out.print("\nNo Error" + System.lineSeparator());
+            return true;
+        } catch (CodeException e) {
+            out.print(e.getMessage() + System.lineSeparator());
+            return false;
+        } finally {
+            out.flush();
+        }
+    }
+
+    private void execute() {
+        int[] code = bytecode.code;
+        String[] strings = bytecode.strings;
+        long[] ints = this.ints;
+        double[] floats = this.floats;
+        boolean[] initialized = this.initialized;
+        int pc = 0;
+        try {
+            while (true) {
+                switch (code[pc]) {
+                    case Opcode.CHECK:
+                        if (!initialized[code[pc + 1]]) {
+                            throw error(strings[code[pc + 2]]);
+                        }
+                        pc += 3;
+                        break;
+                    case Opcode.CLEAR:
+                        initialized[code[pc + 1]] = false;
+                        pc += 2;
+                        break;
+                    case Opcode.SET:
+                        ints[code[pc + 1]] = ints[code[pc + 2]];
+                        initialized[code[pc + 1]] = true;
+                        pc += 3;
+                        break;
+                    case Opcode.FSET:
+                        floats[code[pc + 1]] = floats[code[pc + 2]];
+                        initialized[code[pc + 1]] = true;
+                        pc += 3;
+                        break;
+                    case Opcode.MOVE:
+                        ints[code[pc + 1]] = ints[code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case Opcode.ADD:
+                        ints[code[pc + 1]] = Calculator.add(ints[code[pc + 2]], ints[code[pc + 3]]);
+                        pc += 5;
+                        break;
+                    case Opcode.SUB:
+                        ints[code[pc + 1]] = Calculator.add(ints[code[pc + 2]], Calculator.negate(ints[code[pc + 3]]));
+                        pc += 5;
+                        break;
+                    case Opcode.MUL:
+                        ints[code[pc + 1]] = Calculator.multiply(ints[code[pc + 2]], ints[code[pc + 3]]);
+                        pc += 5;
+                        break;
+                    case Opcode.DIV:
+                        ints[code[pc + 1]] = Calculator.divide(ints[code[pc + 2]], ints[code[pc + 3]]);
+                        pc += 5;
+                        break;
+                    case Opcode.MOD:
+                        ints[code[pc + 1]] = Calculator.modulo(ints[code[pc + 2]], ints[code[pc + 3]]);
+                        pc += 5;
+                        break;
+                    case Opcode.NEG:
+                        ints[code[pc + 1]] = Calculator.negate(ints[code[pc + 2]]);
+                        pc += 4;
+                        break;
+                    case Opcode.TOINT:
+                        ints[code[pc + 1]] = Calculator.toInt(ints[code[pc + 2]]);
+                        pc += 4;
+                        break;
+                    case Opcode.ITOF:
+                        floats[code[pc + 1]] = ints[code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case Opcode.FTOI:
+                        ints[code[pc + 1]] = (int) floats[code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case Opcode.FADD:
+                        floats[code[pc + 1]] = floats[code[pc + 2]] + floats[code[pc + 3]];
+                        pc += 4;
+                        break;
+                    case Opcode.FSUB:
+                        floats[code[pc + 1]] = floats[code[pc + 2]] - floats[code[pc + 3]];
+                        pc += 4;
+                        break;
+                    case Opcode.FMUL:
+                        floats[code[pc + 1]] = floats[code[pc + 2]] * floats[code[pc + 3]];
+                        pc += 4;
+                        break;
+                    case Opcode.FDIV:
+                        floats[code[pc + 1]] = floats[code[pc + 2]] / floats[code[pc + 3]];
+                        pc += 4;
+                        break;
+                    case Opcode.FMOD:
+                        floats[code[pc + 1]] = floats[code[pc + 2]] % floats[code[pc + 3]];
+                        pc += 4;
+                        break;
+                    case Opcode.FNEG:
+                        floats[code[pc + 1]] = -floats[code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case Opcode.GT:
+                        ints[code[pc + 1]] = floats[code[pc + 2]] > floats[code[pc + 3]] ? 1 : 0;
+                        pc += 4;
+                        break;
+                    case Opcode.LT:
+                        ints[code[pc + 1]] = floats[code[pc + 2]] < floats[code[pc + 3]] ? 1 : 0;
+                        pc += 4;
+                        break;
+                    case Opcode.GE:
+                        ints[code[pc + 1]] = floats[code[pc + 2]] >= floats[code[pc + 3]] ? 1 : 0;
+                        pc += 4;
+                        break;
+                    case Opcode.LE:
+                        ints[code[pc + 1]] = floats[code[pc + 2]] <= floats[code[pc + 3]] ? 1 : 0;
+                        pc += 4;
+                        break;
+                    case Opcode.EQ:
+                        ints[code[pc + 1]] = floats[code[pc + 2]] == floats[code[pc + 3]] ? 1 : 0;
+                        pc += 4;
+                        break;
+                    case Opcode.NE:
+                        ints[code[pc + 1]] = floats[code[pc + 2]] != floats[code[pc + 3]] ? 1 : 0;
+                        pc += 4;
+                        break;
+                    case Opcode.NOT:
+                        ints[code[pc + 1]] = ints[code[pc + 2]] ^ 1;
+                        pc += 3;
+                        break;
+                    case Opcode.XOR:
+                        ints[code[pc + 1]] = ints[code[pc + 2]] ^ ints[code[pc + 3]];
+                        pc += 4;
+                        break;
+                    case Opcode.JUMP:
+                        pc = code[pc + 1];
+                        break;
+                    case Opcode.JUMPF:
+                        pc = ints[code[pc + 1]] == 0 ? code[pc + 2] : pc + 3;
+                        break;
+                    case Opcode.JUMPT:
+                        pc = ints[code[pc + 1]] != 0 ? code[pc + 2] : pc + 3;
+                        break;
+                    case Opcode.JUNSET:
+                        pc = initialized[code[pc + 1]] ? pc + 3 : code[pc + 2];
+                        break;
+                    case Opcode.PRINT:
+                        out.print(strings[code[pc + 1]]);
+                        pc += 2;
+                        break;
+                    case Opcode.PRINTI:
+                        printInt((int) ints[code[pc + 1]]);
+                        pc += 2;
+                        break;
+                    case Opcode.PRINTF:
+                        out.print(Float.toString((float) floats[code[pc + 1]]));
+                        pc += 2;
+                        break;
+                    case Opcode.PRINTB:
+                        out.print(ints[code[pc + 1]] != 0 ? "TRUE" : "FALSE");
+                        pc += 2;
+                        break;
+                    case Opcode.PRINTC:
+                        out.print((char) ints[code[pc + 1]]);
+                        pc += 2;
+                        break;
+                    case Opcode.FLUSH:
+                        out.flush();
+                        pc += 1;
+                        break;
+                    case Opcode.SCANI:
+                    case Opcode.SCANF:
+                    case Opcode.SCANB:
+                    case Opcode.SCANC:
+                        scan(code[pc], code[pc + 1], strings[code[pc + 2]]);
+                        pc += 3;
+                        break;
+                    case Opcode.HALT:
+                        return;
+                    default:
+                        throw new IllegalStateException("Unknown opcode " + code[pc] + " at " + pc);
+                }
+            }
+        } catch (ArithmeticException e) {
+            // pc is still at the instruction, whose last operand is the text of the expression
+            throw error(e.getMessage() + ": " + strings[code[pc + Opcode.length(code[pc]) - 1]]);
+        }
+    }
+
+    // Integer.toString without the String
+    private void printInt(int value) {
+        int position = digits.length;
+        long rest = Math.abs((long) value);
+        do {
+            digits[--position] = (char) ('0' + rest % 10);
+            rest /= 10;
+        } while (rest != 0);
+        if (value < 0) {
+            digits[--position] = '-';
+        }
+        for (int i = position; i < digits.length; i++) {
+            out.print(digits[i]);
+        }
+    }
+
+    // SCAN of one variable, with the errors of Interpreter.scanStatement
+    private void scan(int opcode, int slot, String variable) {
+        if (!in.hasNext()) {
+            throw error("(No input for " + variable + ")");
+        }
+        try {
+            switch (opcode) {
+                case Opcode.SCANI:
+                    ints[slot] = in.nextInt();
+                    break;
+                case Opcode.SCANF:
+                    floats[slot] = in.nextFloat();
+                    break;
+                case Opcode.SCANB:
+                    ints[slot] = in.nextBool() ? 1 : 0;
+                    break;
+                default:
+                    ints[slot] = in.nextChar();
+                    break;
+            }
+        } catch (InvalidInputException e) {
+            throw error("(" + TYPES[opcode - Opcode.SCANI] + " value is invalid = " + e.getValue() + ")");
+        }
+        initialized[slot] = true;
+    }
+
+    private static CodeException error(String message) {
+        return new CodeException("\nRuntime Error: " + message);
+    }
+}
@@ -0,0 +1,82 @@
+package interpreter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class AsyncSinkTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Test
+    void writesEverythingInOrder() {
+        StringWriter written = new StringWriter();
+        AsyncSink sink = new AsyncSink(written, 4, 2);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sink.print("line " + i);
+            sink.print('\n');
+            expected.append("line ").append(i).append('\n');
+        }
+        sink.close();
+
+        assertEquals(expected.toString(), written.toString());
+    }
+
+    @Test
+    void runtimeExceptionOfTheWriterIsThrownToThePrinter() {
+        RuntimeException failure = new IllegalArgumentException("broken writer");
+        AsyncSink sink = new AsyncSink(new FailingWriter(failure), 4, 2);
+
+        IllegalStateException thrown = assertTimeoutPreemptively(TIMEOUT, () -> assertThrows(
+                IllegalStateException.class, () -> {
+                    // more buffers than the queue holds, which would block if the writer had stopped taking them
+                    for (int i = 0; i < 100; i++) {
+                        sink.print("text");
+                    }
+                    sink.flush();
+                }));
+        assertSame(failure, thrown.getCause());
+        assertTimeoutPreemptively(TIMEOUT, () -> assertThrows(IllegalStateException.class, sink::close));
+    }
+
+    @Test
+    void ioExceptionOfTheWriterIsThrownByFlushAndClose() {
+        AsyncSink sink = new AsyncSink(new FailingWriter(new IOException("disk full")), 4, 2);
+        sink.print("text");
+
+        assertTimeoutPreemptively(TIMEOUT, () -> assertThrows(OutputException.class, sink::flush));
+        assertTimeoutPreemptively(TIMEOUT, () -> assertThrows(OutputException.class, sink::close));
+    }
+
+    // a writer whose every write throws the given exception
+    private static class FailingWriter extends Writer {
+        private final Exception failure;
+
+        FailingWriter(Exception failure) {
+            this.failure = failure;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            throw (RuntimeException) failure;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package interpreter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BatchRunnerTest {
+    private static final Path PROGRAMS = Path.of("test", "programs");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void printsTheOutputsInOrderAndCountsTheFailures() throws IOException {
+        // scan reads its input from scan.in next to it, unset_error stops on a runtime error
+        for (String name : new String[] { "arithmetic.code", "scan.code", "scan.in", "unset_error.code" }) {
+            Files.copy(PROGRAMS.resolve(name), directory.resolve(name));
+        }
+        Files.writeString(directory.resolve("syntax_error.code"), "BEGIN CODE\nINT = 3\nEND CODE\n");
+        List<Path> programs = BatchRunner.listPrograms(directory);
+
+        BatchRunner runner = new BatchRunner(3);
+        String first = runBatch(runner, programs);
+        // a runner can run several batches
+        String second = runBatch(runner, programs);
+
+        String expected = header("arithmetic.code", false) + golden("arithmetic")
+                + header("scan.code", false) + golden("scan")
+                + header("syntax_error.code", true)
+                + "\nSyntax Analyzer Error: Mismatch Token: Expected = IDENTIFIER || Current = ASSIGNMENT\n"
+                + header("unset_error.code", true) + golden("unset_error");
+        for (String output : new String[] { first, second }) {
+            int summary = output.lastIndexOf(System.lineSeparator() + "Programs: ");
+            assertEquals(expected, output.substring(0, summary).replace(System.lineSeparator(), "\n"));
+            assertTrue(output.substring(summary).contains("Programs: 4, failures: 2, threads: 3"), output);
+        }
+    }
+
+    @Test
+    void failureCountIsZeroWhenEveryProgramRuns() throws IOException {
+        Files.copy(PROGRAMS.resolve("arithmetic.code"), directory.resolve("arithmetic.code"));
+        MemorySink out = new MemorySink();
+
+        assertEquals(0, new BatchRunner(1).run(BatchRunner.listPrograms(directory), out));
+    }
+
+    private static String runBatch(BatchRunner runner, List<Path> programs) {
+        MemorySink out = new MemorySink();
+        assertEquals(2, runner.run(programs, out));
+        return out.toString();
+    }
+
+    private String header(String name, boolean failed) {
+        return "==> " + directory.resolve(name) + (failed ? " (failed)" : "") + " <==\n";
+    }
+
+    private static String golden(String name) throws IOException {
+        return Files.readString(PROGRAMS.resolve(name + ".out"));
+    }
+}
@@ -0,0 +1,131 @@
+package interpreter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ByteInputTest {
+
+    @Test
+    void valuesAreSeparatedByCommasAndLineBreaks() {
+        ByteInput in = ByteInput.of(" 12 ,\t-3.5\nTRUE, q\n");
+
+        assertEquals(12, in.nextInt());
+        assertEquals(-3.5, in.nextFloat());
+        assertTrue(in.nextBool());
+        assertEquals('q', in.nextChar());
+        assertFalse(in.hasNext());
+    }
+
+    @Test
+    void crlfAndCrEndLinesLikeLf() {
+        ByteInput in = ByteInput.of("1\r\n2\r3\r\n");
+
+        assertEquals(1, in.nextInt());
+        assertTrue(in.hasNext());
+        assertEquals(2, in.nextInt());
+        assertEquals(3, in.nextInt());
+        // the '\n' of the last CRLF is not a value of its own
+        assertFalse(in.hasNext());
+    }
+
+    @Test
+    void lastValueMayEndWithoutLineBreak() {
+        ByteInput in = ByteInput.of("7, fals");
+
+        assertEquals(7, in.nextInt());
+        InvalidInputException e = assertThrows(InvalidInputException.class, in::nextBool);
+        assertEquals(" fals", e.getValue());
+        assertFalse(in.hasNext());
+    }
+
+    @Test
+    void tooFewValues() {
+        ByteInput in = ByteInput.of("4");
+
+        assertEquals(4, in.nextInt());
+        assertFalse(in.hasNext());
+        assertThrows(IllegalStateException.class, in::nextInt);
+        assertFalse(ByteInput.of("").hasNext());
+    }
+
+    @Test
+    void tooManyValuesAreLeftForTheNextRead() {
+        ByteInput in = ByteInput.of("1, 2, 3\n");
+
+        assertEquals(1, in.nextInt());
+        assertTrue(in.hasNext());
+        assertEquals(2, in.nextInt());
+        assertEquals(3, in.nextInt());
+        assertFalse(in.hasNext());
+    }
+
+    @Test
+    void commaCanBeReadAsChar() {
+        ByteInput in = ByteInput.of(",, x\n,\n,,,\na,,b");
+
+        assertEquals(',', in.nextChar());
+        assertEquals('x', in.nextChar());
+        assertEquals(',', in.nextChar());
+        assertEquals(',', in.nextChar());
+        assertEquals(',', in.nextChar());
+        assertEquals('a', in.nextChar());
+        assertEquals(',', in.nextChar());
+        assertEquals('b', in.nextChar());
+        assertFalse(in.hasNext());
+    }
+
+    @Test
+    void commaIsNotAnInt() {
+        ByteInput in = ByteInput.of(",5");
+
+        assertEquals("", assertThrows(InvalidInputException.class, in::nextInt).getValue());
+        assertEquals(5, in.nextInt());
+    }
+
+    @Test
+    void invalidIntsAreConsumedAndReported() {
+        ByteInput in = ByteInput.of("12x\n2147483648\n-\n-2147483648\n");
+
+        InvalidInputException e = assertThrows(InvalidInputException.class, in::nextInt);
+        assertEquals("12x", e.getValue());
+        assertEquals("Invalid input value: 12x", e.getMessage());
+        assertEquals("2147483648", assertThrows(InvalidInputException.class, in::nextInt).getValue());
+        assertEquals("-", assertThrows(InvalidInputException.class, in::nextInt).getValue());
+        assertEquals(Integer.MIN_VALUE, in.nextInt());
+    }
+
+    @Test
+    void floatsIncludeTheJavaSyntax() {
+        ByteInput in = ByteInput.of("0.125, 1e3, 7, .5, 1.2.3, abc");
+
+        assertEquals(0.125, in.nextFloat());
+        assertEquals(1000.0, in.nextFloat());
+        assertEquals(7.0, in.nextFloat());
+        assertEquals(0.5, in.nextFloat());
+        assertEquals(" 1.2.3", assertThrows(InvalidInputException.class, in::nextFloat).getValue());
+        assertEquals("Invalid input value:  abc", assertThrows(InvalidInputException.class, in::nextFloat)
+                .getMessage());
+    }
+
+    @Test
+    void boolsIgnoreCase() {
+        ByteInput in = ByteInput.of("true, FaLsE, yes");
+
+        assertTrue(in.nextBool());
+        assertFalse(in.nextBool());
+        assertEquals(" yes", assertThrows(InvalidInputException.class, in::nextBool).getValue());
+    }
+
+    @Test
+    void charIsOneCharacter() {
+        ByteInput in = ByteInput.of(" z ,ab,\t#\n");
+
+        assertEquals('z', in.nextChar());
+        assertEquals("ab", assertThrows(InvalidInputException.class, in::nextChar).getValue());
+        assertEquals('#', in.nextChar());
+    }
+}
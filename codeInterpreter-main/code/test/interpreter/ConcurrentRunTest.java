@@ -0,0 +1,112 @@
+package interpreter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import ast.Program;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import lexer.CodeException;
+import lexer.Lexer;
+import lexer.TokenStream;
+import org.junit.jupiter.api.Test;
+import parser.SyntaxAnalyzer;
+
+/**
+ * Runs different programs with different inputs on many threads at the same time. Each program is parsed once and
+ * shared by all its runs, as {@link BatchRunner} and a server would share it, and every run has to print what the
+ * same program with the same input prints when it runs alone.
+ */
+class ConcurrentRunTest {
+    private static final Path PROGRAMS = Path.of("test", "programs");
+    private static final int THREADS = 8;
+    private static final int RUNS_PER_CASE = 12;
+    // inputs given to the corpus programs, on top of their own ".in" file
+    private static final String[] INPUTS = { "", "3", "41, 0.5, x, \"FALSE\"" };
+
+    @Test
+    void concurrentRunsPrintWhatSoloRunsPrint() throws Exception {
+        List<Case> cases = new ArrayList<>();
+        try (Stream<Path> files = Files.list(PROGRAMS)) {
+            for (Path file : files.filter(file -> file.toString().endsWith(".code")).sorted().toList()) {
+                Program program = parse(Files.readString(file));
+                Path inputFile = Path.of(file.toString().replace(".code", ".in"));
+                if (Files.exists(inputFile)) {
+                    cases.add(new Case(file.getFileName().toString(), program, Files.readString(inputFile)));
+                }
+                for (String input : INPUTS) {
+                    cases.add(new Case(file.getFileName().toString(), program, input));
+                }
+            }
+        }
+        RandomPrograms generated = new RandomPrograms(7L);
+        while (cases.size() < 80) {
+            String source = generated.next(8);
+            try {
+                cases.add(new Case(source, parse(source), generated.input()));
+            } catch (CodeException e) {
+                // the generator writes an invalid program now and then, it is not what is tested here
+            }
+        }
+        for (Case c : cases) {
+            c.expected = c.run();
+        }
+
+        List<Case> runs = new ArrayList<>();
+        for (int i = 0; i < RUNS_PER_CASE; i++) {
+            runs.addAll(cases);
+        }
+        Collections.shuffle(runs, new Random(11L));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> outputs = new ArrayList<>();
+        try {
+            for (Case c : runs) {
+                outputs.add(executor.submit(() -> {
+                    start.await();
+                    return c.run();
+                }));
+            }
+            start.countDown();
+            for (int i = 0; i < runs.size(); i++) {
+                Case c = runs.get(i);
+                assertEquals(c.expected, outputs.get(i).get(), c.name + " with input [" + c.input + "]");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Program parse(String source) {
+        return new SyntaxAnalyzer(TokenStream.tokenize(new Lexer(source))).parse();
+    }
+
+    private static final class Case {
+        final String name;
+        final Program program;
+        final String input;
+        String expected;
+
+        Case(String name, Program program, String input) {
+            this.name = name;
+            this.program = program;
+            this.input = input;
+        }
+
+        String run() {
+            MemorySink out = new MemorySink();
+            new Interpreter(program, ByteInput.of(input), out).run();
+            return out.toString();
+        }
+    }
+}
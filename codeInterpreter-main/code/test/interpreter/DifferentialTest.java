@@ -0,0 +1,131 @@
+package interpreter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ast.Program;
+import closure.ClosureCompiler;
+import closure.ClosureProgram;
+import codegen.CompiledProgram;
+import codegen.ProgramCompiler;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import lexer.CodeException;
+import lexer.Lexer;
+import lexer.TokenStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import parser.SyntaxAnalyzer;
+import vm.Bytecode;
+import vm.BytecodeCompiler;
+import vm.VirtualMachine;
+
+/**
+ * Runs the same programs through every engine and checks that they print exactly the same thing, the report of a
+ * runtime error included. The reference is the Interpreter walking the statements one by one, which it does when it
+ * is given a Profiler. The Interpreter without a Profiler compiles the WHILE loops that get hot, so the
+ * loop-threshold-1 execution in the pom runs this class again with every loop compiled after one iteration.
+ */
+class DifferentialTest {
+    private static final Path PROGRAMS = Path.of("test", "programs");
+    private static final long SEED = 20240611L;
+
+    static Stream<String> corpus() throws IOException {
+        try (Stream<Path> files = Files.list(PROGRAMS)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(".code"))
+                    .map(name -> name.substring(0, name.length() - ".code".length()))
+                    .sorted()
+                    .toList()
+                    .stream();
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("corpus")
+    void corpusProgram(String name) throws IOException {
+        String source = Files.readString(PROGRAMS.resolve(name + ".code"));
+        Path inputFile = PROGRAMS.resolve(name + ".in");
+        String input = Files.exists(inputFile) ? Files.readString(inputFile) : "";
+        String expected = Files.readString(PROGRAMS.resolve(name + ".out"));
+
+        assertEquals(expected, assertSameOutput(parse(source), source, input).replace(System.lineSeparator(), "\n"),
+                name);
+    }
+
+    @Test
+    void generatedPrograms() {
+        RandomPrograms programs = new RandomPrograms(SEED);
+        int compared = 0;
+        for (int n = 0; n < 600; n++) {
+            // every tenth program is long, to get past the size the block table starts with
+            String source = programs.next(n % 10 == 0 ? 400 : 4);
+            String input = programs.input();
+            Program program;
+            try {
+                program = parse(source);
+            } catch (CodeException e) {
+                continue;
+            }
+            assertSameOutput(program, source, input);
+            compared++;
+        }
+        // the generator is meant to write valid programs, only a few of them are rejected by the parser
+        assertTrue(compared > 500, compared + " programs compared");
+    }
+
+    /**
+     * Runs the program through every engine and returns what the reference printed
+     */
+    private static String assertSameOutput(Program program, String source, String input) {
+        String reference = run(out -> new Interpreter(program, ByteInput.of(input), out, new Profiler()).run());
+
+        List<String> engines = new ArrayList<>();
+        List<String> outputs = new ArrayList<>();
+
+        engines.add("Interpreter");
+        outputs.add(run(out -> new Interpreter(program, ByteInput.of(input), out).run()));
+
+        CompiledProgram compiled = ProgramCompiler.compile(program);
+        assertNotNull(compiled, "ProgramCompiler does not support\n" + source);
+        engines.add("ProgramCompiler");
+        outputs.add(run(out -> compiled.run(ByteInput.of(input), out)));
+
+        Bytecode bytecode = BytecodeCompiler.compile(program);
+        assertNotNull(bytecode, "BytecodeCompiler does not support\n" + source);
+        engines.add("VirtualMachine");
+        outputs.add(run(out -> new VirtualMachine(bytecode, ByteInput.of(input), out).run()));
+
+        ClosureProgram closures = ClosureCompiler.compile(program);
+        assertNotNull(closures, "ClosureCompiler does not support\n" + source);
+        engines.add("ClosureCompiler");
+        outputs.add(run(out -> closures.run(ByteInput.of(input), out)));
+
+        for (int k = 0; k < engines.size(); k++) {
+            assertEquals(reference, outputs.get(k),
+                    engines.get(k) + " differs from the reference on input [" + input + "] for\n" + source);
+        }
+        return reference;
+    }
+
+    private static String run(Engine engine) {
+        MemorySink out = new MemorySink();
+        engine.run(out);
+        return out.toString();
+    }
+
+    private static Program parse(String source) {
+        return new SyntaxAnalyzer(TokenStream.tokenize(new Lexer(source))).parse();
+    }
+
+    @FunctionalInterface
+    private interface Engine {
+        void run(OutputSink out);
+    }
+}
@@ -0,0 +1,107 @@
+package interpreter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lexer.Lexer;
+import lexer.TokenStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import parser.SyntaxAnalyzer;
+
+class ProfilerTest {
+    private static final String SOURCE = """
+            BEGIN CODE
+            INT i = 0, s = 0
+            WHILE (i < 4)
+            BEGIN WHILE
+            s = s + i
+            IF (s > 2)
+            BEGIN IF
+            DISPLAY: s & " "
+            END IF
+            i = i + 1
+            END WHILE
+            END CODE
+            """;
+    private static final List<String> SOURCE_LINES = SOURCE.lines().toList();
+    // executed lines and how often; a WHILE counts once for the whole loop
+    private static final Map<Integer, Long> COUNTS = Map.of(2, 1L, 3, 1L, 5, 4L, 6, 4L, 8, 2L, 10, 4L);
+    private static final Pattern LINE = Pattern.compile("\\{\"line\": (\\d+), \"count\": (\\d+), "
+            + "\"inclusiveNanos\": (-?\\d+), \"calculatorNanos\": (-?\\d+), \"source\": \"((?:[^\"\\\\]|\\\\.)*)\"}");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void jsonHasTheCountsAndTimesOfEveryExecutedLine() throws IOException {
+        Profiler profiler = profile();
+        Path file = directory.resolve("profile.json");
+        profiler.writeJson(file, "dir\\\"quoted\".code", SOURCE_LINES);
+        String json = Files.readString(file);
+
+        assertTrue(json.startsWith("{\n  \"program\": \"dir\\\\\\\"quoted\\\".code\",\n  \"totalNanos\": "), json);
+        assertTrue(json.endsWith("\n  ]\n}\n"), json);
+        Matcher total = Pattern.compile("\"totalNanos\": (-?\\d+),\n  \"lines\": \\[\n").matcher(json);
+        assertTrue(total.find(), json);
+        assertEquals(profiler.getTotalNanos(), Long.parseLong(total.group(1)));
+        assertTrue(profiler.getTotalNanos() >= 0);
+
+        Map<Integer, Long> counts = new LinkedHashMap<>();
+        Map<Integer, Long> inclusive = new LinkedHashMap<>();
+        Matcher line = LINE.matcher(json);
+        long previous = Long.MAX_VALUE;
+        while (line.find()) {
+            int number = Integer.parseInt(line.group(1));
+            long nanos = Long.parseLong(line.group(3));
+            counts.put(number, Long.parseLong(line.group(2)));
+            inclusive.put(number, nanos);
+            assertTrue(nanos >= 0 && Long.parseLong(line.group(4)) >= 0, line.group());
+            // hottest first
+            assertTrue(nanos <= previous, json);
+            previous = nanos;
+            assertEquals(SOURCE_LINES.get(number - 1).replace("\"", "\\\""), line.group(5));
+        }
+        assertEquals(COUNTS, counts);
+        // the time of a WHILE includes the time of the statements in it
+        assertTrue(inclusive.get(3) >= inclusive.get(5) + inclusive.get(6) + inclusive.get(10), json);
+        assertTrue(inclusive.get(6) >= inclusive.get(8), json);
+    }
+
+    @Test
+    void reportShowsTheExecutedLinesWithTheirSource() {
+        Profiler profiler = profile();
+        MemorySink out = new MemorySink();
+        profiler.report(out, SOURCE_LINES);
+        List<String> report = out.toString().lines().toList();
+
+        assertTrue(report.get(1).startsWith("Profile: ") && report.get(1).endsWith(" ms total"), out.toString());
+        assertEquals(List.of("Line", "Count", "Incl.", "ms", "Calc.", "ms", "Source"),
+                List.of(report.get(2).strip().split(" +")));
+        assertEquals(2 + 1 + COUNTS.size(), report.size(), out.toString());
+        for (String row : report.subList(3, report.size())) {
+            String[] columns = row.strip().split(" +", 5);
+            int number = Integer.parseInt(columns[0]);
+            assertEquals(COUNTS.get(number), Long.valueOf(columns[1]), row);
+            assertTrue(Double.parseDouble(columns[2]) >= 0 && Double.parseDouble(columns[3]) >= 0, row);
+            assertEquals(SOURCE_LINES.get(number - 1), columns[4]);
+        }
+    }
+
+    private static Profiler profile() {
+        Profiler profiler = new Profiler();
+        MemorySink out = new MemorySink();
+        new Interpreter(new SyntaxAnalyzer(TokenStream.tokenize(new Lexer(SOURCE))).parse(), ByteInput.of(""), out,
+                profiler).run();
+        assertEquals("3 6 \nNo Error" + System.lineSeparator(), out.toString());
+        return profiler;
+    }
+}
@@ -0,0 +1,150 @@
+package interpreter;
+
+import java.util.Random;
+
+/**
+ * Writes random programs over a fixed set of variables of every data type: assignments of INT, FLOAT, BOOL and CHAR
+ * expressions, DISPLAY, nested IF and WHILE, SCAN, and now and then a read of a variable without a value, an
+ * overflow or a division by zero, which stop the run with a runtime error. The same seed writes the same programs.
+ */
+final class RandomPrograms {
+    private static final String[] INPUTS = { "", "5", "2.5", "\"TRUE\"", "z", "7, 1.25", "\"FALSE\", q, 9", "abc" };
+
+    private final Random random;
+
+    RandomPrograms(long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * Returns the next program, with up to topLevel statements before its main loop
+     */
+    String next(int topLevel) {
+        StringBuilder s = new StringBuilder("BEGIN CODE\n")
+                .append("INT a = 3, b = -2, x, i, j0, j1, j2, j3\n")
+                .append("FLOAT f = 1.5, g = 0.25\n")
+                .append("BOOL t = \"TRUE\", u = \"FALSE\"\n")
+                .append("CHAR c = 'a', d = 'b'\n");
+        if (random.nextInt(3) > 0) {
+            s.append("x = 5\n");
+        }
+        if (random.nextInt(3) == 0) {
+            s.append("SCAN: ").append(pick("a", "f", "t", "c", "a, f", "t, c, b")).append('\n');
+        }
+        if (topLevel > 0) {
+            statements(s, 1, random.nextInt(topLevel));
+        }
+        s.append("i = 0\nWHILE (i < ").append(3 + random.nextInt(8)).append(")\nBEGIN WHILE\n");
+        statements(s, 2, 2 + random.nextInt(5));
+        if (random.nextInt(4) == 0) {
+            s.append("INT y\nDISPLAY: y & \"|\"\n");
+        }
+        s.append("i = i + 1\nEND WHILE\n")
+                .append("DISPLAY: $ & a & \" \" & b & \" \" & f & \" \" & g & \" \" & t & u & c & d & x\n")
+                .append("END CODE\n");
+        return s.toString();
+    }
+
+    /**
+     * Returns the input for a SCAN of the last program: nothing, valid values or invalid ones
+     */
+    String input() {
+        return pick(INPUTS);
+    }
+
+    private void statements(StringBuilder s, int depth, int count) {
+        for (int k = 0; k < count; k++) {
+            switch (random.nextInt(depth > 0 ? 12 : 9)) {
+                case 0:
+                case 1:
+                    s.append(pick("a", "b", "x", "a = b")).append(" = ").append(integer(2)).append('\n');
+                    break;
+                case 2:
+                    s.append(pick("f", "g", "f = g", "a")).append(" = ").append(number(2)).append('\n');
+                    break;
+                case 3:
+                    s.append(pick("t", "u", "t = u")).append(" = ").append(bool(2)).append('\n');
+                    break;
+                case 4:
+                    s.append("c = ").append(pick("c", "d", "'z'", "'#'")).append('\n');
+                    break;
+                case 5:
+                case 6:
+                    s.append("DISPLAY: ")
+                            .append(pick("a", "f", "t", "c", "\"s\"", "$", "[#]", "(" + integer(1) + ")", "x"))
+                            .append(" & ").append(pick("b", "g", "u", "d", "\" \"", "$", "i")).append('\n');
+                    break;
+                case 7:
+                    s.append(random.nextInt(4) == 0 ? "DISPLAY: " + bool(1) : "a = a + 1").append('\n');
+                    break;
+                case 8:
+                    s.append(random.nextInt(8) == 0 ? "INT q = 3" : "b = b - 1").append('\n');
+                    break;
+                case 9:
+                case 10:
+                    s.append("IF (").append(bool(2)).append(")\nBEGIN IF\n");
+                    statements(s, depth - 1, 1 + random.nextInt(3));
+                    s.append("END IF\n");
+                    if (random.nextBoolean()) {
+                        s.append("ELSE IF (").append(bool(1)).append(")\nBEGIN IF\n");
+                        statements(s, depth - 1, 1 + random.nextInt(2));
+                        s.append("END IF\n");
+                    }
+                    if (random.nextBoolean()) {
+                        s.append("ELSE\nBEGIN IF\n");
+                        statements(s, depth - 1, 1 + random.nextInt(2));
+                        s.append("END IF\n");
+                    }
+                    break;
+                default: {
+                    String counter = "j" + depth;
+                    s.append(counter).append(" = 0\nWHILE (").append(counter).append(" < ").append(random.nextInt(6))
+                            .append(")\nBEGIN WHILE\n");
+                    statements(s, depth - 1, 1 + random.nextInt(3));
+                    s.append(counter).append(" = ").append(counter).append(" + 1\nEND WHILE\n");
+                    break;
+                }
+            }
+        }
+    }
+
+    private String integer(int depth) {
+        if (depth == 0 || random.nextInt(3) == 0) {
+            return pick("a", "b", "x", "i", "1", "2", "0", "7", "100000", "-3");
+        }
+        String left = integer(depth - 1);
+        if (random.nextInt(4) == 0) {
+            left = "(" + left + ")";
+        }
+        return left + " " + pick("+", "-", "*", "/", "%") + " " + integer(depth - 1);
+    }
+
+    private String number(int depth) {
+        if (depth == 0 || random.nextInt(3) == 0) {
+            return pick("a", "f", "g", "1.5", "2", "0.1", "i");
+        }
+        return number(depth - 1) + " " + pick("+", "-", "*", "/", "%") + " " + number(depth - 1);
+    }
+
+    private String bool(int depth) {
+        switch (depth == 0 ? random.nextInt(2) : random.nextInt(6)) {
+            case 0:
+                return pick("a", "f", "i", "x", "2", "1.5") + " " + pick(">", "<", ">=", "<=", "==", "<>") + " "
+                        + pick("a", "b", "f", "3", "0.5", "a + 1", "f * 2");
+            case 1:
+                return pick("t", "u", "\"TRUE\"", "\"FALSE\"");
+            case 2:
+                return "NOT " + bool(depth - 1);
+            case 3:
+                return "(" + bool(depth - 1) + ")";
+            case 4:
+                return bool(depth - 1) + pick(" AND ", " OR ") + bool(depth - 1);
+            default:
+                return "(" + bool(depth - 1) + ")" + pick(" AND ", " <> ", " OR ") + "(" + bool(depth - 1) + ")";
+        }
+    }
+
+    private String pick(String... choices) {
+        return choices[random.nextInt(choices.length)];
+    }
+}
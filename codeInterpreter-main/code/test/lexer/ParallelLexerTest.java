@@ -0,0 +1,121 @@
+package lexer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Cuts random sources into chunks of a few characters, so that cuts fall inside string and [] literals that span
+ * lines, comments and CRLF line ends, and checks that the ParallelLexer gives the same tokens, values and lines as
+ * {@link TokenStream#tokenize(Lexer)}, or fails with the same error.
+ */
+class ParallelLexerTest {
+    // pieces of source the inputs are made of; the last ones do not lex
+    private static final String[] PIECES = { "BEGIN CODE", "END CODE", "INT", "FLOAT", "DISPLAY:", "SCAN:", "IF", "WHILE",
+            "x", "sum_2", "_t", "=", "==", "<>", ">=", "+", "-", "*", "/", "%", "(", ")", ",", "&", "$", "0", "42",
+            "3.25", ".5", "'a'", "' '", "\"TRUE\"", "\"FALSE\"", "\"text\"", "\"two\nlines\"", "\"a[#]b\\n\"",
+            "\"x\\\"y\"", "[&]", "[\n]", "[a\r\nb]", "# a comment", "#", " ", "  ", "\t", "\n", "\n", "\n", "\r\n", "\r",
+            "\"never closed", "[never closed", "'ab'", "1.2.3", "9x", "@" };
+    private static final int VALID_PIECES = PIECES.length - 6;
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void randomSourcesLexAsOneChunk() {
+        Random random = new Random(17L);
+        for (int n = 0; n < 4000; n++) {
+            String input = source(random, n % 4 == 0);
+            for (int chunkSize = 1; chunkSize <= 5; chunkSize++) {
+                assertSameTokens(input, chunkSize);
+            }
+        }
+    }
+
+    @Test
+    void largeChunksKeepLineNumbers() {
+        StringBuilder input = new StringBuilder("BEGIN CODE\n");
+        for (int i = 0; i < 2000; i++) {
+            input.append("INT x").append(i).append(" = ").append(i).append(" # line ").append(i + 2).append('\n');
+            if (i % 100 == 0) {
+                input.append("DISPLAY: \"across\nthe cut\" & [\n]\n");
+            }
+        }
+        input.append("END CODE\n");
+        for (int chunkSize : new int[] { 64, 1000, 1 << 20 }) {
+            assertSameTokens(input.toString(), chunkSize);
+        }
+    }
+
+    @Test
+    void reportsTheFirstErrorOfTheSource() {
+        String input = "BEGIN CODE\nINT a = 1\n'ab'\nINT b = 2\n@\n";
+        CodeException expected = assertThrows(CodeException.class, () -> TokenStream.tokenize(new Lexer(input)));
+        for (int chunkSize = 1; chunkSize <= 8; chunkSize++) {
+            int size = chunkSize;
+            CodeException actual = assertThrows(CodeException.class,
+                    () -> new ParallelLexer(pool, size).tokenize(input));
+            assertEquals(expected.getMessage(), actual.getMessage(), "chunk size " + chunkSize);
+        }
+    }
+
+    private static void assertSameTokens(String input, int chunkSize) {
+        TokenStream expected;
+        try {
+            expected = TokenStream.tokenize(new Lexer(input));
+        } catch (CodeException e) {
+            CodeException actual = assertThrows(CodeException.class,
+                    () -> new ParallelLexer(pool, chunkSize).tokenize(input), () -> describe(input, chunkSize));
+            assertEquals(e.getMessage(), actual.getMessage(), () -> describe(input, chunkSize));
+            return;
+        }
+        TokenStream actual;
+        try {
+            actual = new ParallelLexer(pool, chunkSize).tokenize(input);
+        } catch (CodeException e) {
+            fail(describe(input, chunkSize) + " failed with " + e.getMessage());
+            return;
+        }
+        assertEquals(expected.size(), actual.size(), () -> describe(input, chunkSize));
+        for (int i = 0; i < expected.size(); i++) {
+            int index = i;
+            assertEquals(expected.type(i), actual.type(i), () -> describe(input, chunkSize) + " token " + index);
+            assertEquals(expected.value(i), actual.value(i), () -> describe(input, chunkSize) + " token " + index);
+            assertEquals(expected.line(i), actual.line(i), () -> describe(input, chunkSize) + " token " + index);
+            if (expected.type(i) == TokenType.INT || expected.type(i) == TokenType.FLOAT) {
+                assertEquals(expected.number(i), actual.number(i), () -> describe(input, chunkSize) + " token " + index);
+            }
+        }
+    }
+
+    // a source of random pieces separated by blanks, with pieces that do not lex when invalid is set
+    private static String source(Random random, boolean invalid) {
+        StringBuilder input = new StringBuilder();
+        int pieces = 1 + random.nextInt(40);
+        for (int i = 0; i < pieces; i++) {
+            int bound = invalid && random.nextInt(10) == 0 ? PIECES.length : VALID_PIECES;
+            input.append(PIECES[random.nextInt(bound)]);
+            input.append(random.nextInt(3) == 0 ? "\n" : " ");
+        }
+        return input.toString();
+    }
+
+    private static String describe(String input, int chunkSize) {
+        return "chunk size " + chunkSize + ", input [" + input.replace("\r", "\\r").replace("\n", "\\n") + "]";
+    }
+}
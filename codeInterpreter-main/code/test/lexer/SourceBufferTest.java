@@ -0,0 +1,60 @@
+package lexer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the window of a SourceBuffer: what is read ahead, what is dropped once released, and that the characters
+ * that are dropped can no longer be looked at through any part of the CharSequence.
+ */
+class SourceBufferTest {
+
+    @Test
+    void readsAheadAsAsked() {
+        SourceBuffer buffer = new SourceBuffer(new StringReader("abcdefghij"), 4);
+
+        assertTrue(buffer.has(6));
+        assertEquals('g', buffer.charAt(6));
+        assertEquals("cdef", buffer.subSequence(2, 6).toString());
+        assertEquals("", buffer.subSequence(3, 3).toString());
+        assertFalse(buffer.has(10));
+        assertEquals(10, buffer.length());
+        assertEquals("abcdefghij", buffer.toString());
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.charAt(10));
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.subSequence(8, 11));
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.subSequence(5, 4));
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.charAt(-1));
+    }
+
+    @Test
+    void releasedCharactersAreDroppedWhenRoomIsNeeded() {
+        SourceBuffer buffer = new SourceBuffer(new StringReader("abcdefghij"), 4);
+
+        assertTrue(buffer.has(3));
+        buffer.release(3);
+        assertTrue(buffer.has(6));
+        assertEquals(4, buffer.getCapacity());
+        assertEquals('d', buffer.charAt(3));
+        assertEquals("defg", buffer.subSequence(3, 7).toString());
+        assertEquals(7, buffer.length());
+
+        IndexOutOfBoundsException e = assertThrows(IndexOutOfBoundsException.class, () -> buffer.charAt(2));
+        assertEquals("Position 2 is released, the buffer starts at 3", e.getMessage());
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.subSequence(2, 5));
+        assertThrows(IndexOutOfBoundsException.class, buffer::toString);
+    }
+
+    @Test
+    void tokenLongerThanTheWindowGrowsIt() {
+        SourceBuffer buffer = new SourceBuffer(new StringReader("abcdefghij"), 4);
+
+        assertTrue(buffer.has(9));
+        assertEquals(16, buffer.getCapacity());
+        assertEquals("abcdefghij", buffer.subSequence(0, 10).toString());
+    }
+}
@@ -0,0 +1,74 @@
+package vm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import lexer.Lexer;
+import lexer.TokenStream;
+import org.junit.jupiter.api.Test;
+import parser.SyntaxAnalyzer;
+
+class DisassemblerTest {
+
+    @Test
+    void listsEveryInstructionWithItsOperands() {
+        String source = """
+                BEGIN CODE
+                INT n = 3, s = 0
+                BOOL odd
+                WHILE (n > 0)
+                BEGIN WHILE
+                s = s + n * 2
+                odd = n % 2 == 1
+                IF (odd)
+                BEGIN IF
+                DISPLAY: n & " odd" & $
+                END IF
+                n = n - 1
+                END WHILE
+                DISPLAY: "s=" & s
+                END CODE
+                """;
+        String expected = """
+                    0  CLEAR   n
+                    2  SET     n, 3
+                    5  CLEAR   s
+                    7  SET     s, 0
+                   10  CLEAR   odd
+                   12  CHECK   n, "Variable: n has no value"
+                   15  ITOF    f0, n
+                   18  GT      r0, f0, 0.0
+                   22  JUMPF   r0, @92
+                   25  CHECK   s, "Variable: s has no value"
+                   28  MUL     r1, n, 2, "s+n*2"
+                   33  ADD     r2, s, r1, "s+n*2"
+                   38  TOINT   r0, r2, "s+n*2"
+                   42  SET     s, r0
+                   45  ITOF    f0, n
+                   48  FMOD    f1, f0, 2.0
+                   52  EQ      r0, f1, 1.0
+                   56  SET     odd, r0
+                   59  JUMPF   odd, @75
+                   62  JUNSET  n, @69
+                   65  PRINTI  n
+                   67  JUMP    @71
+                   69  PRINT   "null"
+                   71  PRINT   " odd"
+                   73  PRINT   "\\n"
+                   75  CHECK   n, "Variable: n has no value"
+                   78  SUB     r1, n, 1, "n-1"
+                   83  TOINT   r0, r1, "n-1"
+                   87  SET     n, r0
+                   90  JUMP    @12
+                   92  PRINT   "s="
+                   94  JUNSET  s, @101
+                   97  PRINTI  s
+                   99  JUMP    @103
+                  101  PRINT   "null"
+                  103  HALT
+                """;
+
+        Bytecode bytecode = BytecodeCompiler.compile(new SyntaxAnalyzer(TokenStream.tokenize(new Lexer(source))).parse());
+
+        assertEquals(expected.replace("\n", System.lineSeparator()), Disassembler.disassemble(bytecode));
+    }
+}